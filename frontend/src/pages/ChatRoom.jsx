@@ -1,13 +1,19 @@
 import React, { useState, useEffect, useRef } from 'react';
-import { useParams } from 'react-router-dom';
+import { Link, useParams } from 'react-router-dom';
 import { Container, Card, Form, Button, ListGroup, Alert, Modal } from 'react-bootstrap';
 import { channelService, userService } from '../services/api';
 import { websocketService } from '../services/websocketService';
+import { API_URL } from '../services/api';
 import { useAuth } from '../contexts/AuthContext';
 import LottieLoader from '../components/LottieLoader';
 import { AdvancedImage } from '@cloudinary/react';
 import { getCloudinaryImage } from '../services/cloudinaryService';
 
+// Applique une modification (EDIT) ou une suppression (DELETE) au message de même séquence
+const applyDelta = (messages, delta) => delta.type === 'EDIT'
+  ? messages.map(msg => msg.seq === delta.targetSeq ? { ...msg, content: delta.content, edited: true } : msg)
+  : messages.filter(msg => msg.seq !== delta.targetSeq);
+
 // Composant principal de la salle de chat (messages, fichiers, utilisateurs connectés)
 // Gère la connexion WebSocket, l'affichage des messages et la gestion des fichiers
 function ChatRoom() {
@@ -23,8 +29,19 @@ function ChatRoom() {
   const [usersConnected, setUsersConnected] = useState([]);
   const [connectedUserInfos, setConnectedUserInfos] = useState({});
   const [notifications, setNotifications] = useState([]);
+  const [channelClosed, setChannelClosed] = useState(false);
+  const [searchQuery, setSearchQuery] = useState('');
+  // Résultats de la recherche dans l'historique (null : pas de recherche en cours)
+  const [searchResults, setSearchResults] = useState(null);
   const fileInputRef = useRef(null);
   const messagesEndRef = useRef(null);
+  // Version de la présence affichée (null tant que la présence complète n'est pas chargée)
+  const presenceVersionRef = useRef(null);
+
+  // Mentions de l'utilisateur dans ce canal ou un autre, affichées jusqu'à leur fermeture
+  useEffect(() => websocketService.onMention((mention) => {
+    setNotifications(prev => [...prev, { ...mention, id: `${mention.channelId}-${mention.timestamp}-${prev.length}` }]);
+  }), []);
 
   useEffect(() => {
     loadChannel();
@@ -70,9 +87,88 @@ function ChatRoom() {
     }
   };
 
+  const loadHistory = async () => {
+    try {
+      const page = await websocketService.getMessages(channelId);
+      // Les modifications et suppressions pas encore compactées s'appliquent aux messages de la page
+      const history = page.messages.reduce((list, { seq, message }) => {
+        if (message.type === 'EDIT' || message.type === 'DELETE') {
+          return applyDelta(list, message);
+        }
+        if (message.type !== 'TEXT' && message.type !== 'FILE') {
+          return list;
+        }
+        return [...list, {
+          ...message,
+          ...(message.type === 'FILE' ? websocketService.displayFile(message) : {}),
+          seq,
+          edited: message.editedAt != null,
+          timestamp: new Date(message.timestamp || Date.now())
+        }];
+      }, []);
+      // Nos envois déjà dans l'historique ne sont plus renvoyés à la reconnexion
+      page.messages.forEach(({ message }) => websocketService.acknowledge(message));
+      // Point de départ de la détection des trous : les messages suivants sont attendus dans l'ordre
+      const lastSeq = page.messages.length > 0 ? page.messages[page.messages.length - 1].seq : 0;
+      websocketService.setLastMessageSeq(channelId, lastSeq);
+      setMessages(prev => [...history, ...prev]);
+    } catch (error) {
+      console.error('Error loading history:', error);
+    }
+  };
+
+  const loadPresence = async () => {
+    try {
+      const presence = await websocketService.getPresence(channelId);
+      presenceVersionRef.current = presence.version;
+      setUsersConnected(presence.userIds);
+    } catch (error) {
+      console.error('Error loading presence:', error);
+    }
+  };
+
+  // Applique un delta de présence, recharge la présence complète si une version manque
+  const applyPresenceDelta = (message) => {
+    const version = presenceVersionRef.current;
+    if (version === null || message.version <= version) {
+      return;
+    }
+    if (message.version !== version + 1) {
+      presenceVersionRef.current = null;
+      loadPresence();
+      return;
+    }
+    presenceVersionRef.current = message.version;
+    setUsersConnected(prev => message.type === 'USER_JOINED'
+      ? (prev.includes(message.userId) ? prev : [...prev, message.userId])
+      : prev.filter(userId => userId !== message.userId));
+  };
+
+  // Applique des changements regroupés (trame PRESENCE), recharge la présence complète si une version manque
+  const applyPresenceChanges = (message) => {
+    const version = presenceVersionRef.current;
+    if (version === null || message.version <= version) {
+      return;
+    }
+    if (message.fromVersion !== version) {
+      presenceVersionRef.current = null;
+      loadPresence();
+      return;
+    }
+    presenceVersionRef.current = message.version;
+    setUsersConnected(prev => {
+      const users = prev.filter(userId => !message.left.includes(userId));
+      message.joined.forEach(userId => {
+        if (!users.includes(userId)) users.push(userId);
+      });
+      return users;
+    });
+  };
+
   const connectWebSocket = async () => {
     try {
       await websocketService.connect();
+      await loadHistory();
       websocketService.subscribeToChannel(channelId, user.userId, (message) => {
         if (typeof message === 'string') {
           setMessages(prev => [...prev, { 
@@ -85,6 +181,7 @@ function ChatRoom() {
           if (message.type === 'TEXT') {
             setMessages(prev => [...prev, {
               type: 'TEXT',
+              seq: message.seq,
               content: message.content || '',
               sender: message.sender || 'Unknown',
               timestamp: new Date(message.timestamp || Date.now())
@@ -94,16 +191,42 @@ function ChatRoom() {
             if (fileData) {
               setMessages(prev => [...prev, {
                 type: 'FILE',
+                seq: message.seq,
                 ...fileData,
                 sender: message.sender || 'Unknown',
                 timestamp: new Date(message.timestamp || Date.now())
               }]);
             }
+          } else if (message.type === 'EDIT' || message.type === 'DELETE') {
+            setMessages(prev => applyDelta(prev, message));
+          } else if (message.type === 'FILE_PREVIEW') {
+            // Miniature prête : l'image est affichée en miniature, le lien ouvre l'original
+            setMessages(prev => prev.map(msg => msg.type === 'FILE' && msg.blobId === message.blobId
+              ? { ...msg, previewUrl: `${API_URL}${message.thumbnailUrl}` }
+              : msg));
           } else if (message.type === 'USER_JOINED' || message.type === 'USER_LEFT') {
-            setUsersConnected(Array.from(message.connectedUsers || []));
+            applyPresenceDelta(message);
+          } else if (message.type === 'PRESENCE') {
+            applyPresenceChanges(message);
+          } else if (message.type === 'CHANNEL_OPENED') {
+            setChannelClosed(false);
+          } else if (message.type === 'CHANNEL_CLOSED') {
+            // Dernière trame du salon : plus d'envoi possible
+            setChannelClosed(true);
+            setUsersConnected([]);
+          } else if (message.type === 'RESYNC') {
+            // Coupure trop longue pour un rattrapage en mémoire : rechargement de l'historique et de la présence
+            setMessages([]);
+            loadHistory();
+            loadPresence();
+          } else if (message.type === 'RATE_LIMITED') {
+            setError(`Trop de messages, réessayez dans ${Math.ceil(message.retryAfterMs / 1000)} s`);
+          } else if (message.type === 'ERROR') {
+            setError(message.message);
           }
         }
       });
+      await loadPresence();
     } catch (error) {
       console.error('WebSocket connection error:', error);
       setError('Failed to connect to chat');
@@ -123,6 +246,42 @@ function ChatRoom() {
     }
   };
 
+  const handleEditMessage = (msg) => {
+    const content = window.prompt('Modifier le message', msg.content);
+    if (content === null || !content.trim() || content === msg.content) return;
+    try {
+      websocketService.editMessage(channelId, msg.seq, content);
+    } catch (error) {
+      console.error('Error editing message:', error);
+      setError('La modification a échoué');
+    }
+  };
+
+  const handleDeleteMessage = (msg) => {
+    if (!window.confirm('Supprimer ce message ?')) return;
+    try {
+      websocketService.deleteMessage(channelId, msg.seq);
+    } catch (error) {
+      console.error('Error deleting message:', error);
+      setError('La suppression a échoué');
+    }
+  };
+
+  const handleSearch = async (e) => {
+    e.preventDefault();
+    if (!searchQuery.trim()) {
+      setSearchResults(null);
+      return;
+    }
+    try {
+      const page = await websocketService.searchMessages(channelId, searchQuery);
+      setSearchResults(page.messages.map(({ seq, message }) => ({ ...message, seq })).reverse());
+    } catch (error) {
+      console.error('Error searching messages:', error);
+      setError('La recherche a échoué');
+    }
+  };
+
   const handleFileSelect = (event) => {
     const file = event.target.files[0];
     if (file) {
@@ -160,6 +319,15 @@ function ChatRoom() {
     const timestamp = msg.timestamp ? new Date(msg.timestamp).toLocaleTimeString() : '';
     const sender = msg.sender || 'Unknown';
     const isOwnMessage = msg.sender === user?.email; // ou user?.username selon ton modèle
+    // Seuls les messages de l'auteur, déjà dans l'historique (séquence connue), peuvent être modifiés ou supprimés
+    const actions = isOwnMessage && typeof msg.seq === 'number' && (
+      <div className="message-actions">
+        {msg.type === 'TEXT' && (
+          <Button size="sm" variant="link" className="p-0 me-2" onClick={() => handleEditMessage(msg)}>Modifier</Button>
+        )}
+        <Button size="sm" variant="link" className="p-0" onClick={() => handleDeleteMessage(msg)}>Supprimer</Button>
+      </div>
+    );
 
     if (msg.type === 'FILE' && msg.url) {
       return (
@@ -168,6 +336,7 @@ function ChatRoom() {
             <div className={`message-sender ${isOwnMessage ? 'sender-own' : ''}`}>{sender}</div>
             {renderFilePreview(msg)}
             <div className="message-timestamp">{timestamp}</div>
+            {actions}
           </div>
         </div>
       );
@@ -178,7 +347,8 @@ function ChatRoom() {
         <div className={`message-bubble ${isOwnMessage ? 'own' : 'other'}`}>
           <div className={`message-sender ${isOwnMessage ? 'sender-own' : ''}`}>{sender}</div>
           <div>{msg.content || ''}</div>
-          <div className="message-timestamp">{timestamp}</div>
+          <div className="message-timestamp">{timestamp}{msg.edited ? ' (modifié)' : ''}</div>
+          {actions}
         </div>
       </div>
     );
@@ -190,12 +360,14 @@ function ChatRoom() {
     if (file.fileType.startsWith('image/')) {
       return (
         <div className="file-preview">
-          <img 
-            src={file.url} 
-            alt={file.fileName || 'Image'} 
-            className="img-fluid rounded" 
-            style={{ maxHeight: '200px' }} 
-          />
+          <a href={file.url} target="_blank" rel="noopener noreferrer">
+            <img 
+              src={file.previewUrl || file.url} 
+              alt={file.fileName || 'Image'} 
+              className="img-fluid rounded" 
+              style={{ maxHeight: '200px' }} 
+            />
+          </a>
           <div className="mt-2 file-name">
             <small>{file.fileName || 'Image'}</small>
           </div>
@@ -231,7 +403,18 @@ function ChatRoom() {
               <h3 className="mb-0">{channel?.title || ''}</h3>
               <p className="mb-0">{channel?.description || ''}</p>
             </div>
-            
+            <Form onSubmit={handleSearch} className="d-flex">
+              <Form.Control
+                type="search"
+                size="sm"
+                value={searchQuery}
+                onChange={(e) => setSearchQuery(e.target.value)}
+                placeholder="Rechercher..."
+              />
+              <Button type="submit" size="sm" variant="outline-primary" className="ms-2">
+                Rechercher
+              </Button>
+            </Form>
           </div>
         </Card.Header>
         
@@ -241,9 +424,47 @@ function ChatRoom() {
           </Alert>
         )}
 
+        {channelClosed && (
+          <Alert variant="info">Le salon est terminé</Alert>
+        )}
+
+        {notifications.map(notification => (
+          <Alert
+            key={notification.id}
+            variant="warning"
+            onClose={() => setNotifications(prev => prev.filter(n => n.id !== notification.id))}
+            dismissible
+          >
+            {notification.sender} vous a mentionné
+            {String(notification.channelId) !== String(channelId) && (
+              <> dans <Link to={`/chat/${notification.channelId}`}>un autre salon</Link></>
+            )}
+            {' : '}{notification.excerpt}
+          </Alert>
+        ))}
+
         <Card.Body>
           <div className="row">
             <div className="col-md-9 mb-3">
+              {searchResults !== null && (
+                <Card className="mb-3">
+                  <Card.Header className="d-flex justify-content-between align-items-center">
+                    {searchResults.length} résultat(s)
+                    <Button size="sm" variant="outline-secondary" onClick={() => setSearchResults(null)}>
+                      Fermer
+                    </Button>
+                  </Card.Header>
+                  <ListGroup variant="flush">
+                    {searchResults.map(result => (
+                      <ListGroup.Item key={result.seq}>
+                        <strong>{result.sender}</strong>{' '}
+                        <small className="text-muted">{new Date(result.timestamp).toLocaleString()}</small>
+                        <div>{result.content}</div>
+                      </ListGroup.Item>
+                    ))}
+                  </ListGroup>
+                </Card>
+              )}
               <div className="chat-container mb-3">
                 {messages.map((msg, index) => renderMessage(msg, index))}
                 <div ref={messagesEndRef} />
@@ -256,7 +477,7 @@ function ChatRoom() {
                     value={newMessage}
                     onChange={(e) => setNewMessage(e.target.value)}
                     placeholder="Tapez votre message..."
-                    disabled={!websocketService.isConnected()}
+                    disabled={channelClosed || !websocketService.isConnected()}
                   />
                   <input
                     type="file"
@@ -269,7 +490,7 @@ function ChatRoom() {
                     variant="outline-secondary"
                     className="ms-2"
                     onClick={() => fileInputRef.current?.click()}
-                    disabled={!websocketService.isConnected()}
+                    disabled={channelClosed || !websocketService.isConnected()}
                   >
                     Fichier
                   </Button>
@@ -277,7 +498,7 @@ function ChatRoom() {
                     type="submit" 
                     variant="primary" 
                     className="ms-2"
-                    disabled={!websocketService.isConnected()}
+                    disabled={channelClosed || !websocketService.isConnected()}
                   >
                     Envoyer
                   </Button>
@@ -3,18 +3,34 @@ import { Client } from '@stomp/stompjs';
 import { useAuth } from '../contexts/AuthContext';
 import { API_URL } from './api';
 
+// Trames qui consomment une séquence du canal (la même que dans l'historique)
+const SEQUENCED_TYPES = ['TEXT', 'FILE', 'EDIT', 'DELETE'];
+
 // Service pour la gestion WebSocket : connexion, messages, fichiers, présence utilisateurs
 class WebSocketService {
     constructor() {
         this.client = null;
         this.subscriptions = new Map();
         this.messageHandlers = new Map();
+        this.userIds = new Map();
+        // Dernière séquence reçue par canal (header seq), et trames reçues pendant un rattrapage
+        // Le header seq numérote toutes les trames du topic et ne sert qu'au rattrapage, l'ordre des messages suit leur champ seq
+        this.lastSeqs = new Map();
+        this.resuming = new Map();
+        // Séquence des messages (TEXT, FILE, EDIT, DELETE) par canal : dernière affichée, messages en avance en attente d'un trou
+        this.messageSeqs = new Map();
+        // Envois sans accusé (message reçu avec notre clientMsgId, en direct ou depuis l'historique, ou trame ACK),
+        // renvoyés à la reconnexion
+        this.pendingSends = new Map();
+        this.gapFillDelay = 1000;
+        // Composants prévenus quand l'utilisateur est mentionné, dans n'importe quel canal
+        this.mentionHandlers = new Set();
         this.reconnectAttempts = 0;
         this.maxReconnectAttempts = 5;
         this.reconnectDelay = 1000; // 1 seconde
         this.allowedImageTypes = ['image/jpeg', 'image/png', 'image/gif'];
         this.allowedDocumentTypes = ['application/pdf'];
-        this.maxFileSize = 5 * 1024 * 1024; // 5MB
+        this.maxFileSize = 1024 * 1024 * 1024; // 1GB (envoi par morceaux)
     }
 
     connect() {
@@ -45,6 +61,11 @@ class WebSocketService {
                 onConnect: () => {
                     console.log('Connected to WebSocket');
                     this.reconnectAttempts = 0;
+                    this.subscribeToErrors();
+                    this.subscribeToAcks();
+                    this.subscribeToReplay();
+                    this.subscribeToMentions();
+                    this.resubscribe();
                     resolve();
                 },
                 onDisconnect: () => {
@@ -75,6 +96,248 @@ class WebSocketService {
         });
     }
 
+    // Erreurs destinées à cette session (ex : RATE_LIMITED, ERROR), transmises au gestionnaire du canal concerné
+    subscribeToErrors() {
+        this.client.subscribe('/user/queue/errors', (message) => {
+            try {
+                const error = JSON.parse(message.body);
+                const handler = this.messageHandlers.get(String(error.channelId));
+                if (handler) {
+                    handler(error);
+                } else {
+                    console.warn('Error frame:', error);
+                }
+            } catch (e) {
+                console.error('Error parsing error frame:', e);
+            }
+        });
+    }
+
+    // Accusé d'un renvoi déjà reçu par le serveur (trame ACK avec la séquence d'origine) : il n'est plus renvoyé
+    subscribeToAcks() {
+        this.client.subscribe('/user/queue/acks', (message) => {
+            try {
+                this.acknowledge(JSON.parse(message.body));
+            } catch (error) {
+                console.error('Error parsing ack:', error);
+            }
+        });
+    }
+
+    // Envoi arrivé au serveur : message (ou accusé) portant notre clientMsgId
+    acknowledge(message) {
+        if (message && message.clientMsgId) {
+            this.pendingSends.delete(message.clientMsgId);
+        }
+    }
+
+    // Trames manquées pendant une coupure, renvoyées par le serveur après /app/chat/{id}/resume
+    subscribeToReplay() {
+        this.client.subscribe('/user/queue/replay', (message) => {
+            try {
+                const replay = JSON.parse(message.body);
+                const key = String(replay.channelId);
+                const handler = this.messageHandlers.get(key);
+                const buffered = this.resuming.get(key) || [];
+                this.resuming.delete(key);
+                if (!handler) {
+                    return;
+                }
+                if (replay.complete) {
+                    replay.frames.forEach(frame => this.dispatch(key, frame, handler));
+                } else {
+                    // Une partie des trames n'est plus en mémoire côté serveur : le composant recharge l'historique
+                    handler({ type: 'RESYNC', channelId: replay.channelId });
+                }
+                this.lastSeqs.set(key, replay.lastSeq);
+                buffered.forEach(({ seq, body }) => this.receive(key, seq, body));
+            } catch (error) {
+                console.error('Error parsing replay:', error);
+            }
+        });
+    }
+
+    // Mentions de l'utilisateur (trames MENTION), quel que soit le canal ouvert
+    subscribeToMentions() {
+        this.client.subscribe('/user/queue/mentions', (message) => {
+            try {
+                const mention = JSON.parse(message.body);
+                this.mentionHandlers.forEach(handler => handler(mention));
+            } catch (error) {
+                console.error('Error parsing mention:', error);
+            }
+        });
+    }
+
+    // Enregistre un gestionnaire de mentions, retourne la fonction qui le retire
+    onMention(handler) {
+        this.mentionHandlers.add(handler);
+        return () => this.mentionHandlers.delete(handler);
+    }
+
+    // Après une reconnexion : réabonnement aux canaux ouverts et demande des trames manquées
+    resubscribe() {
+        this.messageHandlers.forEach((handler, key) => {
+            if (this.subscriptions.has(key)) {
+                return;
+            }
+            const lastSeq = this.lastSeqs.get(key);
+            if (lastSeq !== undefined) {
+                this.resuming.set(key, []);
+            }
+            this.subscribeToChannel(key, this.userIds.get(key), handler);
+            if (lastSeq !== undefined) {
+                this.client.publish({ destination: `/app/chat/${key}/resume`, body: String(lastSeq) });
+            }
+        });
+        // Même identifiant qu'au premier envoi : le serveur ignore ceux qu'il a déjà reçus
+        this.pendingSends.forEach((pending, clientMsgId) => this.publishMessage(pending.channelId, pending.content, clientMsgId));
+    }
+
+    // Trame reçue sur /topic/chat/{id} : mise en attente pendant un rattrapage, ignorée si déjà reçue
+    receive(key, seq, body) {
+        const buffered = this.resuming.get(key);
+        if (buffered) {
+            buffered.push({ seq, body });
+            return;
+        }
+        if (seq !== null) {
+            const lastSeq = this.lastSeqs.get(key);
+            if (lastSeq !== undefined && seq <= lastSeq) {
+                return;
+            }
+            this.lastSeqs.set(key, seq);
+        }
+        const handler = this.messageHandlers.get(key);
+        if (handler) {
+            try {
+                this.dispatch(key, JSON.parse(body), handler);
+            } catch (error) {
+                console.error('Error parsing message:', error);
+                handler(body);
+            }
+        }
+    }
+
+    // Les messages peuvent arriver regroupés dans un tableau (diffusion par lots)
+    // Les modifications et suppressions ont une séquence dans le canal, comme les messages
+    dispatch(key, frame, handler) {
+        const frames = Array.isArray(frame) ? frame : [frame];
+        frames.forEach(item => {
+            if (item && SEQUENCED_TYPES.includes(item.type) && typeof item.seq === 'number') {
+                this.deliverInOrder(key, item, handler);
+            } else {
+                handler(item);
+            }
+        });
+    }
+
+    // Messages transmis dans l'ordre de leur séquence : un doublon est ignoré, un message en avance attend
+    // le comblement du trou (rechargé depuis l'historique après gapFillDelay)
+    deliverInOrder(key, message, handler) {
+        this.acknowledge(message);
+        const state = this.messageSeqs.get(key);
+        if (!state) {
+            // Pas d'historique chargé : ce message sert de point de départ
+            this.messageSeqs.set(key, { last: message.seq, held: new Map(), timer: null });
+            handler(message);
+            return;
+        }
+        if (message.seq <= state.last || state.held.has(message.seq)) {
+            return;
+        }
+        if (message.seq !== state.last + 1) {
+            state.held.set(message.seq, message);
+            if (!state.timer) {
+                state.timer = setTimeout(() => this.fillGap(key), this.gapFillDelay);
+            }
+            return;
+        }
+        state.last = message.seq;
+        handler(message);
+        this.releaseHeld(key, state);
+    }
+
+    // Transmet les messages en attente qui suivent maintenant la dernière séquence
+    releaseHeld(key, state) {
+        const handler = this.messageHandlers.get(key);
+        while (state.held.has(state.last + 1)) {
+            const next = state.held.get(state.last + 1);
+            state.held.delete(next.seq);
+            state.last = next.seq;
+            if (handler) {
+                handler(next);
+            }
+        }
+        if (state.held.size === 0 && state.timer) {
+            clearTimeout(state.timer);
+            state.timer = null;
+        }
+    }
+
+    // Recharge les messages manquants depuis l'historique ; ceux qui n'y sont pas sont abandonnés
+    async fillGap(key) {
+        const state = this.messageSeqs.get(key);
+        if (!state) {
+            return;
+        }
+        state.timer = null;
+        if (state.held.size === 0) {
+            return;
+        }
+        const firstHeld = Math.min(...state.held.keys());
+        try {
+            const page = await this.getMessages(key, firstHeld, firstHeld - state.last - 1);
+            page.messages.forEach(({ seq, message }) => {
+                this.acknowledge(message);
+                if (seq === state.last + 1) {
+                    state.last = seq;
+                    const handler = this.messageHandlers.get(key);
+                    if (handler) {
+                        handler({ ...message, seq });
+                    }
+                }
+            });
+        } catch (error) {
+            console.error('Error filling message gap:', error);
+        }
+        if (this.messageSeqs.get(key) !== state) {
+            return;
+        }
+        if (state.last < firstHeld - 1) {
+            state.last = firstHeld - 1;
+        }
+        this.releaseHeld(key, state);
+        if (state.held.size > 0 && !state.timer) {
+            state.timer = setTimeout(() => this.fillGap(key), this.gapFillDelay);
+        }
+    }
+
+    // Séquence du dernier message chargé depuis l'historique (0 : historique vide)
+    setLastMessageSeq(channelId, seq) {
+        const key = String(channelId);
+        const state = this.messageSeqs.get(key);
+        if (!state) {
+            this.messageSeqs.set(key, { last: seq, held: new Map(), timer: null });
+            return;
+        }
+        state.last = seq;
+        state.held.forEach((message, heldSeq) => {
+            if (heldSeq <= seq) {
+                state.held.delete(heldSeq);
+            }
+        });
+        this.releaseHeld(key, state);
+    }
+
+    clearMessageSeq(key) {
+        const state = this.messageSeqs.get(key);
+        if (state && state.timer) {
+            clearTimeout(state.timer);
+        }
+        this.messageSeqs.delete(key);
+    }
+
     attemptReconnect() {
         if (this.reconnectAttempts < this.maxReconnectAttempts) {
             this.reconnectAttempts++;
@@ -96,6 +359,11 @@ class WebSocketService {
             this.client = null;
             this.subscriptions.clear();
             this.messageHandlers.clear();
+            this.userIds.clear();
+            this.lastSeqs.clear();
+            this.resuming.clear();
+            this.messageSeqs.forEach((state, key) => this.clearMessageSeq(key));
+            this.pendingSends.clear();
             this.reconnectAttempts = 0;
         }
     }
@@ -110,18 +378,14 @@ class WebSocketService {
             });
         }
 
+        const key = String(channelId);
         try {
-            // S'abonner au broadcast du canal
+            // S'abonner au broadcast du canal, chaque trame porte sa séquence dans le header seq
             const subscription = this.client.subscribe(
                 `/topic/chat/${channelId}`,
                 (message) => {
-                    try {
-                        const parsedMessage = JSON.parse(message.body);
-                        onMessage(parsedMessage);
-                    } catch (error) {
-                        console.error('Error parsing message:', error);
-                        onMessage(message.body);
-                    }
+                    const seq = message.headers.seq !== undefined ? Number(message.headers.seq) : null;
+                    this.receive(key, seq, message.body);
                 }
             );
 
@@ -131,8 +395,9 @@ class WebSocketService {
                 body: '' // ou JSON.stringify({ userId }) si tu veux
             });
 
-            this.subscriptions.set(channelId, subscription);
-            this.messageHandlers.set(channelId, onMessage);
+            this.subscriptions.set(key, subscription);
+            this.messageHandlers.set(key, onMessage);
+            this.userIds.set(key, userId);
         } catch (error) {
             console.error('Error subscribing to channel:', error);
             throw error;
@@ -140,11 +405,25 @@ class WebSocketService {
     }
 
     unsubscribeFromChannel(channelId) {
-        const subscription = this.subscriptions.get(channelId);
+        const key = String(channelId);
+        const subscription = this.subscriptions.get(key);
         if (subscription) {
+            // Quitter le canal (la session reste ouverte pour les autres canaux)
+            if (this.client && this.client.connected) {
+                this.client.publish({ destination: `/app/chat/${channelId}/leave`, body: '' });
+            }
             subscription.unsubscribe();
-            this.subscriptions.delete(channelId);
-            this.messageHandlers.delete(channelId);
+            this.subscriptions.delete(key);
+            this.messageHandlers.delete(key);
+            this.userIds.delete(key);
+            this.lastSeqs.delete(key);
+            this.resuming.delete(key);
+            this.clearMessageSeq(key);
+            this.pendingSends.forEach((pending, clientMsgId) => {
+                if (pending.channelId === key) {
+                    this.pendingSends.delete(clientMsgId);
+                }
+            });
         }
     }   
 
@@ -153,29 +432,12 @@ class WebSocketService {
             throw new Error('WebSocket not connected');
         }
 
-        // Méthode plus robuste pour récupérer le cookie jwt
-        const getCookie = (name) => {
-            const value = `; ${document.cookie}`;
-            const parts = value.split(`; ${name}=`);
-            if (parts.length === 2) {
-                return parts.pop().split(';').shift();
-            }
-            return null;
-        };
-
-        const token = getCookie('jwt');
-        console.log('Token récupéré:', token); // Debug
-        console.log('Tous les cookies:', document.cookie); // Debug
-
+        // Identifiant de l'envoi : un renvoi après une coupure n'est pas diffusé deux fois
+        const clientMsgId = crypto.randomUUID();
+        this.pendingSends.set(clientMsgId, { channelId: String(channelId), content });
         return new Promise((resolve, reject) => {
             try {
-                this.client.publish({
-                    destination: `/app/chat/${channelId}/send`,
-                    body: content,
-                    headers: {
-                        'Authorization': token ? `Bearer ${token}` : ''
-                    }
-                });
+                this.publishMessage(channelId, content, clientMsgId);
                 resolve();
             } catch (error) {
                 reject(error);
@@ -183,29 +445,96 @@ class WebSocketService {
         });
     }
 
+    // La session est authentifiée à la connexion (CONNECT), pas besoin de renvoyer le token
+    publishMessage(channelId, content, clientMsgId) {
+        this.client.publish({
+            destination: `/app/chat/${channelId}/send`,
+            headers: { 'client-msg-id': clientMsgId },
+            body: content
+        });
+    }
+
+    // Modification d'un message texte envoyé par l'utilisateur (diffusée comme une trame EDIT)
+    editMessage(channelId, seq, content) {
+        if (!this.client || !this.client.connected) {
+            throw new Error('WebSocket not connected');
+        }
+        this.client.publish({
+            destination: `/app/chat/${channelId}/edit/${seq}`,
+            body: content
+        });
+    }
+
+    // Suppression d'un message envoyé par l'utilisateur (diffusée comme une trame DELETE)
+    deleteMessage(channelId, seq) {
+        if (!this.client || !this.client.connected) {
+            throw new Error('WebSocket not connected');
+        }
+        this.client.publish({
+            destination: `/app/chat/${channelId}/delete/${seq}`,
+            body: ''
+        });
+    }
+
     isConnected() {
         return this.client && this.client.connected;
     }
 
+    // Envoi d'un fichier par morceaux, un envoi interrompu reprend là où il s'était arrêté
     async sendFile(channelId, file) {
         if (!this.client || !this.client.connected) {
             throw new Error('WebSocket not connected');
         }
 
-        // Création d'un FormData pour l'envoi du fichier
-        const formData = new FormData();
-        formData.append('file', file);
+        const uploadsUrl = `${API_URL}/api/chat/${channelId}/uploads`;
+        const uploadKey = `upload:${channelId}:${file.name}:${file.size}:${file.lastModified}`;
 
         try {
-            const response = await fetch(`${API_URL}/api/chat/${channelId}/file`, {
+            // Reprise d'un envoi existant, sinon création d'un nouvel envoi
+            let status = null;
+            const savedUploadId = localStorage.getItem(uploadKey);
+            if (savedUploadId) {
+                const response = await fetch(`${uploadsUrl}/${savedUploadId}`, { credentials: 'include' });
+                if (response.ok) {
+                    status = await response.json();
+                }
+            }
+            if (!status) {
+                const params = new URLSearchParams({ fileName: file.name, fileType: file.type, fileSize: file.size });
+                const response = await fetch(`${uploadsUrl}?${params}`, { method: 'POST', credentials: 'include' });
+                if (!response.ok) {
+                    throw new Error(`Erreur lors de l'envoi du fichier: ${response.statusText}`);
+                }
+                status = await response.json();
+                localStorage.setItem(uploadKey, status.uploadId);
+            }
+
+            // Envoi des morceaux manquants
+            const received = new Set(status.receivedChunks);
+            for (let index = 0; index < status.totalChunks; index++) {
+                if (received.has(index)) {
+                    continue;
+                }
+                const chunk = file.slice(index * status.chunkSize, (index + 1) * status.chunkSize);
+                const response = await fetch(`${uploadsUrl}/${status.uploadId}/chunks/${index}`, {
+                    method: 'PUT',
+                    body: chunk,
+                    headers: { 'Content-Type': 'application/octet-stream' },
+                    credentials: 'include'
+                });
+                if (!response.ok) {
+                    throw new Error(`Erreur lors de l'envoi du fichier: ${response.statusText}`);
+                }
+            }
+
+            const response = await fetch(`${uploadsUrl}/${status.uploadId}/complete`, {
                 method: 'POST',
-                body: formData,
                 credentials: 'include'
             });
-
             if (!response.ok) {
                 throw new Error(`Erreur lors de l'envoi du fichier: ${response.statusText}`);
             }
+            localStorage.removeItem(uploadKey);
         } catch (error) {
             console.error('Erreur lors de l\'envoi du fichier:', error);
             throw error;
@@ -218,42 +547,71 @@ class WebSocketService {
         }
 
         if (file.size > this.maxFileSize) {
-            throw new Error('Fichier trop volumineux. Taille maximale: 5MB');
+            throw new Error('Fichier trop volumineux. Taille maximale: 1GB');
         }
 
         return true;
     }
 
-    // Méthode utilitaire pour afficher un fichier reçu
+    // Méthode utilitaire pour afficher un fichier reçu (le fichier est téléchargé depuis le serveur)
     displayFile(message) {
         if (message.type !== 'FILE') {
             return null;
         }
 
-        const { fileName, fileType, content } = message;
-        const byteCharacters = atob(content);
-        const byteNumbers = new Array(byteCharacters.length);
-        
-        for (let i = 0; i < byteCharacters.length; i++) {
-            byteNumbers[i] = byteCharacters.charCodeAt(i);
-        }
-        
-        const byteArray = new Uint8Array(byteNumbers);
-        const blob = new Blob([byteArray], { type: fileType });
-        
+        const { fileName, fileType, url, blobId } = message;
         return {
-            url: URL.createObjectURL(blob),
+            url: `${API_URL}${url}`,
+            blobId,
             fileName,
             fileType
         };
     }
 
-    async getChannelUsers(channelId) {
-        const response = await fetch(`${API_URL}/api/chat/${channelId}/users`, {
+    // Historique du canal (pagination par séquence : before = séquence du plus ancien message affiché)
+    async getMessages(channelId, before = null, limit = 50) {
+        const params = new URLSearchParams({ limit });
+        if (before !== null) {
+            params.append('before', before);
+        }
+        const response = await fetch(`${API_URL}/api/chat/${channelId}/messages?${params}`, {
             method: 'GET',
             credentials: 'include'
         });
 
+        if (!response.ok) {
+            throw new Error(`Erreur lors du chargement de l'historique: ${response.statusText}`);
+        }
+        return response.json();
+    }
+
+    // Recherche dans l'historique : messages contenant tous les mots de query ({ messages, nextBefore })
+    async searchMessages(channelId, query, before = null, limit = 50) {
+        const params = new URLSearchParams({ q: query, limit });
+        if (before !== null) {
+            params.append('before', before);
+        }
+        const response = await fetch(`${API_URL}/api/chat/${channelId}/search?${params}`, {
+            method: 'GET',
+            credentials: 'include'
+        });
+
+        if (!response.ok) {
+            throw new Error(`Erreur lors de la recherche: ${response.statusText}`);
+        }
+        return response.json();
+    }
+
+    // Présence complète du canal : { version, userIds }, les deltas USER_JOINED / USER_LEFT s'appliquent ensuite
+    async getPresence(channelId) {
+        const response = await fetch(`${API_URL}/api/chat/${channelId}/presence`, {
+            method: 'GET',
+            credentials: 'include'
+        });
+
+        if (!response.ok) {
+            throw new Error(`Erreur lors du chargement de la présence: ${response.statusText}`);
+        }
         return response.json();
     }
 }
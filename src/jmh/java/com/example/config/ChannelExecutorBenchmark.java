@@ -0,0 +1,70 @@
+package com.example.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connexions traitées en parallèle par l'exécuteur du canal clientInboundChannel
+ * Chaque connexion envoie un message dont le handler bloque (requête JPA de addUserToChannel, simulée par un sleep).
+ * platform : pool par défaut de Spring (2 threads par cœur, file illimitée)
+ * virtual : VirtualThreadsConfig.channelExecutor (Java 21 requis : ./gradlew jmh avec un JDK 21)
+ * Le temps mesuré est celui du traitement de toutes les connexions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ChannelExecutorBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"1000", "10000"})
+    private int connections;
+
+    @Param({"20"})
+    private int blockingMs;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @Setup
+    public void setUp() {
+        if ("virtual".equals(threads)) {
+            executor = VirtualThreadsConfig.channelExecutor("clientInboundChannel-");
+        } else {
+            // Valeurs par défaut de TaskExecutorRegistration
+            executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+            executor.setMaxPoolSize(Integer.MAX_VALUE);
+            executor.setQueueCapacity(Integer.MAX_VALUE);
+            executor.setKeepAliveSeconds(60);
+            executor.setThreadNamePrefix("clientInboundChannel-");
+        }
+        executor.initialize();
+    }
+
+    @Benchmark
+    public void handleConnections() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(blockingMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+}
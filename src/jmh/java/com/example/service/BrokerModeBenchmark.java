@@ -0,0 +1,116 @@
+package com.example.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compare la diffusion directe dans le SimpleBroker (mode simple) et la diffusion par shards
+ * Plusieurs threads publient sur de nombreux canaux, chaque invocation attend la livraison
+ * de ses messages à tous les abonnés (trame STOMP encodée par abonné)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class BrokerModeBenchmark {
+
+    private static final int MESSAGES_PER_INVOCATION = 1000;
+
+    @Param({"simple", "sharded"})
+    private String mode;
+
+    @Param({"64"})
+    private int channels;
+
+    @Param({"20"})
+    private int subscribersPerChannel;
+
+    private SimpleBrokerMessageHandler broker;
+    private SimpMessagingTemplate template;
+    private ShardedBrokerDispatcher dispatcher;
+    private final byte[] payload = "{\"type\":\"TEXT\",\"sender\":\"john.doe@example.com\",\"content\":\"Bonjour\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Thread)
+    public static class Producer {
+        final AtomicInteger pending = new AtomicInteger();
+        long nextChannel;
+    }
+
+    @Setup
+    public void setUp() {
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        StompEncoder encoder = new StompEncoder();
+        clientOutbound.subscribe(message -> {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            accessor.setDestination("/topic/chat/0");
+            encoder.encode(accessor.getMessageHeaders(), (byte[]) message.getPayload());
+        });
+
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+        for (int channel = 0; channel < channels; channel++) {
+            for (int subscriber = 0; subscriber < subscribersPerChannel; subscriber++) {
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+                accessor.setSessionId("session-" + channel + "-" + subscriber);
+                accessor.setSubscriptionId("sub-" + channel);
+                accessor.setDestination("/topic/chat/" + channel);
+                broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+            }
+        }
+
+        template = new SimpMessagingTemplate(brokerChannel);
+        dispatcher = "sharded".equals(mode) ? new ShardedBrokerDispatcher(0) : null;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+    public void publish(Producer producer) {
+        producer.pending.set(MESSAGES_PER_INVOCATION);
+        for (int i = 0; i < MESSAGES_PER_INVOCATION; i++) {
+            long channelId = producer.nextChannel++ % channels;
+            Runnable send = () -> {
+                template.send("/topic/chat/" + channelId, message());
+                producer.pending.decrementAndGet();
+            };
+            if (dispatcher != null) {
+                dispatcher.execute(channelId, send);
+            } else {
+                send.run();
+            }
+        }
+        while (producer.pending.get() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private Message<byte[]> message() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        broker.stop();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+}
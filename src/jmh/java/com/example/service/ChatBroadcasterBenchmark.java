@@ -0,0 +1,67 @@
+package com.example.service;
+
+import com.example.cluster.LocalClusterBus;
+import com.example.model.TextFrame;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare la diffusion message par message et la diffusion par lots sur un canal chargé
+ * Le canal de sortie simule le broker : une trame STOMP encodée par abonné pour chaque envoi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChatBroadcasterBenchmark {
+
+    @Param({"false", "true"})
+    private boolean batched;
+
+    @Param({"100"})
+    private int subscribers;
+
+    private ChatBroadcaster broadcaster;
+    private EncodedFrame frame;
+    private long encodedBytes;
+
+    @Setup
+    public void setUp() {
+        StompEncoder encoder = new StompEncoder();
+        MessageChannel brokerChannel = (frame, timeout) -> {
+            for (int i = 0; i < subscribers; i++) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+                accessor.setSubscriptionId("sub-" + i);
+                accessor.setDestination("/topic/chat/1");
+                encodedBytes += encoder.encode(accessor.getMessageHeaders(), (byte[]) frame.getPayload()).length;
+            }
+            return true;
+        };
+        broadcaster = new ChatBroadcaster(new SimpMessagingTemplate(brokerChannel), null, new LocalClusterBus(),
+                new ChannelReplayBuffer(256, DataSize.ofMegabytes(64)), batched, 5, 32);
+        frame = new ChatFrameEncoder(new ObjectMapper()).encode(new TextFrame(
+                1,
+                "john.doe@example.com",
+                "Bonjour à tous, la séance commence dans cinq minutes",
+                System.currentTimeMillis(),
+                null,
+                null));
+    }
+
+    @Benchmark
+    public void broadcast() {
+        broadcaster.broadcast(1L, frame);
+    }
+
+    @TearDown
+    public void tearDown() {
+        broadcaster.shutdown();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latence d'une recherche dans l'index d'un canal de 1 000 000 messages (vocabulaire de 50 000 mots,
+ * fréquences de Zipf : quelques mots très fréquents, beaucoup de mots rares)
+ * rare : un mot rare, common : un mot fréquent, and : un mot fréquent et un mot moyen (intersection)
+ * Les 50 derniers résultats sont demandés, comme une page de l'historique.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class InvertedIndexBenchmark {
+
+    private static final int MESSAGES = 1_000_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int WORDS_PER_MESSAGE = 10;
+
+    @Param({"rare", "common", "and"})
+    private String query;
+
+    private InvertedIndex index;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        // Probabilité du mot de rang r proportionnelle à 1 / r (tirage par la table cumulée)
+        double[] cumulative = new double[VOCABULARY];
+        double total = 0;
+        for (int rank = 0; rank < VOCABULARY; rank++) {
+            total += 1.0 / (rank + 1);
+            cumulative[rank] = total;
+        }
+        index = new InvertedIndex();
+        StringBuilder message = new StringBuilder();
+        for (int seq = 1; seq <= MESSAGES; seq++) {
+            message.setLength(0);
+            for (int i = 0; i < WORDS_PER_MESSAGE; i++) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                message.append(word(rank < 0 ? -rank - 1 : rank)).append(' ');
+            }
+            index.add(seq, message.toString());
+        }
+        text = switch (query) {
+            case "rare" -> word(40_000);
+            case "common" -> word(1);
+            default -> word(1) + " " + word(500);
+        };
+    }
+
+    private static String word(int rank) {
+        return "w" + rank;
+    }
+
+    @Benchmark
+    public long[] search() {
+        return index.search(text, Long.MAX_VALUE, 50);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coût d'un tryAcquire du limiteur de débit sous contention (8 threads)
+ * contended : tous les threads sur la même clé (un utilisateur qui spamme, un canal très actif)
+ * uncontended : une clé par thread (cas courant, un utilisateur par session)
+ * Le débit est assez élevé pour que la plupart des requêtes soient acceptées (chemin avec compareAndSet)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(8)
+public class RateLimiterBenchmark {
+
+    @Param({"contended", "uncontended"})
+    private String keys;
+
+    private RateLimiter limiter;
+    private final AtomicInteger nextKey = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class ThreadKey {
+        long key;
+
+        @Setup
+        public void setUp(RateLimiterBenchmark benchmark) {
+            key = "contended".equals(benchmark.keys) ? 1L : benchmark.nextKey.incrementAndGet();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        limiter = new RateLimiter(1_000_000_000, 1_000);
+    }
+
+    @Benchmark
+    public long tryAcquire(ThreadKey threadKey) {
+        return limiter.tryAcquire(threadKey.key);
+    }
+}
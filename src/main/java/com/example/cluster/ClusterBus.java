@@ -0,0 +1,28 @@
+package com.example.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Bus de messages entre les instances de l'application (diffusion des trames et de la présence)
+ * Un message publié par une instance est reçu directement par toutes les autres instances,
+ * jamais par l'instance qui l'a publié.
+ */
+public interface ClusterBus {
+
+    /**
+     * @return l'identifiant unique de cette instance
+     */
+    String nodeId();
+
+    /**
+     * Publie un message vers les autres instances
+     * @param message Message à publier
+     */
+    void publish(ClusterMessage message);
+
+    /**
+     * Enregistre un récepteur pour les messages des autres instances
+     * @param listener Récepteur
+     */
+    void subscribe(Consumer<ClusterMessage> listener);
+}
@@ -0,0 +1,92 @@
+package com.example.cluster;
+
+/**
+ * Message échangé entre les instances de l'application sur le bus de cluster
+ */
+public sealed interface ClusterMessage {
+
+    /**
+     * @return l'identifiant de l'instance qui a publié le message
+     */
+    String origin();
+
+    /**
+     * Trame à diffuser aux abonnés locaux de /topic/chat/{channelId}
+     * @param origin Instance d'origine
+     * @param channelId Identifiant du canal
+     * @param payload JSON de la trame, déjà encodé
+     */
+    record Frame(String origin, Long channelId, byte[] payload) implements ClusterMessage {
+    }
+
+    /**
+     * Trame écrite dans l'historique de l'instance d'origine : les autres instances l'écrivent sous la même séquence
+     * @param origin Instance d'origine
+     * @param channelId Identifiant du canal
+     * @param seq Séquence de la trame dans le canal
+     * @param timestamp Date de la trame
+     * @param payload JSON de la trame, déjà encodé
+     */
+    record Logged(String origin, Long channelId, long seq, long timestamp, byte[] payload) implements ClusterMessage {
+    }
+
+    /**
+     * Trame à envoyer à un utilisateur sur /user{destination}, par les instances où il a des sessions
+     * @param origin Instance d'origine
+     * @param username Nom de l'utilisateur
+     * @param destination Destination sans le préfixe /user (ex : /queue/mentions)
+     * @param payload JSON de la trame, déjà encodé
+     */
+    record UserFrame(String origin, String username, String destination, byte[] payload) implements ClusterMessage {
+    }
+
+    /**
+     * Un utilisateur a rejoint (ou quitté) un canal sur l'instance d'origine
+     * @param origin Instance d'origine
+     * @param channelId Identifiant du canal
+     * @param userId Identifiant de l'utilisateur
+     * @param joined true si l'utilisateur a rejoint le canal, false s'il l'a quitté
+     */
+    record Presence(String origin, Long channelId, long userId, boolean joined) implements ClusterMessage {
+    }
+
+    /**
+     * Présence complète d'une instance sur un canal, envoyée en réponse à un NodeUp
+     * @param origin Instance d'origine
+     * @param channelId Identifiant du canal
+     * @param userIds Utilisateurs connectés au canal sur l'instance d'origine
+     */
+    record PresenceSnapshot(String origin, Long channelId, long[] userIds) implements ClusterMessage {
+    }
+
+    /**
+     * Les membres d'un canal ont changé (invitation acceptée, canal créé ou supprimé)
+     * @param origin Instance d'origine
+     * @param channelId Identifiant du canal
+     */
+    record Membership(String origin, Long channelId) implements ClusterMessage {
+    }
+
+    /**
+     * Les horaires d'un canal ont changé (canal créé, modifié ou supprimé) : chaque instance le reprogramme
+     * @param origin Instance d'origine
+     * @param channelId Identifiant du canal
+     */
+    record Schedule(String origin, Long channelId) implements ClusterMessage {
+    }
+
+    /**
+     * Le dictionnaire de modération a changé : chaque instance relit son fichier de termes
+     * @param origin Instance d'origine
+     */
+    record Moderation(String origin) implements ClusterMessage {
+    }
+
+    /**
+     * Une instance démarre (up = true) ou s'arrête (up = false)
+     * @param origin Instance concernée
+     * @param up État de l'instance
+     */
+    record Node(String origin, boolean up) implements ClusterMessage {
+    }
+}
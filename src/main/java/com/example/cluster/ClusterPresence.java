@@ -0,0 +1,210 @@
+package com.example.cluster;
+
+import com.example.model.PresenceSnapshot;
+import com.example.util.LongHashSet;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Présence des utilisateurs par canal, fusionnée entre les instances
+ *
+ * Chaque instance garde la liste des utilisateurs connectés à chaque canal pour chaque instance
+ * (la sienne et celles reçues sur le bus). La présence d'un canal est l'union de ces listes :
+ * un utilisateur connecté sur deux instances reste présent tant qu'une des deux connexions existe.
+ *
+ * Chaque changement de l'union incrémente la version de la présence du canal et est signalé aux
+ * PresenceListener (un delta : utilisateur, arrivée ou départ, version). Les versions sont propres
+ * à chaque instance, les deltas ne transitent donc pas sur le bus sous forme de trames.
+ *
+ * Au démarrage, l'instance annonce un NodeUp et les autres instances lui renvoient leur présence complète.
+ * À l'arrêt, elle annonce un NodeDown et les autres instances oublient ses utilisateurs.
+ */
+@Component
+public class ClusterPresence {
+    private final ClusterBus clusterBus;
+    private final Map<Long, ChannelPresence> presence = new ConcurrentHashMap<>();
+    private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Récepteur des changements de présence d'un canal
+     */
+    @FunctionalInterface
+    public interface PresenceListener {
+        /**
+         * Appelé avec le verrou du canal : les deltas d'un canal arrivent dans l'ordre des versions
+         */
+        void onPresenceChanged(Long channelId, long userId, boolean joined, long version);
+    }
+
+    // Présence d'un canal : instance -> utilisateurs connectés sur cette instance
+    private static class ChannelPresence {
+        final Map<String, LongHashSet> nodes = new HashMap<>();
+        long version;
+
+        boolean containsOutside(String nodeId, long userId) {
+            for (Map.Entry<String, LongHashSet> entry : nodes.entrySet()) {
+                if (!entry.getKey().equals(nodeId) && entry.getValue().contains(userId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        LongHashSet union() {
+            LongHashSet users = new LongHashSet();
+            nodes.values().forEach(node -> node.forEach(users::add));
+            return users;
+        }
+    }
+
+    public ClusterPresence(ClusterBus clusterBus) {
+        this.clusterBus = clusterBus;
+        clusterBus.subscribe(this::onClusterMessage);
+    }
+
+    @PostConstruct
+    public void announce() {
+        clusterBus.publish(new ClusterMessage.Node(clusterBus.nodeId(), true));
+    }
+
+    public void addListener(PresenceListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Ajoute un utilisateur connecté sur cette instance et prévient les autres instances
+     */
+    public void join(Long channelId, long userId) {
+        update(channelId, clusterBus.nodeId(), userId, true);
+        clusterBus.publish(new ClusterMessage.Presence(clusterBus.nodeId(), channelId, userId, true));
+    }
+
+    /**
+     * Retire un utilisateur connecté sur cette instance et prévient les autres instances
+     */
+    public void leave(Long channelId, long userId) {
+        update(channelId, clusterBus.nodeId(), userId, false);
+        clusterBus.publish(new ClusterMessage.Presence(clusterBus.nodeId(), channelId, userId, false));
+    }
+
+    /**
+     * @return les utilisateurs présents sur le canal, toutes instances confondues, avec la version correspondante
+     */
+    public PresenceSnapshot snapshot(Long channelId) {
+        ChannelPresence channel = presence.get(channelId);
+        if (channel == null) {
+            return new PresenceSnapshot(0, new long[0]);
+        }
+        synchronized (channel) {
+            return new PresenceSnapshot(channel.version, channel.union().toArray());
+        }
+    }
+
+    /**
+     * Oublie la présence d'un canal terminé, sur cette instance (chaque instance ferme ses canaux)
+     * @param channelId Identifiant du canal
+     */
+    public void evict(Long channelId) {
+        presence.remove(channelId);
+    }
+
+    private void update(Long channelId, String nodeId, long userId, boolean joined) {
+        // Un départ d'un canal inconnu (canal terminé) ne recrée pas sa présence
+        ChannelPresence channel = joined ? presence.computeIfAbsent(channelId, id -> new ChannelPresence()) : presence.get(channelId);
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            boolean elsewhere = channel.containsOutside(nodeId, userId);
+            boolean changed;
+            if (joined) {
+                changed = channel.nodes.computeIfAbsent(nodeId, id -> new LongHashSet()).add(userId);
+            } else {
+                LongHashSet users = channel.nodes.get(nodeId);
+                changed = users != null && users.remove(userId);
+                if (users != null && users.isEmpty()) {
+                    channel.nodes.remove(nodeId);
+                }
+            }
+            // L'union ne change que si l'utilisateur n'est connecté sur aucune autre instance
+            if (changed && !elsewhere) {
+                notifyChange(channelId, channel, userId, joined);
+            }
+        }
+    }
+
+    // Remplace les utilisateurs d'une instance et signale les différences de l'union
+    private void replaceNode(Long channelId, ChannelPresence channel, String nodeId, LongHashSet users) {
+        synchronized (channel) {
+            LongHashSet before = channel.union();
+            if (users.isEmpty()) {
+                channel.nodes.remove(nodeId);
+            } else {
+                channel.nodes.put(nodeId, users);
+            }
+            LongHashSet after = channel.union();
+            before.forEach(userId -> {
+                if (!after.contains(userId)) {
+                    notifyChange(channelId, channel, userId, false);
+                }
+            });
+            after.forEach(userId -> {
+                if (!before.contains(userId)) {
+                    notifyChange(channelId, channel, userId, true);
+                }
+            });
+        }
+    }
+
+    private void notifyChange(Long channelId, ChannelPresence channel, long userId, boolean joined) {
+        channel.version++;
+        for (PresenceListener listener : listeners) {
+            listener.onPresenceChanged(channelId, userId, joined, channel.version);
+        }
+    }
+
+    private void onClusterMessage(ClusterMessage message) {
+        if (message instanceof ClusterMessage.Presence update) {
+            update(update.channelId(), update.origin(), update.userId(), update.joined());
+        } else if (message instanceof ClusterMessage.PresenceSnapshot snapshot) {
+            LongHashSet users = new LongHashSet(snapshot.userIds().length);
+            for (long userId : snapshot.userIds()) {
+                users.add(userId);
+            }
+            ChannelPresence channel = presence.computeIfAbsent(snapshot.channelId(), id -> new ChannelPresence());
+            replaceNode(snapshot.channelId(), channel, snapshot.origin(), users);
+        } else if (message instanceof ClusterMessage.Node node) {
+            if (node.up()) {
+                sendSnapshots();
+            } else {
+                presence.forEach((channelId, channel) -> replaceNode(channelId, channel, node.origin(), new LongHashSet()));
+            }
+        }
+    }
+
+    // Réponse à une nouvelle instance : présence locale de chaque canal
+    private void sendSnapshots() {
+        presence.forEach((channelId, channel) -> {
+            long[] local;
+            synchronized (channel) {
+                LongHashSet users = channel.nodes.get(clusterBus.nodeId());
+                local = users != null ? users.toArray() : new long[0];
+            }
+            if (local.length > 0) {
+                clusterBus.publish(new ClusterMessage.PresenceSnapshot(clusterBus.nodeId(), channelId, local));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clusterBus.publish(new ClusterMessage.Node(clusterBus.nodeId(), false));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.cluster;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Bus d'une instance seule (chat.cluster.bus=local) : aucun message ne sort de l'instance
+ */
+public class LocalClusterBus implements ClusterBus {
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterMessage> listener) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.cluster;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Bus en mémoire (chat.cluster.bus=loopback) : relie les instances démarrées dans la même JVM
+ * Utilisé pour les tests multi-instances, un message est remis directement (un seul saut)
+ * aux récepteurs des autres instances, sur le thread qui publie.
+ */
+public class LoopbackClusterBus implements ClusterBus {
+
+    // Toutes les instances de la JVM partagent le même hub
+    private static final List<LoopbackClusterBus> HUB = new CopyOnWriteArrayList<>();
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<ClusterMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    public LoopbackClusterBus() {
+        HUB.add(this);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        for (LoopbackClusterBus node : HUB) {
+            if (node != this) {
+                node.listeners.forEach(listener -> listener.accept(message));
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterMessage> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Retire l'instance du hub (arrêt de l'instance)
+     */
+    public void close() {
+        HUB.remove(this);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.config;
+
+import com.example.cluster.ClusterBus;
+import com.example.cluster.LocalClusterBus;
+import com.example.cluster.LoopbackClusterBus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration du bus de cluster (chat.cluster.bus)
+ * - local : une seule instance (par défaut)
+ * - loopback : instances reliées en mémoire dans la même JVM (tests)
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.cluster.bus", havingValue = "local", matchIfMissing = true)
+    public ClusterBus localClusterBus() {
+        return new LocalClusterBus();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "chat.cluster.bus", havingValue = "loopback")
+    public ClusterBus loopbackClusterBus() {
+        return new LoopbackClusterBus();
+    }
+}
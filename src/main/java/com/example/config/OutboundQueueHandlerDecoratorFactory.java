@@ -0,0 +1,124 @@
+package com.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Donne à chaque session WebSocket une file d'envoi bornée (voir OutboundQueueSession)
+ *
+ * Un navigateur lent ne fait plus grossir la mémoire du serveur : au-delà de chat.ws.outbound-queue-size
+ * trames ou chat.ws.send-buffer-size octets en attente, la politique chat.ws.overflow-policy s'applique
+ * (drop-oldest-text, drop-presence-first ou disconnect). Les compteurs de trames jetées et de sessions
+ * fermées sont exposés dans /admin/metrics/outbound.
+ *
+ * Les files sont vidées par au plus chat.ws.sender-threads threads (une session attend son tour si tous sont
+ * occupés par des clients lents), ou par des threads virtuels avec spring.threads.virtual.enabled=true.
+ */
+@Component
+public class OutboundQueueHandlerDecoratorFactory implements WebSocketHandlerDecoratorFactory {
+    private final OutboundQueueSession.OverflowPolicy policy;
+    private final int maxMessages;
+    private final int maxBytes;
+    private final long sendTimeLimitMs;
+
+    private final ExecutorService sender;
+
+    private final LongAdder droppedText = new LongAdder();
+    private final LongAdder droppedPresence = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    public OutboundQueueHandlerDecoratorFactory(
+            @Value("${chat.ws.overflow-policy:drop-oldest-text}") String policy,
+            @Value("${chat.ws.outbound-queue-size:256}") int maxMessages,
+            @Value("${chat.ws.send-buffer-size:512KB}") DataSize sendBufferSize,
+            @Value("${chat.ws.send-time-limit:10s}") Duration sendTimeLimit,
+            @Value("${chat.ws.sender-threads:64}") int senderThreads,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.policy = OutboundQueueSession.OverflowPolicy.valueOf(policy.toUpperCase().replace('-', '_'));
+        this.maxMessages = maxMessages;
+        this.maxBytes = (int) sendBufferSize.toBytes();
+        this.sendTimeLimitMs = sendTimeLimit.toMillis();
+
+        if (virtualThreads) {
+            ThreadPoolTaskExecutor executor = VirtualThreadsConfig.channelExecutor("chat-ws-sender-");
+            executor.initialize();
+            this.sender = executor.getThreadPoolExecutor();
+        } else {
+            // Une session n'a qu'une tâche d'envoi à la fois : la file d'attente est bornée par le nombre de sessions
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "chat-ws-sender-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.sender = pool;
+        }
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(new OutboundQueueSession(
+                        session, OutboundQueueHandlerDecoratorFactory.this, sender, policy, maxMessages, maxBytes, sendTimeLimitMs));
+            }
+        };
+    }
+
+    void recordDrop(OutboundQueueSession.FrameKind kind) {
+        if (kind == OutboundQueueSession.FrameKind.PRESENCE) {
+            droppedPresence.increment();
+        } else {
+            droppedText.increment();
+        }
+    }
+
+    void recordDisconnect() {
+        disconnects.increment();
+    }
+
+    /**
+     * @return les compteurs de la file d'envoi : politique, trames jetées et sessions fermées
+     */
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "policy", policy.name(),
+                "droppedText", droppedText.sum(),
+                "droppedPresence", droppedPresence.sum(),
+                "disconnects", disconnects.sum()
+        );
+    }
+
+    public long getSendTimeLimitMs() {
+        return sendTimeLimitMs;
+    }
+
+    public int getSendBufferSizeBytes() {
+        return maxBytes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+}
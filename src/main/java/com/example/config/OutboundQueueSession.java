@@ -0,0 +1,214 @@
+package com.example.config;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session WebSocket avec une file d'envoi bornée (nombre de trames et octets)
+ *
+ * Les trames sont envoyées par un thread d'envoi dédié à la file : le thread du broker ne fait que
+ * les ajouter à la file et n'attend jamais un client lent. Quand la file est pleine, la politique
+ * de la session choisit quoi jeter (voir OverflowPolicy). Si rien ne peut être jeté, ou si un envoi
+ * dure plus que la limite de temps, la session est fermée (SESSION_NOT_RELIABLE).
+ */
+class OutboundQueueSession extends WebSocketSessionDecorator {
+
+    /**
+     * Que faire quand la file d'envoi d'une session est pleine
+     */
+    enum OverflowPolicy {
+        // Jette les plus anciens messages de chat (TEXT) en attente
+        DROP_OLDEST_TEXT(FrameKind.TEXT),
+        // Jette d'abord les trames de présence (les clients rechargent la présence), puis les messages de chat
+        DROP_PRESENCE_FIRST(FrameKind.PRESENCE, FrameKind.TEXT),
+        // Ferme la session
+        DISCONNECT;
+
+        private final FrameKind[] droppable;
+
+        OverflowPolicy(FrameKind... droppable) {
+            this.droppable = droppable;
+        }
+    }
+
+    // Nature d'une trame, lue dans le champ "type" (toujours en premier dans nos trames JSON)
+    enum FrameKind {
+        TEXT, PRESENCE, OTHER;
+
+        private static final String MESSAGE_COMMAND = "MESSAGE\n";
+        private static final String TYPE_PREFIX = "{\"type\":\"";
+
+        static FrameKind of(WebSocketMessage<?> message) {
+            if (!(message instanceof TextMessage text)) {
+                return OTHER;
+            }
+            String frame = text.getPayload();
+            if (!frame.startsWith(MESSAGE_COMMAND)) {
+                return OTHER;
+            }
+            int body = frame.indexOf("\n\n");
+            if (body < 0) {
+                return OTHER;
+            }
+            body += 2;
+            // Lot de messages (diffusion par lots, voir ChatBroadcaster)
+            if (frame.startsWith("[", body)) {
+                return TEXT;
+            }
+            if (!frame.startsWith(TYPE_PREFIX, body)) {
+                return OTHER;
+            }
+            int type = body + TYPE_PREFIX.length();
+            if (frame.startsWith("TEXT\"", type)) {
+                return TEXT;
+            }
+            if (frame.startsWith("PRESENCE\"", type) || frame.startsWith("USER_JOINED\"", type) || frame.startsWith("USER_LEFT\"", type)) {
+                return PRESENCE;
+            }
+            return OTHER;
+        }
+    }
+
+    private record Entry(WebSocketMessage<?> message, FrameKind kind, int size) {
+    }
+
+    private final OutboundQueueHandlerDecoratorFactory owner;
+    private final Executor sender;
+    private final OverflowPolicy policy;
+    private final int maxMessages;
+    private final int maxBytes;
+    private final long sendTimeLimitNanos;
+
+    // Protégés par le verrou de la session
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private int queuedBytes;
+    private boolean draining;
+    private boolean closed;
+
+    // Début de l'envoi en cours (0 si aucun envoi)
+    private volatile long sendStartNanos;
+
+    OutboundQueueSession(WebSocketSession delegate, OutboundQueueHandlerDecoratorFactory owner, Executor sender,
+                         OverflowPolicy policy, int maxMessages, int maxBytes, long sendTimeLimitMs) {
+        super(delegate);
+        this.owner = owner;
+        this.sender = sender;
+        this.policy = policy;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+    }
+
+    /**
+     * Ajoute la trame à la file sans attendre l'envoi
+     * @throws SessionLimitExceededException si la session doit être fermée (la fermeture est faite par Spring)
+     */
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        boolean startDrain;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            long start = sendStartNanos;
+            if (start != 0 && System.nanoTime() - start > sendTimeLimitNanos) {
+                throw limitExceeded("Envoi bloqué depuis plus de " + TimeUnit.NANOSECONDS.toMillis(sendTimeLimitNanos) + " ms");
+            }
+
+            Entry entry = new Entry(message, FrameKind.of(message), message.getPayloadLength());
+            queue.add(entry);
+            queuedBytes += entry.size();
+            while (queue.size() > maxMessages || queuedBytes > maxBytes) {
+                if (!dropOne()) {
+                    throw limitExceeded("File d'envoi pleine (" + queue.size() + " trames, " + queuedBytes + " octets)");
+                }
+            }
+
+            startDrain = !draining;
+            draining = true;
+        }
+        if (startDrain) {
+            sender.execute(this::drain);
+        }
+    }
+
+    // Jette la plus ancienne trame jetable selon la politique, false si aucune
+    private boolean dropOne() {
+        for (FrameKind kind : policy.droppable) {
+            Iterator<Entry> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.kind() == kind) {
+                    iterator.remove();
+                    queuedBytes -= entry.size();
+                    owner.recordDrop(kind);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private SessionLimitExceededException limitExceeded(String reason) {
+        closed = true;
+        queue.clear();
+        queuedBytes = 0;
+        owner.recordDisconnect();
+        return new SessionLimitExceededException(reason, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    // Envoie les trames en attente, une seule exécution à la fois par session
+    private void drain() {
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = queue.poll();
+                if (entry == null || closed) {
+                    draining = false;
+                    return;
+                }
+                queuedBytes -= entry.size();
+                sendStartNanos = System.nanoTime();
+            }
+            try {
+                getDelegate().sendMessage(entry.message());
+            } catch (IOException | RuntimeException e) {
+                // Session fermée ou en erreur : la déconnexion sera traitée par Spring
+                synchronized (this) {
+                    closed = true;
+                    queue.clear();
+                    queuedBytes = 0;
+                    draining = false;
+                }
+                return;
+            } finally {
+                sendStartNanos = 0;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        synchronized (this) {
+            closed = true;
+            queue.clear();
+            queuedBytes = 0;
+        }
+        super.close(status);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.config;
+
+import com.example.service.JwtService;
+import com.example.service.UserService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authentification des sessions STOMP
+ *
+ * Le token JWT (header Authorization de la trame CONNECT) est vérifié une seule fois, à la connexion.
+ * L'utilisateur authentifié devient le Principal de la session et son identifiant est gardé dans les
+ * attributs de la session : les trames SEND suivantes n'ont plus de token à décoder.
+ * Une connexion sans token valide est refusée (trame ERROR), sauf si la session a déjà été authentifiée
+ * par le cookie lors du handshake HTTP (JwtAuthenticationFilter).
+ */
+@Component
+@RequiredArgsConstructor
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    // Attribut de session contenant l'identifiant de l'utilisateur
+    public static final String USER_ID_ATTRIBUTE = "userId";
+
+    private final JwtService jwtService;
+    private final UserService userService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+
+        Principal user = authenticate(accessor.getFirstNativeHeader("Authorization"));
+        if (user == null) {
+            user = accessor.getUser();
+        }
+        if (user == null) {
+            throw new MessagingException(message, "Authentification requise");
+        }
+
+        accessor.setUser(user);
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null) {
+            attributes.put(USER_ID_ATTRIBUTE, userService.getUserId(user.getName()));
+        }
+        return message;
+    }
+
+    // Vérifie le token (signature et expiration) et construit l'utilisateur, null si le token est absent ou invalide
+    private Principal authenticate(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            Claims claims = jwtService.extractAllClaims(authHeader.substring(7));
+            List<?> roles = claims.get("roles", List.class);
+            List<GrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                    .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                    .toList();
+            return new UsernamePasswordAuthenticationToken(claims.getSubject(), null, authorities);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
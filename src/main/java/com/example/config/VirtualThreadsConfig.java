@@ -0,0 +1,53 @@
+package com.example.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Mode threads virtuels (spring.threads.virtual.enabled=true, Java 21 requis à l'exécution)
+ *
+ * La propriété Spring Boot passe déjà Tomcat (traitement des requêtes MVC) et l'exécuteur des méthodes
+ * @Async sur des threads virtuels ; @Async n'est activé que dans ce mode (voir AsyncConfig) : l'envoi des emails
+ * (voir EmailService) se fait alors en arrière-plan. Les canaux STOMP clientInboundChannel
+ * et clientOutboundChannel sont configurés dans WebSocketConfig avec channelExecutor : les handlers bloquants
+ * (addUserToChannel et ses requêtes JPA) n'occupent plus un thread du pool pendant leurs entrées/sorties.
+ *
+ * Le projet reste compilé pour Java 17 : sans la propriété, rien ne change (pools de threads classiques,
+ * emails envoyés pendant la requête, dont l'échec est renvoyé au client).
+ */
+@Configuration
+public class VirtualThreadsConfig {
+
+    // Méthodes @Async exécutées sur des threads virtuels, seulement en mode threads virtuels
+    @Configuration
+    @EnableAsync
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    static class AsyncConfig {
+    }
+
+    /**
+     * Exécuteur d'un canal STOMP sur threads virtuels
+     * Spring 6.1 n'accepte qu'un ThreadPoolTaskExecutor pour les canaux : sans file d'attente (SynchronousQueue),
+     * chaque tâche démarre un nouveau thread virtuel si aucun n'est libre, ceux qui restent inactifs 1 s disparaissent.
+     * @param threadNamePrefix Préfixe du nom des threads
+     * @return l'exécuteur, à initialiser par Spring (bean du canal)
+     */
+    public static ThreadPoolTaskExecutor channelExecutor(String threadNamePrefix) {
+        VirtualThreadTaskExecutor virtualThreads;
+        try {
+            virtualThreads = new VirtualThreadTaskExecutor(threadNamePrefix);
+        } catch (UnsupportedOperationException e) {
+            throw new IllegalStateException("spring.threads.virtual.enabled=true nécessite Java 21 ou plus", e);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(virtualThreads.getVirtualThreadFactory());
+        executor.setCorePoolSize(0);
+        executor.setMaxPoolSize(Integer.MAX_VALUE);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(1);
+        return executor;
+    }
+}
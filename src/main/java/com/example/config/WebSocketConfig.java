@@ -1,6 +1,10 @@
 package com.example.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -24,6 +28,26 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${URL_FRONTEND}")
     private String urlFrontend;
 
+    // simple : diffusion sur le thread appelant, sharded : un thread par groupe de canaux (voir ShardedBrokerDispatcher)
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    // Authentifie la session une seule fois, sur la trame CONNECT
+    @Autowired
+    private StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    // File d'envoi bornée par session (clients lents)
+    @Autowired
+    private OutboundQueueHandlerDecoratorFactory outboundQueueHandlerDecoratorFactory;
+
+    // Canaux clientInboundChannel et clientOutboundChannel sur threads virtuels (voir VirtualThreadsConfig)
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Taille maximale d'un message reçu d'un client
+    @Value("${chat.ws.message-size-limit:64KB}")
+    private DataSize messageSizeLimit;
+
     /**
      * Configure le broker de messages STOMP.
      * Définit deux types de destinations :
@@ -44,7 +68,14 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
         // Préfixe pour les destinations où les clients peuvent s'abonner
         // Les messages envoyés à /topic/* seront diffusés aux clients abonnés
-        config.enableSimpleBroker("/topic");
+        // /queue/* sert aux messages destinés à un seul utilisateur (/user/queue/errors)
+        config.enableSimpleBroker("/topic", "/queue");
+
+        // En mode sharded, les messages d'un canal sont publiés dans l'ordre par le shard du canal :
+        // on conserve cet ordre jusqu'à chaque session (sinon le pool clientOutboundChannel peut les mélanger)
+        if ("sharded".equals(brokerMode)) {
+            config.setPreservePublishOrder(true);
+        }
     }
 
     /**
@@ -66,4 +97,42 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOrigins(urlFrontend)  // Configuration CORS pour le frontend
                 .withSockJS();  // Support des navigateurs plus anciens via SockJS
     }
-} 
\ No newline at end of file
+
+    /**
+     * Configure le canal des messages reçus des clients.
+     * L'intercepteur vérifie le JWT à la connexion (CONNECT) et associe l'utilisateur à la session,
+     * les messages suivants utilisent ce Principal sans revérifier le token.
+     * En mode threads virtuels, chaque message est traité sur son propre thread virtuel.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor);
+        if (virtualThreads) {
+            registration.taskExecutor(VirtualThreadsConfig.channelExecutor("clientInboundChannel-"));
+        }
+    }
+
+    /**
+     * Configure le canal des messages envoyés aux clients (threads virtuels si activés)
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.taskExecutor(VirtualThreadsConfig.channelExecutor("clientOutboundChannel-"));
+        }
+    }
+
+    /**
+     * Configure le transport WebSocket.
+     * Chaque session a une file d'envoi bornée (chat.ws.outbound-queue-size, chat.ws.send-buffer-size) et une
+     * limite de temps d'envoi (chat.ws.send-time-limit) : un client lent perd des trames ou est déconnecté
+     * selon chat.ws.overflow-policy, au lieu de faire grossir la mémoire du serveur.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setMessageSizeLimit((int) messageSizeLimit.toBytes());
+        registration.setSendTimeLimit((int) outboundQueueHandlerDecoratorFactory.getSendTimeLimitMs());
+        registration.setSendBufferSizeLimit(outboundQueueHandlerDecoratorFactory.getSendBufferSizeBytes());
+        registration.addDecoratorFactory(outboundQueueHandlerDecoratorFactory);
+    }
+}
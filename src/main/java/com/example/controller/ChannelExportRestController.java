@@ -0,0 +1,64 @@
+package com.example.controller;
+
+import com.example.service.ChatExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+/**
+ * Contrôleur de l'archivage des canaux pour les administrateurs (RestController API)
+ * Routes sous /admin, réservées au rôle ADMIN
+ */
+@RestController
+@RequestMapping("/admin/channels")
+@RequiredArgsConstructor
+public class ChannelExportRestController {
+
+    private static final String GZIP = "application/gzip";
+
+    private final ChatExportService chatExportService;
+
+    /**
+     * Exporte l'historique complet d'un canal terminé (NDJSON compressé en gzip, une trame par ligne)
+     * La réponse est écrite en flux par le pool des exports (voir ChatExportService), avec sa propre limite de durée
+     * @param id Identifiant du canal
+     * @param response Réponse HTTP, écrite par le pool des exports
+     * @return le fichier channel-{id}.ndjson.gz, ou l'erreur si le canal n'existe pas ou n'est pas terminé
+     */
+    @GetMapping("/{id}/export")
+    public WebAsyncTask<ResponseEntity<?>> export(@PathVariable Long id, HttpServletResponse response) {
+        return new WebAsyncTask<>(chatExportService.getTimeoutMs(), chatExportService.getExecutor(), () -> {
+            try {
+                chatExportService.checkExportable(id);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+            response.setContentType(GZIP);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename("channel-" + id + ".ndjson.gz").build().toString());
+            chatExportService.export(id, response.getOutputStream());
+            // Réponse déjà écrite
+            return null;
+        });
+    }
+
+    /**
+     * Tous les exports autorisés sont en cours : le client réessaiera plus tard
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<?> handleRejected(TaskRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "60")
+                .body("Trop d'exports en cours, réessayez plus tard");
+    }
+}
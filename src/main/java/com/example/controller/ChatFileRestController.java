@@ -0,0 +1,296 @@
+package com.example.controller;
+
+import com.example.model.UploadStatus;
+import com.example.repository.BlobStore;
+import com.example.service.ChatRateLimiter;
+import com.example.service.ChatWebSocketService;
+import com.example.service.ChunkedUploadService;
+import com.example.service.FileTypes;
+import com.example.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Contrôleur pour l'envoi et le téléchargement des fichiers de chat (RestController API)
+ * - envoi par morceaux : POST /uploads, PUT /uploads/{uploadId}/chunks/{index}, POST /uploads/{uploadId}/complete
+ * - téléchargement : quand le connecteur Tomcat le permet (sendfile), les fichiers sont envoyés directement
+ *   depuis le disque par le noyau, sans passer par la mémoire de la JVM ; sinon ils sont copiés dans la réponse
+ *   par FileChannel.transferTo. Les requêtes partielles (header Range) sont supportées
+ */
+@RestController
+@RequestMapping("/api/chat/{channelId}")
+@RequiredArgsConstructor
+public class ChatFileRestController {
+    // Attributs de requête de Tomcat pour l'envoi par sendfile (la fin est exclue)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // En dessous, la copie coûte moins que la mise en place de sendfile (même seuil que le DefaultServlet de Tomcat)
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private final BlobStore blobStore;
+    private final ChatWebSocketService chatWebSocketService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final UserService userService;
+    private final ChatRateLimiter chatRateLimiter;
+
+    /**
+     * Démarre un envoi de fichier par morceaux
+     * @param channelId Identifiant du canal
+     * @param fileName Nom du fichier
+     * @param fileType Type du fichier
+     * @param fileSize Taille totale du fichier
+     * @return l'état de l'envoi (identifiant, taille et nombre de morceaux)
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<?> initUpload(
+            @PathVariable Long channelId,
+            @RequestParam String fileName,
+            @RequestParam String fileType,
+            @RequestParam long fileSize) throws IOException {
+        try {
+            String username = currentUsername();
+            Long userId = userService.getUserId(username);
+            chatWebSocketService.checkChannelAccess(channelId, userId);
+
+            // Limite de débit des envois de fichiers (un jeton par fichier, les morceaux ne sont pas comptés)
+            long retryAfterMs = chatRateLimiter.tryAcquire(ChatRateLimiter.Route.UPLOAD, userId, channelId);
+            if (retryAfterMs > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMs + 999) / 1000))
+                        .body("Trop d'envois de fichiers, réessayez dans " + retryAfterMs + " ms");
+            }
+            return ResponseEntity.ok(chunkedUploadService.init(channelId, username, fileName, fileType, fileSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Envoie un morceau de fichier (corps brut de la requête)
+     * @param channelId Identifiant du canal
+     * @param uploadId Identifiant de l'envoi
+     * @param index Numéro du morceau
+     * @param request Requête HTTP, lue en flux
+     * @return l'état de l'envoi (409 si le morceau est déjà en cours d'écriture ou si l'envoi est en cours de finalisation)
+     */
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable Long channelId,
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            HttpServletRequest request) throws IOException {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.writeChunk(channelId, currentUsername(), uploadId, index, request.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Récupère l'état d'un envoi, pour reprendre un envoi interrompu
+     * @param channelId Identifiant du canal
+     * @param uploadId Identifiant de l'envoi
+     * @return l'état de l'envoi avec les morceaux déjà reçus
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<UploadStatus> getUpload(@PathVariable Long channelId, @PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.getStatus(channelId, currentUsername(), uploadId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Termine un envoi : le fichier est diffusé au canal
+     * @param channelId Identifiant du canal
+     * @param uploadId Identifiant de l'envoi
+     * @return la réponse HTTP
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable Long channelId, @PathVariable String uploadId) throws IOException {
+        try {
+            chunkedUploadService.complete(channelId, currentUsername(), uploadId);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Télécharge un fichier (entier ou une plage d'octets)
+     * Le fichier doit avoir été publié dans ce canal (404 sinon, comme un fichier inconnu)
+     * @param channelId Identifiant du canal
+     * @param blobId Identifiant du fichier (SHA-256)
+     * @param range Header Range (optionnel), par exemple bytes=0-1023
+     * @param ifNoneMatch Header If-None-Match (optionnel)
+     * @param request Requête HTTP (envoi par sendfile)
+     * @param response Réponse HTTP
+     */
+    @GetMapping("/files/{blobId}")
+    public void downloadFile(
+            @PathVariable Long channelId,
+            @PathVariable String blobId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        try {
+            chatWebSocketService.checkChannelAccess(channelId, userService.getUserId(currentUsername()));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, e.getMessage());
+            return;
+        }
+
+        Optional<Path> blob = blobStore.isReferenced(blobId, channelId) ? blobStore.find(blobId) : Optional.empty();
+        if (blob.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        streamFile(blob.get(), "\"" + blobId + "\"", range, ifNoneMatch, request, response);
+    }
+
+    /**
+     * Télécharge la miniature d'une image (générée en arrière-plan après l'envoi)
+     * @param channelId Identifiant du canal
+     * @param blobId Identifiant de l'image d'origine
+     * @param range Header Range (optionnel)
+     * @param ifNoneMatch Header If-None-Match (optionnel)
+     * @param request Requête HTTP (envoi par sendfile)
+     * @param response Réponse HTTP
+     */
+    @GetMapping("/files/{blobId}/thumbnail")
+    public void downloadThumbnail(
+            @PathVariable Long channelId,
+            @PathVariable String blobId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        try {
+            chatWebSocketService.checkChannelAccess(channelId, userService.getUserId(currentUsername()));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, e.getMessage());
+            return;
+        }
+
+        Optional<Path> thumbnail = blobStore.isReferenced(blobId, channelId) ? blobStore.findThumbnail(blobId) : Optional.empty();
+        if (thumbnail.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        streamFile(thumbnail.get(), "\"" + blobId + "-thumbnail\"", range, ifNoneMatch, request, response);
+    }
+
+    // Envoie un fichier (entier ou une plage) depuis le disque, le contenu d'un blob ne change jamais
+    private static void streamFile(Path path, String etag, String range, String ifNoneMatch,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag.equals(ifNoneMatch)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = file.size();
+            long start = 0;
+            long end = size - 1;
+
+            if (range != null) {
+                long[] bounds = parseRange(range, size);
+                if (bounds == null) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+
+            response.setContentType(detectContentType(file));
+            response.setContentLengthLong(end - start + 1);
+
+            // Envoyé par le connecteur au retour du contrôleur (Tomcat rouvre le fichier)
+            if (end - start + 1 >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+                return;
+            }
+
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += file.transferTo(position, end - position + 1, out);
+            }
+        }
+    }
+
+    // Utilisateur courant (alimenté par JwtAuthenticationFilter)
+    private static String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : "anonymous";
+    }
+
+    // Le type est déduit de la signature du fichier (seuls les types autorisés sont stockés)
+    private static String detectContentType(FileChannel file) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(FileTypes.SIGNATURE_LENGTH);
+        file.read(head, 0);
+        String contentType = FileTypes.detect(head.array(), head.position());
+        return contentType != null ? contentType : "application/octet-stream";
+    }
+
+    /**
+     * Analyse un header Range avec une seule plage : bytes=debut-fin, bytes=debut- ou bytes=-suffixe
+     * @return les bornes incluses [debut, fin], ou null si la plage est invalide
+     */
+    private static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), size - 1);
+            }
+            return start <= end && start < size ? new long[] {start, end} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package com.example.controller;
 
+import com.example.config.StompAuthChannelInterceptor;
+import com.example.service.ChatHistoryService;
+import com.example.service.ChatRateLimiter;
+import com.example.service.ChatSearchService;
 import com.example.service.ChatWebSocketService;
+import com.example.service.ModerationFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.handler.annotation.support.DestinationVariableMethodArgumentResolver;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
@@ -19,12 +27,13 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.security.Principal;
 import java.util.Map;
 import com.example.service.UserService;
-import com.example.service.JwtService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import com.example.event.WebSocketEventListener;
 
 /**
  * Contrôleur pour la gestion des WebSocket de chat (Controller WebSocket + RestController API)
@@ -34,63 +43,175 @@ import com.example.event.WebSocketEventListener;
 @RequiredArgsConstructor
 public class ChatWebSocketController {
     private final ChatWebSocketService chatWebSocketService;
+    private final ChatHistoryService chatHistoryService;
+    private final ChatSearchService chatSearchService;
     private final UserService userService;
-    private final JwtService jwtService;
+    private final ChatRateLimiter chatRateLimiter;
+    private final ModerationFilter moderationFilter;
     private final SimpMessagingTemplate messagingTemplate;
-    private final WebSocketEventListener webSocketEventListener;
 
     /**
-     * Envoie un message de chat
+     * Envoie un message de chat (l'utilisateur doit être membre du canal)
+     * L'expéditeur est l'utilisateur authentifié à la connexion STOMP (voir StompAuthChannelInterceptor)
      * @param channelId Identifiant du canal
      * @param message Message de chat
+     * @param clientMsgId Identifiant du message choisi par le client (header client-msg-id), pour ignorer ses renvois
+     * @param principal Utilisateur de la session WebSocket
      * @param headerAccessor Accesseur pour les headers WebSocket
      */
     @MessageMapping("/chat/{channelId}/send")
     public void sendMessage(
             @DestinationVariable Long channelId,
             @Payload String message,
+            @Header(name = "client-msg-id", required = false) String clientMsgId,
+            Principal principal,
             SimpMessageHeaderAccessor headerAccessor) {
-        
-        // Récupérer le token depuis les headers WebSocket
-        String authHeader = headerAccessor.getFirstNativeHeader("Authorization");
-        String username = "anonymous";
-        
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            try {
-                // Décoder le JWT pour obtenir le username
-                username = jwtService.extractUsername(token);
-            } catch (Exception e) {
-                System.out.println("Erreur lors du décodage du JWT: " + e.getMessage());
-            }
+        // Seuls les membres du canal y écrivent (index en mémoire), refus envoyé sur /user/queue/errors
+        Long userId = (Long) headerAccessor.getSessionAttributes().get(StompAuthChannelInterceptor.USER_ID_ATTRIBUTE);
+        chatWebSocketService.checkChannelAccess(channelId, userId);
+
+        // Limite de débit par utilisateur et par canal, le refus est envoyé à la seule session fautive
+        long retryAfterMs = chatRateLimiter.tryAcquire(ChatRateLimiter.Route.SEND, userId, channelId);
+        if (retryAfterMs > 0) {
+            chatWebSocketService.sendRateLimited(principal.getName(), headerAccessor.getSessionId(), channelId, "send", retryAfterMs);
+            return;
         }
-        
+
+        // Termes interdits masqués avant la diffusion et l'historique
+        String filtered = moderationFilter.filter(message);
+
         // Envoyer le message au canal avec le sender
-        chatWebSocketService.sendTextMessageToChannel(channelId, message, username);
+        chatWebSocketService.sendTextMessageToChannel(channelId, filtered, principal.getName(), headerAccessor.getSessionId(), userId, clientMsgId);
+    }
+
+    /**
+     * Modifie un message texte envoyé par l'utilisateur (même limite de débit et même filtre que l'envoi)
+     * @param channelId Identifiant du canal
+     * @param seq Séquence du message modifié
+     * @param content Nouveau contenu
+     * @param principal Utilisateur de la session WebSocket
+     * @param headerAccessor Accesseur pour les headers WebSocket
+     */
+    @MessageMapping("/chat/{channelId}/edit/{seq}")
+    public void editMessage(
+            @DestinationVariable Long channelId,
+            @DestinationVariable long seq,
+            @Payload String content,
+            Principal principal,
+            SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get(StompAuthChannelInterceptor.USER_ID_ATTRIBUTE);
+        long retryAfterMs = chatRateLimiter.tryAcquire(ChatRateLimiter.Route.SEND, userId, channelId);
+        if (retryAfterMs > 0) {
+            chatWebSocketService.sendRateLimited(principal.getName(), headerAccessor.getSessionId(), channelId, "edit", retryAfterMs);
+            return;
+        }
+        chatWebSocketService.editMessage(channelId, seq, moderationFilter.filter(content), principal.getName());
+    }
+
+    /**
+     * Supprime un message (texte ou fichier) envoyé par l'utilisateur
+     * @param channelId Identifiant du canal
+     * @param seq Séquence du message supprimé
+     * @param principal Utilisateur de la session WebSocket
+     * @param headerAccessor Accesseur pour les headers WebSocket
+     */
+    @MessageMapping("/chat/{channelId}/delete/{seq}")
+    public void deleteMessage(
+            @DestinationVariable Long channelId,
+            @DestinationVariable long seq,
+            Principal principal,
+            SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get(StompAuthChannelInterceptor.USER_ID_ATTRIBUTE);
+        long retryAfterMs = chatRateLimiter.tryAcquire(ChatRateLimiter.Route.SEND, userId, channelId);
+        if (retryAfterMs > 0) {
+            chatWebSocketService.sendRateLimited(principal.getName(), headerAccessor.getSessionId(), channelId, "delete", retryAfterMs);
+            return;
+        }
+        chatWebSocketService.deleteMessage(channelId, seq, principal.getName());
     }
 
     /**
      * Joint un canal
+     * L'utilisateur est celui de la session (l'identifiant de la destination n'est gardé que pour compatibilité)
      * @param channelId Identifiant du canal
-     * @param userId Identifiant de l'utilisateur
+     * @param userId Identifiant de l'utilisateur (ignoré)
      * @param headerAccessor Accesseur pour les headers WebSocket
      */
     @MessageMapping("/chat/{channelId}/join/{userId}")
     public void joinChannel(@DestinationVariable Long channelId, @DestinationVariable Long userId, SimpMessageHeaderAccessor headerAccessor) {
-        String sessionId = headerAccessor.getSessionId();
-        webSocketEventListener.registerSession(sessionId, channelId, userId);
-        chatWebSocketService.addUserToChannel(channelId, userId);
+        Long sessionUserId = (Long) headerAccessor.getSessionAttributes().get(StompAuthChannelInterceptor.USER_ID_ATTRIBUTE);
+        chatWebSocketService.addUserToChannel(headerAccessor.getSessionId(), channelId, sessionUserId);
+    }
+
+    /**
+     * Rattrapage après une reconnexion : le client envoie la dernière séquence reçue (header seq des trames)
+     * et reçoit les trames manquées sur /user/queue/replay
+     * Une séquence invalide est refusée par une trame ERROR sur /user/queue/errors
+     * @param channelId Identifiant du canal
+     * @param lastSeq Dernière séquence reçue par le client (header seq, pas le champ seq des messages)
+     * @param principal Utilisateur de la session WebSocket
+     * @param headerAccessor Accesseur pour les headers WebSocket
+     */
+    @MessageMapping("/chat/{channelId}/resume")
+    public void resume(
+            @DestinationVariable Long channelId,
+            @Payload String lastSeq,
+            Principal principal,
+            SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get(StompAuthChannelInterceptor.USER_ID_ATTRIBUTE);
+        long afterSeq;
+        try {
+            afterSeq = Long.parseLong(lastSeq.trim());
+        } catch (NumberFormatException e) {
+            afterSeq = -1;
+        }
+        if (afterSeq < 0) {
+            chatWebSocketService.sendError(principal.getName(), headerAccessor.getSessionId(), channelId, "Séquence de rattrapage invalide");
+            return;
+        }
+        chatWebSocketService.replay(principal.getName(), headerAccessor.getSessionId(), channelId, userId, afterSeq);
+    }
+
+    /**
+     * Quitte un canal (la session reste ouverte pour les autres canaux)
+     * @param channelId Identifiant du canal
+     * @param headerAccessor Accesseur pour les headers WebSocket
+     */
+    @MessageMapping("/chat/{channelId}/leave")
+    public void leaveChannel(@DestinationVariable Long channelId, SimpMessageHeaderAccessor headerAccessor) {
+        chatWebSocketService.removeUserFromChannel(headerAccessor.getSessionId(), channelId);
     }
 
     /**
-     * Envoie un fichier
+     * Refus d'un message STOMP (message introuvable, utilisateur qui n'en est pas l'auteur...) :
+     * une trame ERROR est envoyée à la seule session fautive sur /user/queue/errors
+     * @param e Erreur levée par le traitement du message
+     * @param principal Utilisateur de la session WebSocket
+     * @param headerAccessor Accesseur pour les headers WebSocket (canal de la destination, s'il y en a un)
+     */
+    @MessageExceptionHandler(IllegalArgumentException.class)
+    public void handleException(IllegalArgumentException e, Principal principal, SimpMessageHeaderAccessor headerAccessor) {
+        Long channelId = null;
+        if (headerAccessor.getHeader(DestinationVariableMethodArgumentResolver.DESTINATION_TEMPLATE_VARIABLES_HEADER)
+                instanceof Map<?, ?> variables && variables.get("channelId") instanceof String value) {
+            try {
+                channelId = Long.valueOf(value);
+            } catch (NumberFormatException ignored) {
+                // Erreur envoyée sans canal
+            }
+        }
+        chatWebSocketService.sendError(principal.getName(), headerAccessor.getSessionId(), channelId, e.getMessage());
+    }
+
+    /**
+     * Envoie un fichier (l'utilisateur doit être membre du canal)
      * @param channelId Identifiant du canal
      * @param file Fichier à envoyer
      * @param request Requête HTTP
      */
     @PostMapping("/api/chat/{channelId}/file")
     @ResponseBody
-    public void sendFile(
+    public ResponseEntity<?> sendFile(
             @PathVariable Long channelId,
             @RequestParam("file") MultipartFile file,
             HttpServletRequest request) throws IOException {
@@ -99,17 +220,94 @@ public class ChatWebSocketController {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth != null ? auth.getName() : "anonymous";
         
-        // Récupérer l'ID de l'utilisateur
-        Long userId = userService.getUserId(username);
-        
-        // Envoyer le fichier au canal
-        chatWebSocketService.sendFileToChannel(channelId, file, username);
+        try {
+            // Récupérer l'ID de l'utilisateur, qui doit être membre du canal
+            Long userId = userService.getUserId(username);
+            chatWebSocketService.checkChannelAccess(channelId, userId);
+
+            // Limite de débit des envois de fichiers
+            long retryAfterMs = chatRateLimiter.tryAcquire(ChatRateLimiter.Route.UPLOAD, userId, channelId);
+            if (retryAfterMs > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMs + 999) / 1000))
+                        .body("Trop d'envois de fichiers, réessayez dans " + retryAfterMs + " ms");
+            }
+
+            // Envoyer le fichier au canal
+            chatWebSocketService.sendFileToChannel(channelId, file, username);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Récupère l'historique d'un canal, page par page (du plus récent au plus ancien)
+     * @param channelId Identifiant du canal
+     * @param before Séquence à partir de laquelle remonter (absente pour les derniers messages)
+     * @param limit Nombre maximum de messages (50 par défaut, 200 au maximum)
+     * @return la page de messages
+     */
+    @GetMapping("/api/chat/{channelId}/messages")
+    @ResponseBody
+    public ResponseEntity<?> getMessages(
+            @PathVariable Long channelId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            chatWebSocketService.checkChannelAccess(channelId, userService.getUserId(auth.getName()));
+            return ResponseEntity.ok(chatHistoryService.getPage(channelId, before, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
+    /**
+     * Recherche dans l'historique d'un canal les messages qui contiennent tous les mots de q
+     * @param channelId Identifiant du canal
+     * @param q Mots recherchés
+     * @param before Séquence exclue à partir de laquelle remonter (nextBefore de la page précédente)
+     * @param limit Nombre maximum de messages
+     * @return les messages trouvés, du plus ancien au plus récent
+     */
+    @GetMapping("/api/chat/{channelId}/search")
+    @ResponseBody
+    public ResponseEntity<?> searchMessages(
+            @PathVariable Long channelId,
+            @RequestParam String q,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            chatWebSocketService.checkChannelAccess(channelId, userService.getUserId(auth.getName()));
+            return ResponseEntity.ok(chatSearchService.search(channelId, q, before, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Récupère la présence complète d'un canal (utilisateurs connectés et version)
+     * Appelée en arrivant sur le canal ou quand le client détecte un trou dans les versions des deltas
+     * @param channelId Identifiant du canal
+     * @return la présence du canal
+     */
+    @GetMapping("/api/chat/{channelId}/presence")
+    @ResponseBody
+    public ResponseEntity<?> getPresence(@PathVariable Long channelId) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            chatWebSocketService.checkChannelAccess(channelId, userService.getUserId(auth.getName()));
+            return ResponseEntity.ok(chatWebSocketService.getPresence(channelId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
     // Cette méthode sera appelée automatiquement quand un utilisateur se déconnecte
-    public void handleDisconnect(Long channelId, Long userId) {
-        chatWebSocketService.removeUserFromChannel(channelId, userId);
+    public void handleDisconnect(String sessionId) {
+        chatWebSocketService.disconnectSession(sessionId);
     }
 
 } 
\ No newline at end of file
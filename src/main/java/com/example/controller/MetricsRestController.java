@@ -0,0 +1,139 @@
+package com.example.controller;
+
+import com.example.config.OutboundQueueHandlerDecoratorFactory;
+import com.example.service.ChannelLifecycleScheduler;
+import com.example.service.ChannelReplayBuffer;
+import com.example.service.ChatBroadcaster;
+import com.example.service.ChatLogCompactor;
+import com.example.service.ChatRateLimiter;
+import com.example.service.ChatSearchService;
+import com.example.service.ClientMessageDeduplicator;
+import com.example.service.SessionRegistry;
+import com.example.service.ShardedBrokerDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contrôleur des métriques du chat pour les administrateurs (RestController API)
+ * Routes sous /admin, réservées au rôle ADMIN
+ */
+@RestController
+@RequestMapping("/admin/metrics")
+@RequiredArgsConstructor
+public class MetricsRestController {
+
+    private final ChatBroadcaster chatBroadcaster;
+    private final ObjectProvider<ShardedBrokerDispatcher> shardedBrokerDispatcher;
+    private final SessionRegistry sessionRegistry;
+    private final OutboundQueueHandlerDecoratorFactory outboundQueueHandlerDecoratorFactory;
+    private final ChatRateLimiter chatRateLimiter;
+    private final ClientMessageDeduplicator clientMessageDeduplicator;
+    private final ChannelReplayBuffer channelReplayBuffer;
+    private final ChannelLifecycleScheduler channelLifecycleScheduler;
+    private final ChatSearchService chatSearchService;
+    private final ChatLogCompactor chatLogCompactor;
+
+    /**
+     * Métriques de diffusion : messages reçus, trames envoyées, et état des shards (mode sharded)
+     * @return les métriques de diffusion
+     */
+    @GetMapping("/broker")
+    public ResponseEntity<Map<String, Object>> getBrokerMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("messagesIn", chatBroadcaster.getMessagesIn());
+        metrics.put("framesOut", chatBroadcaster.getFramesOut());
+        metrics.put("remoteMessagesIn", chatBroadcaster.getRemoteMessagesIn());
+        ShardedBrokerDispatcher dispatcher = shardedBrokerDispatcher.getIfAvailable();
+        metrics.put("mode", dispatcher != null ? "sharded" : "simple");
+        metrics.put("shards", dispatcher != null ? dispatcher.getStats() : List.of());
+        return ResponseEntity.ok(metrics);
+    }
+
+    /**
+     * Métriques du registre des sessions : sessions, utilisateurs, canaux et mémoire estimée
+     * @return les métriques des sessions
+     */
+    @GetMapping("/sessions")
+    public ResponseEntity<Map<String, Object>> getSessionMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        int sessions = sessionRegistry.getSessionCount();
+        long memoryBytes = sessionRegistry.getMemoryBytes();
+        metrics.put("sessions", sessions);
+        metrics.put("users", sessionRegistry.getUserCount());
+        metrics.put("channels", sessionRegistry.getChannelCount());
+        metrics.put("memoryBytes", memoryBytes);
+        metrics.put("bytesPerSession", sessions > 0 ? memoryBytes / sessions : 0);
+        return ResponseEntity.ok(metrics);
+    }
+
+    /**
+     * Métriques des files d'envoi des sessions : trames jetées (chat, présence) et sessions fermées
+     * @return les métriques d'envoi
+     */
+    @GetMapping("/outbound")
+    public ResponseEntity<Map<String, Object>> getOutboundMetrics() {
+        return ResponseEntity.ok(outboundQueueHandlerDecoratorFactory.getStats());
+    }
+
+    /**
+     * Métriques du limiteur de débit : requêtes refusées par route
+     * @return les métriques du limiteur
+     */
+    @GetMapping("/rate-limiter")
+    public ResponseEntity<Map<String, Long>> getRateLimiterMetrics() {
+        return ResponseEntity.ok(chatRateLimiter.getRejected());
+    }
+
+    /**
+     * Renvois de messages ignorés (même client-msg-id)
+     * @return le nombre de doublons ignorés
+     */
+    @GetMapping("/dedup")
+    public ResponseEntity<Map<String, Long>> getDedupMetrics() {
+        return ResponseEntity.ok(Map.of("duplicates", clientMessageDeduplicator.getDuplicates()));
+    }
+
+    /**
+     * Métriques des tampons de rattrapage : canaux, mémoire utilisée, rattrapages (complets ou non), libérations
+     * @return les métriques des tampons
+     */
+    @GetMapping("/replay")
+    public ResponseEntity<Map<String, Long>> getReplayMetrics() {
+        return ResponseEntity.ok(channelReplayBuffer.getStats());
+    }
+
+    /**
+     * Métriques du cycle de vie des canaux : canaux programmés, tâches de la roue, ouvertures et fermetures
+     * @return les métriques du cycle de vie
+     */
+    @GetMapping("/lifecycle")
+    public ResponseEntity<Map<String, Long>> getLifecycleMetrics() {
+        return ResponseEntity.ok(channelLifecycleScheduler.getStats());
+    }
+
+    /**
+     * Métriques de la recherche : canaux indexés, mots, mémoire des listes de séquences, messages indexés, recherches
+     * @return les métriques des index de recherche
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Long>> getSearchMetrics() {
+        return ResponseEntity.ok(chatSearchService.getStats());
+    }
+
+    /**
+     * Métriques du compactage de l'historique : canaux à compacter, segments compactés, octets libérés
+     * @return les métriques du compacteur
+     */
+    @GetMapping("/compaction")
+    public ResponseEntity<Map<String, Long>> getCompactionMetrics() {
+        return ResponseEntity.ok(chatLogCompactor.getStats());
+    }
+}
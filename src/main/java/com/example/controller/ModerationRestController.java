@@ -0,0 +1,46 @@
+package com.example.controller;
+
+import com.example.service.ModerationFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Contrôleur de la modération du chat pour les administrateurs (RestController API)
+ * Routes sous /admin, réservées au rôle ADMIN
+ */
+@RestController
+@RequestMapping("/admin/moderation")
+@RequiredArgsConstructor
+public class ModerationRestController {
+
+    private final ModerationFilter moderationFilter;
+
+    /**
+     * Dictionnaire chargé et messages masqués
+     * @return les métriques du filtre
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Long>> getModeration() {
+        return ResponseEntity.ok(moderationFilter.getStats());
+    }
+
+    /**
+     * Relit le fichier de termes sur toutes les instances, sans interrompre les envois
+     * @return le nombre de termes chargés, ou l'erreur de lecture (l'ancien dictionnaire reste actif)
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload() {
+        try {
+            return ResponseEntity.ok(Map.of("terms", moderationFilter.reload()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Accusé d'un message renvoyé (même clientMsgId) déjà reçu, envoyé à la seule session qui l'a renvoyé (/user/queue/acks)
+ * Le message n'est pas diffusé une seconde fois
+ * @param channelId Identifiant du canal
+ * @param clientMsgId Identifiant du message choisi par le client
+ * @param seq Séquence du message d'origine dans le canal
+ */
+@JsonPropertyOrder({"type"})
+public record AckFrame(Long channelId, String clientMsgId, long seq) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "ACK";
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Le canal est terminé (date + durationMinutes) : c'est la dernière trame diffusée sur le canal
+ * @param endedAt Fin du canal (epoch millis)
+ */
+@JsonPropertyOrder({"type"})
+public record ChannelClosedFrame(long endedAt) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "CHANNEL_CLOSED";
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Le canal commence (Channel.date)
+ * @param startsAt Début du canal (epoch millis)
+ * @param endsAt Fin du canal (date + durationMinutes, epoch millis)
+ */
+@JsonPropertyOrder({"type"})
+public record ChannelOpenedFrame(long startsAt, long endsAt) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "CHANNEL_OPENED";
+    }
+}
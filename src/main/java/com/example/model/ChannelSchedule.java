@@ -0,0 +1,16 @@
+package com.example.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Horaires d'un canal, lus sans charger le canal ni son propriétaire
+ * @param channelId Identifiant du canal
+ * @param date Début du canal
+ * @param durationMinutes Durée en minutes
+ */
+public record ChannelSchedule(Long channelId, LocalDateTime date, Integer durationMinutes) {
+
+    public LocalDateTime end() {
+        return date.plusMinutes(durationMinutes);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.model;
+
+/**
+ * Trame diffusée sur /topic/chat/{channelId}
+ * Chaque type de message est un record immuable, sérialisé une seule fois avant la diffusion
+ */
+public sealed interface ChatFrame permits TextFrame, FileFrame, FilePreviewFrame, UserJoinedFrame, UserLeftFrame, PresenceFrame, RateLimitedFrame, ReplayFrame,
+        ChannelOpenedFrame, ChannelClosedFrame, MentionFrame, EditFrame, DeleteFrame, ErrorFrame, AckFrame {
+
+    /**
+     * @return le type de la trame (TEXT, FILE, FILE_PREVIEW, USER_JOINED, USER_LEFT, PRESENCE, RATE_LIMITED, REPLAY,
+     * CHANNEL_OPENED, CHANNEL_CLOSED, MENTION, EDIT, DELETE, ERROR, ACK)
+     */
+    String type();
+}
@@ -0,0 +1,21 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.util.List;
+
+/**
+ * Page de l'historique d'un canal, du message le plus ancien au plus récent
+ * @param messages Messages de la page
+ * @param nextBefore Séquence à passer en paramètre before pour la page précédente (null si début de l'historique)
+ */
+public record ChatHistoryPage(List<Entry> messages, Long nextBefore) {
+
+    /**
+     * Message de l'historique
+     * @param seq Séquence du message dans le canal
+     * @param message Message tel qu'il a été diffusé (JSON)
+     */
+    public record Entry(long seq, @JsonRawValue String message) {
+    }
+}
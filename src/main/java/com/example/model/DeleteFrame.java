@@ -0,0 +1,22 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Suppression d'un message (texte ou fichier) par son auteur : pierre tombale qui référence le message d'origine
+ * Gardée dans l'historique jusqu'à ce que le compacteur vide le message d'origine (voir ChatLogCompactor)
+ * @param seq Séquence de la suppression dans le canal
+ * @param targetSeq Séquence du message supprimé
+ * @param sender Auteur du message
+ * @param timestamp Date de la suppression
+ */
+@JsonPropertyOrder({"type"})
+public record DeleteFrame(long seq, long targetSeq, String sender, long timestamp) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "DELETE";
+    }
+}
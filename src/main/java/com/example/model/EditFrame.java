@@ -0,0 +1,23 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Modification d'un message texte par son auteur, diffusée comme un delta qui référence le message d'origine
+ * Gardée dans l'historique jusqu'à ce que le compacteur l'applique au message d'origine (voir ChatLogCompactor)
+ * @param seq Séquence de la modification dans le canal
+ * @param targetSeq Séquence du message modifié
+ * @param sender Auteur du message
+ * @param content Nouveau contenu
+ * @param timestamp Date de la modification
+ */
+@JsonPropertyOrder({"type"})
+public record EditFrame(long seq, long targetSeq, String sender, String content, long timestamp) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "EDIT";
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Requête STOMP refusée (paramètre invalide, accès refusé...), envoyée à la seule session fautive (/user/queue/errors)
+ * @param channelId Identifiant du canal
+ * @param message Raison du refus
+ */
+@JsonPropertyOrder({"type"})
+public record ErrorFrame(Long channelId, String message) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "ERROR";
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Fichier envoyé par un utilisateur
+ * La trame ne contient qu'une référence : le fichier se télécharge à l'adresse url
+ * @param seq Séquence du message dans le canal (la même que dans l'historique)
+ */
+@JsonPropertyOrder({"type"})
+public record FileFrame(long seq, String sender, String fileName, String fileType, long fileSize, String blobId, String url,
+                        long timestamp) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "FILE";
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * La miniature d'une image envoyée dans le canal est prête
+ * @param blobId Identifiant de l'image d'origine (voir FileFrame)
+ * @param thumbnailUrl Adresse de la miniature
+ * @param width Largeur de la miniature
+ * @param height Hauteur de la miniature
+ */
+@JsonPropertyOrder({"type"})
+public record FilePreviewFrame(String blobId, String thumbnailUrl, int width, int height) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "FILE_PREVIEW";
+    }
+}
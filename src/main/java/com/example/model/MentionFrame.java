@@ -0,0 +1,21 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Notification d'une mention, envoyée à l'utilisateur mentionné (/user/queue/mentions) quel que soit le canal ouvert
+ * @param channelId Canal du message
+ * @param sender Auteur du message
+ * @param excerpt Début du message
+ * @param timestamp Date du message
+ */
+@JsonPropertyOrder({"type"})
+public record MentionFrame(Long channelId, String sender, String excerpt, long timestamp) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "MENTION";
+    }
+}
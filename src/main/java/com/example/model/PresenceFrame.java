@@ -0,0 +1,23 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Changements de présence d'un canal regroupés sur une courte fenêtre
+ * Un client à la version fromVersion applique joined / left et passe à la version version,
+ * sinon il recharge la présence complète
+ * @param joined Utilisateurs arrivés pendant la fenêtre
+ * @param left Utilisateurs partis pendant la fenêtre
+ * @param fromVersion Version de la présence avant ces changements
+ * @param version Version de la présence après ces changements
+ */
+@JsonPropertyOrder({"type"})
+public record PresenceFrame(long[] joined, long[] left, long fromVersion, long version) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "PRESENCE";
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.model;
+
+/**
+ * Présence complète d'un canal à une version donnée
+ * Sert aux clients qui arrivent sur le canal ou qui détectent un trou dans les versions des deltas
+ * @param version Version de la présence du canal
+ * @param userIds Identifiants des utilisateurs connectés
+ */
+public record PresenceSnapshot(long version, long[] userIds) {
+}
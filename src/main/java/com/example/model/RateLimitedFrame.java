@@ -0,0 +1,20 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Requête refusée par le limiteur de débit, envoyée à la seule session fautive (/user/queue/errors)
+ * @param channelId Identifiant du canal
+ * @param route Route limitée (send, upload)
+ * @param retryAfterMs Temps à attendre avant de réessayer, en millisecondes
+ */
+@JsonPropertyOrder({"type"})
+public record RateLimitedFrame(Long channelId, String route, long retryAfterMs) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "RATE_LIMITED";
+    }
+}
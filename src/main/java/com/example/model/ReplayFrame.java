@@ -0,0 +1,24 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * Rattrapage après une reconnexion, envoyé à la seule session qui l'a demandé (/user/queue/replay)
+ * @param channelId Identifiant du canal
+ * @param complete false si une partie des trames manquées n'est plus en mémoire : le client recharge l'historique
+ * @param fromSeq Séquence de la première trame de frames
+ * @param lastSeq Dernière séquence diffusée sur le canal
+ * @param frames Trames manquées, telles qu'elles ont été diffusées (tableau JSON, vide si complete est false)
+ */
+@JsonPropertyOrder({"type"})
+public record ReplayFrame(Long channelId, boolean complete, long fromSeq, long lastSeq,
+                          @JsonRawValue String frames) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "REPLAY";
+    }
+}
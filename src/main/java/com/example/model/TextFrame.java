@@ -0,0 +1,23 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Message texte envoyé par un utilisateur
+ * @param seq Séquence du message dans le canal (la même que dans l'historique)
+ * @param clientMsgId Identifiant choisi par le client, renvoyé pour qu'il reconnaisse son message (absent sinon)
+ * @param editedAt Date de la dernière modification, renseignée quand le compacteur l'applique au message (absent sinon)
+ */
+@JsonPropertyOrder({"type"})
+public record TextFrame(long seq, String sender, String content, long timestamp,
+                        @JsonInclude(JsonInclude.Include.NON_NULL) String clientMsgId,
+                        @JsonInclude(JsonInclude.Include.NON_NULL) Long editedAt) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "TEXT";
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.model;
+
+import java.util.List;
+
+/**
+ * État d'un envoi de fichier par morceaux, permet au client de reprendre un envoi interrompu
+ * @param uploadId Identifiant de l'envoi
+ * @param fileName Nom du fichier
+ * @param fileSize Taille totale du fichier
+ * @param chunkSize Taille d'un morceau (le dernier peut être plus petit)
+ * @param totalChunks Nombre de morceaux
+ * @param receivedChunks Numéros des morceaux déjà reçus
+ */
+public record UploadStatus(String uploadId, String fileName, long fileSize, int chunkSize, int totalChunks,
+                           List<Integer> receivedChunks) {
+}
@@ -0,0 +1,11 @@
+package com.example.model;
+
+/**
+ * Ce qu'il faut d'un utilisateur pour résoudre ses mentions, lu sans charger l'entité User
+ * @param userId Identifiant de l'utilisateur
+ * @param email Email (nom de l'utilisateur dans les sessions WebSocket)
+ * @param firstName Prénom
+ * @param lastName Nom
+ */
+public record UserHandle(Long userId, String email, String firstName, String lastName) {
+}
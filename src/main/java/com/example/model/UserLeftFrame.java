@@ -0,0 +1,20 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Un utilisateur a quitté le canal (delta de présence)
+ * La liste complète des utilisateurs connectés s'obtient avec GET /api/chat/{channelId}/presence
+ * @param userId Identifiant de l'utilisateur
+ * @param version Version de la présence du canal après ce changement
+ */
+@JsonPropertyOrder({"type"})
+public record UserLeftFrame(long userId, long version) implements ChatFrame {
+
+    @Override
+    @JsonProperty("type")
+    public String type() {
+        return "USER_LEFT";
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Stockage des fichiers de chat sur disque, adressés par leur contenu
+ * Chaque fichier est identifié par le SHA-256 de son contenu et rangé dans ${chat.blobs.dir}/ab/abcdef...
+ * Un fichier envoyé plusieurs fois n'est donc stocké qu'une seule fois.
+ *
+ * Un fichier n'est servi que dans les canaux où il a été publié : chaque publication crée une référence
+ * ${chat.blobs.dir}/refs/{channelId}/{blobId} (fichier vide). Connaître l'empreinte d'un fichier ne suffit pas
+ * pour le lire depuis un autre canal.
+ *
+ * Les fichiers en cours d'écriture sont dans ${chat.blobs.dir}/tmp, vidé au démarrage : le dossier appartient
+ * à une seule instance.
+ */
+@Repository
+public class BlobStore {
+
+    private static final Pattern BLOB_ID = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path baseDir;
+    private final Path tmpDir;
+    private final Path refsDir;
+
+    public BlobStore(@Value("${chat.blobs.dir:data/blobs}") String baseDir) throws IOException {
+        this.baseDir = Path.of(baseDir);
+        this.tmpDir = this.baseDir.resolve("tmp");
+        this.refsDir = this.baseDir.resolve("refs");
+        Files.createDirectories(tmpDir);
+        clearTempFiles();
+    }
+
+    // Fichiers temporaires d'une exécution précédente (envois interrompus par l'arrêt) : jamais repris, supprimés
+    private void clearTempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tmpDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Copie le flux dans le stockage en calculant son empreinte au fil de l'eau
+     * @param in Contenu du fichier
+     * @return l'identifiant (SHA-256 hexadécimal) du fichier
+     */
+    public String store(InputStream in) throws IOException {
+        Path tmp = createTempFile();
+        MessageDigest digest = sha256();
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return commit(tmp, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Range un fichier temporaire déjà écrit, en calculant son empreinte par blocs (mémoire constante)
+     * @param tmp Fichier temporaire (créé par createTempFile)
+     * @return l'identifiant du fichier
+     */
+    public String storeFile(Path tmp) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try (FileChannel file = FileChannel.open(tmp, StandardOpenOption.READ)) {
+            while (file.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return commit(tmp, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Range un fichier temporaire déjà écrit sous son identifiant (ou le supprime si le contenu existe déjà)
+     * @param tmp Fichier temporaire (créé par createTempFile)
+     * @param blobId SHA-256 du contenu
+     * @return l'identifiant du fichier
+     */
+    public String commit(Path tmp, String blobId) throws IOException {
+        Path target = path(blobId);
+        if (Files.exists(target)) {
+            Files.delete(tmp);
+            return blobId;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(tmp);
+        }
+        return blobId;
+    }
+
+    /**
+     * @return un fichier temporaire vide dans le stockage (même disque que les fichiers définitifs)
+     */
+    public Path createTempFile() throws IOException {
+        return Files.createTempFile(tmpDir, "upload-", ".part");
+    }
+
+    /**
+     * Recherche un fichier par son identifiant
+     * @param blobId SHA-256 hexadécimal
+     * @return le chemin du fichier s'il existe
+     */
+    public Optional<Path> find(String blobId) {
+        if (blobId == null || !BLOB_ID.matcher(blobId).matches()) {
+            return Optional.empty();
+        }
+        Path path = path(blobId);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * Enregistre la publication d'un fichier dans un canal (avant sa diffusion)
+     * @param blobId SHA-256 hexadécimal
+     * @param channelId Identifiant du canal
+     * @throws IllegalArgumentException si l'identifiant n'est pas une empreinte valide
+     */
+    public void addReference(String blobId, Long channelId) throws IOException {
+        if (blobId == null || !BLOB_ID.matcher(blobId).matches()) {
+            throw new IllegalArgumentException("Identifiant de fichier invalide");
+        }
+        Path reference = referencePath(blobId, channelId);
+        Files.createDirectories(reference.getParent());
+        try {
+            Files.createFile(reference);
+        } catch (FileAlreadyExistsException e) {
+            // Fichier déjà publié dans ce canal
+        }
+    }
+
+    /**
+     * @param blobId SHA-256 hexadécimal
+     * @param channelId Identifiant du canal
+     * @return true si le fichier a été publié dans le canal
+     */
+    public boolean isReferenced(String blobId, Long channelId) {
+        if (blobId == null || !BLOB_ID.matcher(blobId).matches()) {
+            return false;
+        }
+        return Files.exists(referencePath(blobId, channelId));
+    }
+
+    /**
+     * Recherche la miniature d'une image, rangée à côté du fichier d'origine
+     * @param blobId SHA-256 hexadécimal de l'image d'origine
+     * @return le chemin de la miniature si elle a déjà été générée
+     */
+    public Optional<Path> findThumbnail(String blobId) {
+        if (blobId == null || !BLOB_ID.matcher(blobId).matches()) {
+            return Optional.empty();
+        }
+        Path path = thumbnailPath(blobId);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * @return le chemin de la miniature d'une image (qu'elle existe ou non)
+     */
+    public Path thumbnailPath(String blobId) {
+        return baseDir.resolve(blobId.substring(0, 2)).resolve(blobId + ".thumb");
+    }
+
+    private Path referencePath(String blobId, Long channelId) {
+        return refsDir.resolve(channelId.toString()).resolve(blobId);
+    }
+
+    private Path path(String blobId) {
+        return baseDir.resolve(blobId.substring(0, 2)).resolve(blobId);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
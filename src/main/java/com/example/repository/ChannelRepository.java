@@ -1,16 +1,31 @@
 package com.example.repository;
 
 import com.example.model.Channel;
+import com.example.model.ChannelSchedule;
 import com.example.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChannelRepository extends JpaRepository<Channel, Long> {
     List<Channel> findByOwner(User owner);
     List<Channel> findByDateAfter(LocalDateTime date);
     List<Channel> findByDateBetween(LocalDateTime start, LocalDateTime end);
+
+    // Seulement l'identifiant du propriétaire (sans charger le canal)
+    @Query("select c.owner.userId from Channel c where c.channelId = :channelId")
+    Optional<Long> findOwnerIdByChannelId(@Param("channelId") Long channelId);
+
+    // Horaires de tous les canaux, sans charger les propriétaires (les canaux terminés sont filtrés par l'appelant)
+    @Query("select new com.example.model.ChannelSchedule(c.channelId, c.date, c.durationMinutes) from Channel c")
+    List<ChannelSchedule> findAllSchedules();
+
+    @Query("select new com.example.model.ChannelSchedule(c.channelId, c.date, c.durationMinutes) from Channel c where c.channelId = :channelId")
+    Optional<ChannelSchedule> findScheduleByChannelId(@Param("channelId") Long channelId);
 } 
\ No newline at end of file
@@ -0,0 +1,244 @@
+package com.example.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Journal des messages d'un canal, découpé en segments mappés en mémoire
+ * Les séquences commencent à 1 et sont contiguës : l'index de chaque segment
+ * permet de retrouver un message par sa séquence sans parcourir le fichier.
+ *
+ * Les segments scellés (tous sauf le dernier) peuvent être compactés : un message garde sa séquence
+ * mais son contenu peut être remplacé, ou vidé (message supprimé, modification déjà appliquée).
+ * Les lecteurs ignorent les messages vides.
+ */
+public class ChatLog implements Closeable {
+    private final Path dir;
+    private final int segmentBytes;
+    private final int indexEntries;
+
+    // Segments triés par séquence de départ
+    private final ConcurrentSkipListMap<Long, ChatLogSegment> segments = new ConcurrentSkipListMap<>();
+    private volatile ChatLogSegment active;
+    private boolean closed;
+
+    private ChatLog(Path dir, int segmentBytes, int indexEntries) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.indexEntries = indexEntries;
+    }
+
+    /**
+     * Ouvre le journal contenu dans le dossier dir, en rechargeant les segments existants
+     */
+    public static ChatLog open(Path dir, int segmentBytes, int indexEntries) throws IOException {
+        Files.createDirectories(dir);
+        recoverCompaction(dir);
+        ChatLog chatLog = new ChatLog(dir, segmentBytes, indexEntries);
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Long> baseSeqs = files
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - 4)))
+                    .sorted()
+                    .toList();
+            for (int i = 0; i < baseSeqs.size(); i++) {
+                boolean sealed = i < baseSeqs.size() - 1;
+                chatLog.segments.put(baseSeqs.get(i), ChatLogSegment.open(dir, baseSeqs.get(i), segmentBytes, indexEntries, sealed));
+            }
+        }
+        if (chatLog.segments.isEmpty()) {
+            chatLog.segments.put(1L, ChatLogSegment.open(dir, 1L, segmentBytes, indexEntries, false));
+        }
+        chatLog.active = chatLog.segments.lastEntry().getValue();
+        return chatLog;
+    }
+
+    /**
+     * Ajoute un message à la fin du journal, un nouveau segment est créé si l'actuel est plein
+     * @return la séquence attribuée au message
+     */
+    public synchronized long append(long timestamp, byte[] payload) {
+        if (ChatLogSegment.RECORD_HEADER_SIZE + payload.length > segmentBytes) {
+            throw new IllegalArgumentException("Message trop volumineux pour le journal");
+        }
+        if (!active.hasRoom(payload.length)) {
+            roll();
+        }
+        return active.append(timestamp, payload);
+    }
+
+    private void roll() {
+        long nextBaseSeq = active.lastSeq() + 1;
+        try {
+            ChatLogSegment segment = ChatLogSegment.open(dir, nextBaseSeq, segmentBytes, indexEntries, false);
+            segments.put(nextBaseSeq, segment);
+            active = segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lit un message par sa séquence
+     */
+    public Optional<ChatLogRecord> read(long seq) {
+        Map.Entry<Long, ChatLogSegment> entry = segments.floorEntry(seq);
+        if (entry == null || !entry.getValue().contains(seq)) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.getValue().read(seq));
+    }
+
+    /**
+     * Lit au plus limit messages de séquence strictement inférieure à beforeSeq,
+     * du plus ancien au plus récent
+     */
+    public List<ChatLogRecord> readBefore(long beforeSeq, int limit) {
+        long to = Math.min(beforeSeq - 1, lastSeq());
+        long from = Math.max(firstSeq(), to - limit + 1);
+        List<ChatLogRecord> records = new ArrayList<>((int) Math.max(0, to - from + 1));
+        for (long seq = from; seq <= to; seq++) {
+            read(seq).ifPresent(records::add);
+        }
+        return records;
+    }
+
+    public long firstSeq() {
+        return segments.firstKey();
+    }
+
+    /**
+     * @return la séquence de départ du segment actif : les messages d'avant sont dans des segments scellés
+     */
+    public long activeBaseSeq() {
+        return active.baseSeq();
+    }
+
+    /**
+     * @return les séquences de départ des segments scellés, dans l'ordre
+     */
+    public List<Long> sealedSegments() {
+        return new ArrayList<>(segments.headMap(active.baseSeq()).keySet());
+    }
+
+    /**
+     * Compacte un segment scellé : chaque message garde sa séquence et sa date, son contenu est remplacé par rewrite
+     * Le segment est réécrit dans des fichiers .compact qui remplacent ensuite les siens ; les lectures en cours
+     * continuent sur l'ancien mapping. Un marqueur .compacted permet de terminer le remplacement après un arrêt brutal.
+     * @param baseSeq Séquence de départ du segment (pas le segment actif)
+     * @param rewrite Nouveau contenu de chaque message (tableau vide : message vidé)
+     * @return le nombre d'octets libérés
+     * @throws IllegalStateException si les nouveaux contenus ne tiennent pas dans un segment (le segment est gardé)
+     */
+    public long compact(long baseSeq, Function<ChatLogRecord, byte[]> rewrite) throws IOException {
+        ChatLogSegment segment = segments.get(baseSeq);
+        if (segment == null || segment == active) {
+            throw new IllegalArgumentException("Le segment " + baseSeq + " n'existe pas ou n'est pas scellé");
+        }
+
+        // Réécriture hors verrou : un segment scellé n'est plus modifié
+        ChatLogSegment compacted = ChatLogSegment.createCompacted(dir, baseSeq, segmentBytes, indexEntries);
+        boolean written = false;
+        try {
+            for (long seq = baseSeq; seq <= segment.lastSeq(); seq++) {
+                ChatLogRecord record = segment.read(seq);
+                byte[] payload = rewrite.apply(record);
+                if (!compacted.hasRoom(payload.length)) {
+                    throw new IllegalStateException("Le segment " + baseSeq + " compacté dépasse la taille d'un segment");
+                }
+                compacted.append(record.timestamp(), payload);
+            }
+            written = true;
+        } finally {
+            compacted.seal();
+            if (!written) {
+                deleteCompacted(dir, baseSeq);
+            }
+        }
+        long freed = segment.bytes() - compacted.bytes();
+
+        synchronized (this) {
+            Path marker = markerPath(dir, baseSeq);
+            if (closed) {
+                deleteCompacted(dir, baseSeq);
+                return 0;
+            }
+            Files.createFile(marker);
+            replaceCompacted(dir, baseSeq);
+            Files.delete(marker);
+            segments.put(baseSeq, ChatLogSegment.open(dir, baseSeq, segmentBytes, indexEntries, true));
+        }
+        segment.close();
+        return freed;
+    }
+
+    // Termine les remplacements interrompus (marqueur présent) et supprime les réécritures inachevées
+    private static void recoverCompaction(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : files.toList()) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".compacted")) {
+                    replaceCompacted(dir, Long.parseLong(name.substring(0, name.length() - ".compacted".length())));
+                    Files.delete(path);
+                }
+            }
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : files.toList()) {
+                if (path.getFileName().toString().endsWith(".compact")) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    // Remplace les fichiers du segment par leur version compactée (l'index d'abord, chaque déplacement est atomique)
+    private static void replaceCompacted(Path dir, long baseSeq) throws IOException {
+        for (Path target : List.of(ChatLogSegment.indexPath(dir, baseSeq), ChatLogSegment.logPath(dir, baseSeq))) {
+            Path source = ChatLogSegment.compactedPath(target);
+            if (Files.exists(source)) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    private static void deleteCompacted(Path dir, long baseSeq) throws IOException {
+        Files.deleteIfExists(ChatLogSegment.compactedPath(ChatLogSegment.logPath(dir, baseSeq)));
+        Files.deleteIfExists(ChatLogSegment.compactedPath(ChatLogSegment.indexPath(dir, baseSeq)));
+    }
+
+    private static Path markerPath(Path dir, long baseSeq) {
+        return dir.resolve(String.format("%020d.compacted", baseSeq));
+    }
+
+    /**
+     * @return la dernière séquence écrite, 0 si le journal est vide
+     */
+    public long lastSeq() {
+        return active.lastSeq();
+    }
+
+    public void force() {
+        segments.values().forEach(ChatLogSegment::force);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        for (ChatLogSegment segment : segments.values()) {
+            segment.close();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.repository;
+
+/**
+ * Enregistrement lu depuis le journal de chat d'un canal
+ * @param seq Numéro de séquence du message dans le canal
+ * @param timestamp Date d'écriture (millisecondes)
+ * @param payload Contenu brut du message (JSON UTF-8)
+ */
+public record ChatLogRecord(long seq, long timestamp, byte[] payload) {
+}
@@ -0,0 +1,98 @@
+package com.example.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stockage des messages de chat sur disque, un journal par canal
+ * Les journaux sont dans ${chat.log.dir}/{channelId}/ et sont ouverts à la première utilisation
+ */
+@Repository
+public class ChatLogRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatLogRepository.class);
+
+    private final Path baseDir;
+    private final int segmentBytes;
+    private final int indexEntries;
+    private final Map<Long, ChatLog> logs = new ConcurrentHashMap<>();
+
+    public ChatLogRepository(
+            @Value("${chat.log.dir:data/chat-log}") String baseDir,
+            @Value("${chat.log.segment-bytes:16777216}") int segmentBytes,
+            @Value("${chat.log.index-entries:262144}") int indexEntries
+    ) {
+        this.baseDir = Path.of(baseDir);
+        this.segmentBytes = segmentBytes;
+        this.indexEntries = indexEntries;
+    }
+
+    /**
+     * Récupère le journal d'un canal, en le créant si besoin
+     * @param channelId Identifiant du canal
+     * @return le journal du canal
+     */
+    public ChatLog getLog(Long channelId) {
+        return logs.computeIfAbsent(channelId, id -> {
+            try {
+                return ChatLog.open(baseDir.resolve(id.toString()), segmentBytes, indexEntries);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Récupère le journal d'un canal s'il est ouvert, sans l'ouvrir
+     * @param channelId Identifiant du canal
+     * @return le journal du canal, vide s'il n'est pas ouvert
+     */
+    public Optional<ChatLog> findOpenLog(Long channelId) {
+        return Optional.ofNullable(logs.get(channelId));
+    }
+
+    /**
+     * Ferme le journal d'un canal (il sera rouvert à la prochaine utilisation)
+     * @param channelId Identifiant du canal
+     */
+    public void close(Long channelId) {
+        ChatLog log = logs.remove(channelId);
+        if (log != null) {
+            try {
+                log.force();
+                log.close();
+            } catch (IOException e) {
+                logger.error("Erreur lors de la fermeture du journal du canal {}", channelId, e);
+            }
+        }
+    }
+
+    /**
+     * Force l'écriture sur disque de tous les journaux ouverts
+     */
+    public void flush() {
+        logs.values().forEach(ChatLog::force);
+    }
+
+    @PreDestroy
+    public void close() {
+        for (ChatLog log : logs.values()) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                logger.error("Erreur lors de la fermeture d'un journal de chat", e);
+            }
+        }
+        logs.clear();
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Segment du journal de chat : un fichier .log mappé en mémoire qui contient les messages
+ * et un fichier .idx qui contient, pour chaque séquence, la position de fin du message.
+ *
+ * Format d'un message : [timestamp (8 octets)][taille (4 octets)][contenu]
+ * Une entrée d'index à 0 signifie "pas encore écrite", ce qui permet de retrouver
+ * la position d'écriture au redémarrage sans fichier de métadonnées.
+ *
+ * Un seul thread écrit, les lectures se font en parallèle avec des accès absolus
+ * (le compteur volatile publie les messages écrits).
+ *
+ * Un segment scellé (plus aucune écriture) peut être compacté : il est réécrit avec les mêmes séquences
+ * dans des fichiers .compact, tronqués à leur taille utile, qui remplacent ensuite les fichiers du segment.
+ */
+class ChatLogSegment implements Closeable {
+    static final int RECORD_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final long baseSeq;
+    private final int maxEntries;
+    private final Path logPath;
+    private final FileChannel logChannel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer log;
+    private final MappedByteBuffer index;
+
+    private volatile int count;
+    private int writePosition;
+
+    private ChatLogSegment(long baseSeq, int maxEntries, Path logPath, FileChannel logChannel, FileChannel indexChannel,
+                           MappedByteBuffer log, MappedByteBuffer index) {
+        this.baseSeq = baseSeq;
+        this.maxEntries = maxEntries;
+        this.logPath = logPath;
+        this.logChannel = logChannel;
+        this.indexChannel = indexChannel;
+        this.log = log;
+        this.index = index;
+        recover();
+    }
+
+    /**
+     * Ouvre (ou crée) le segment qui commence à la séquence baseSeq
+     * @param sealed true pour un segment scellé : le fichier est mappé à sa taille actuelle (plus court s'il a été compacté)
+     */
+    static ChatLogSegment open(Path dir, long baseSeq, int segmentBytes, int maxEntries, boolean sealed) throws IOException {
+        return open(logPath(dir, baseSeq), indexPath(dir, baseSeq), baseSeq, segmentBytes, maxEntries, sealed);
+    }
+
+    /**
+     * Crée les fichiers .compact d'un segment, à remplir par append puis à fermer par seal
+     */
+    static ChatLogSegment createCompacted(Path dir, long baseSeq, int segmentBytes, int maxEntries) throws IOException {
+        Files.deleteIfExists(compactedPath(logPath(dir, baseSeq)));
+        Files.deleteIfExists(compactedPath(indexPath(dir, baseSeq)));
+        return open(compactedPath(logPath(dir, baseSeq)), compactedPath(indexPath(dir, baseSeq)),
+                baseSeq, segmentBytes, maxEntries, false);
+    }
+
+    private static ChatLogSegment open(Path logPath, Path indexPath, long baseSeq, int segmentBytes, int maxEntries,
+                                       boolean sealed) throws IOException {
+        FileChannel logChannel = FileChannel.open(logPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel indexChannel = FileChannel.open(indexPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long logBytes = sealed && logChannel.size() > 0 ? Math.min(logChannel.size(), segmentBytes) : segmentBytes;
+        MappedByteBuffer log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, logBytes);
+        MappedByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) maxEntries * Integer.BYTES);
+        return new ChatLogSegment(baseSeq, maxEntries, logPath, logChannel, indexChannel, log, index);
+    }
+
+    static Path logPath(Path dir, long baseSeq) {
+        return dir.resolve(String.format("%020d.log", baseSeq));
+    }
+
+    static Path indexPath(Path dir, long baseSeq) {
+        return dir.resolve(String.format("%020d.idx", baseSeq));
+    }
+
+    static Path compactedPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+
+    // Relit l'index pour retrouver le nombre de messages et la position d'écriture
+    private void recover() {
+        int n = 0;
+        int position = 0;
+        while (n < maxEntries) {
+            int end = index.getInt(n * Integer.BYTES);
+            if (end == 0) {
+                break;
+            }
+            position = end;
+            n++;
+        }
+        this.writePosition = position;
+        this.count = n;
+    }
+
+    boolean hasRoom(int payloadLength) {
+        return count < maxEntries && (long) writePosition + RECORD_HEADER_SIZE + payloadLength <= log.capacity();
+    }
+
+    /**
+     * Ajoute un message à la fin du segment (appelé uniquement par le thread d'écriture)
+     * @return la séquence attribuée au message
+     */
+    long append(long timestamp, byte[] payload) {
+        int position = writePosition;
+        log.putLong(position, timestamp);
+        log.putInt(position + Long.BYTES, payload.length);
+        log.put(position + RECORD_HEADER_SIZE, payload);
+        writePosition = position + RECORD_HEADER_SIZE + payload.length;
+
+        int n = count;
+        index.putInt(n * Integer.BYTES, writePosition);
+        count = n + 1;
+        return baseSeq + n;
+    }
+
+    /**
+     * Lit le message de séquence seq, qui doit appartenir à ce segment
+     */
+    ChatLogRecord read(long seq) {
+        int entry = (int) (seq - baseSeq);
+        int start = entry == 0 ? 0 : index.getInt((entry - 1) * Integer.BYTES);
+        long timestamp = log.getLong(start);
+        byte[] payload = new byte[log.getInt(start + Long.BYTES)];
+        log.get(start + RECORD_HEADER_SIZE, payload);
+        return new ChatLogRecord(seq, timestamp, payload);
+    }
+
+    boolean contains(long seq) {
+        return seq >= baseSeq && seq < baseSeq + count;
+    }
+
+    long baseSeq() {
+        return baseSeq;
+    }
+
+    /**
+     * @return la dernière séquence écrite, ou baseSeq - 1 si le segment est vide
+     */
+    long lastSeq() {
+        return baseSeq + count - 1;
+    }
+
+    /**
+     * @return la taille utile du fichier .log (en-têtes et contenus des messages)
+     */
+    int bytes() {
+        return writePosition;
+    }
+
+    void force() {
+        log.force();
+        index.force();
+    }
+
+    /**
+     * Ferme un segment qui ne sera plus écrit, son fichier .log est tronqué à sa taille utile
+     */
+    void seal() throws IOException {
+        close();
+        // Après la fermeture : plus aucune écriture dans la partie retirée du mapping
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+            channel.truncate(writePosition);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        logChannel.close();
+        indexChannel.close();
+    }
+}
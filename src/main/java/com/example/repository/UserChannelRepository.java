@@ -4,6 +4,8 @@ import com.example.model.Channel;
 import com.example.model.User;
 import com.example.model.UserChannel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,4 +17,8 @@ public interface UserChannelRepository extends JpaRepository<UserChannel, Long>
     List<UserChannel> findByChannel(Channel channel);
     Optional<UserChannel> findByUserAndChannel(User user, Channel channel);
     boolean existsByUserAndChannel(User user, Channel channel);
+
+    // Seulement les identifiants des membres (sans charger les entités UserChannel et User)
+    @Query("select uc.user.userId from UserChannel uc where uc.channel.channelId = :channelId")
+    List<Long> findUserIdsByChannelId(@Param("channelId") Long channelId);
 } 
\ No newline at end of file
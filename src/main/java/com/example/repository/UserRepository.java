@@ -1,13 +1,22 @@
 package com.example.repository;
 
 import com.example.model.User;
+import com.example.model.UserHandle;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // Identifiants de mention de plusieurs utilisateurs, sans charger les entités
+    @Query("select new com.example.model.UserHandle(u.userId, u.email, u.firstName, u.lastName) from User u where u.userId in :userIds")
+    List<UserHandle> findHandlesByUserIds(@Param("userIds") Collection<Long> userIds);
 } 
\ No newline at end of file
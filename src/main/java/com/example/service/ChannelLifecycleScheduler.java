@@ -0,0 +1,232 @@
+package com.example.service;
+
+import com.example.cluster.ClusterBus;
+import com.example.cluster.ClusterMessage;
+import com.example.cluster.ClusterPresence;
+import com.example.model.ChannelClosedFrame;
+import com.example.model.ChannelOpenedFrame;
+import com.example.model.ChannelSchedule;
+import com.example.repository.ChannelRepository;
+import com.example.util.HashedTimerWheel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ouverture et fermeture des canaux à leurs horaires (Channel.date et durationMinutes)
+ *
+ * Au démarrage, chaque canal qui n'est pas terminé est programmé sur une roue hachée (voir HashedTimerWheel) :
+ * - à son début, une trame CHANNEL_OPENED est diffusée
+ * - à sa fin, une trame CHANNEL_CLOSED est diffusée, puis tout l'état en mémoire du canal est libéré
+ *   (présence, sessions, membres, lots et tampon de rattrapage, journal ouvert, index de recherche)
+ * Un canal créé, modifié ou supprimé est reprogrammé après la validation de la transaction,
+ * sur cette instance et sur les autres (via le bus de cluster). Un canal supprimé est fermé immédiatement.
+ *
+ * Les canaux qui ne sont pas terminés sont exactement ceux qui sont programmés : une connexion ou un envoi
+ * vers un autre canal est refusé (voir checkNotEnded), l'état libéré à la fermeture n'est pas recréé.
+ */
+@Component
+public class ChannelLifecycleScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChannelLifecycleScheduler.class);
+
+    private final ChannelRepository channelRepository;
+    private final ChatBroadcaster chatBroadcaster;
+    private final ChatFrameEncoder chatFrameEncoder;
+    private final ClusterPresence clusterPresence;
+    private final PresenceAggregator presenceAggregator;
+    private final SessionRegistry sessionRegistry;
+    private final ChannelMembershipIndex channelMembershipIndex;
+    private final ChatHistoryService chatHistoryService;
+    private final ChatSearchService chatSearchService;
+    private final ClusterBus clusterBus;
+    private final HashedTimerWheel wheel;
+
+    private final Map<Long, Scheduled> scheduled = new ConcurrentHashMap<>();
+    // Canaux programmés au démarrage : avant, aucun canal n'est refusé
+    private volatile boolean ready;
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+
+    // Tâches programmées pour un canal (l'ouverture est absente si le canal a déjà commencé)
+    private static class Scheduled {
+        HashedTimerWheel.Timeout open;
+        HashedTimerWheel.Timeout close;
+
+        void cancel() {
+            if (open != null) {
+                open.cancel();
+            }
+            close.cancel();
+        }
+    }
+
+    public ChannelLifecycleScheduler(
+            ChannelRepository channelRepository,
+            ChatBroadcaster chatBroadcaster,
+            ChatFrameEncoder chatFrameEncoder,
+            ClusterPresence clusterPresence,
+            PresenceAggregator presenceAggregator,
+            SessionRegistry sessionRegistry,
+            ChannelMembershipIndex channelMembershipIndex,
+            ChatHistoryService chatHistoryService,
+            ChatSearchService chatSearchService,
+            ClusterBus clusterBus,
+            @Value("${chat.lifecycle.tick-ms:1000}") long tickMs,
+            @Value("${chat.lifecycle.wheel-size:4096}") int wheelSize
+    ) {
+        this.channelRepository = channelRepository;
+        this.chatBroadcaster = chatBroadcaster;
+        this.chatFrameEncoder = chatFrameEncoder;
+        this.clusterPresence = clusterPresence;
+        this.presenceAggregator = presenceAggregator;
+        this.sessionRegistry = sessionRegistry;
+        this.channelMembershipIndex = channelMembershipIndex;
+        this.chatHistoryService = chatHistoryService;
+        this.chatSearchService = chatSearchService;
+        this.clusterBus = clusterBus;
+        this.wheel = new HashedTimerWheel(tickMs, TimeUnit.MILLISECONDS, wheelSize, "chat-channel-lifecycle");
+        clusterBus.subscribe(message -> {
+            if (message instanceof ClusterMessage.Schedule schedule) {
+                reload(schedule.channelId());
+            }
+        });
+    }
+
+    /**
+     * Programme tous les canaux qui ne sont pas terminés
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleAll() {
+        List<ChannelSchedule> schedules = channelRepository.findAllSchedules();
+        schedules.forEach(this::schedule);
+        ready = true;
+        logger.info("{} canaux programmés", scheduled.size());
+    }
+
+    /**
+     * Vérifie qu'un canal n'est pas terminé, avant une connexion ou un envoi qui recréerait son état en mémoire
+     * @param channelId Identifiant du canal
+     * @throws IllegalArgumentException si le canal est terminé (ou n'existe pas)
+     */
+    public void checkNotEnded(Long channelId) {
+        if (ready && !scheduled.containsKey(channelId)) {
+            throw new IllegalArgumentException("Le canal est terminé");
+        }
+    }
+
+    /**
+     * Reprogramme un canal après la validation de la transaction en cours (création, modification, suppression),
+     * sur cette instance et sur les autres instances
+     * @param channelId Identifiant du canal
+     */
+    public void reschedule(Long channelId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload(channelId);
+                    clusterBus.publish(new ClusterMessage.Schedule(clusterBus.nodeId(), channelId));
+                }
+            });
+        } else {
+            reload(channelId);
+            clusterBus.publish(new ClusterMessage.Schedule(clusterBus.nodeId(), channelId));
+        }
+    }
+
+    // Relit les horaires du canal, un canal qui n'existe plus est fermé
+    private void reload(Long channelId) {
+        channelRepository.findScheduleByChannelId(channelId).ifPresentOrElse(this::schedule, () -> {
+            Scheduled previous = scheduled.remove(channelId);
+            if (previous != null) {
+                previous.cancel();
+            }
+            close(channelId, System.currentTimeMillis(), null);
+        });
+    }
+
+    /**
+     * Programme l'ouverture et la fermeture d'un canal, en remplaçant sa programmation précédente
+     * Un canal terminé n'est pas programmé
+     * @param schedule Horaires du canal
+     */
+    public void schedule(ChannelSchedule schedule) {
+        Long channelId = schedule.channelId();
+        long now = System.currentTimeMillis();
+        long start = toEpochMillis(schedule.date());
+        long end = toEpochMillis(schedule.end());
+
+        Scheduled entry = null;
+        if (end > now) {
+            entry = new Scheduled();
+            Scheduled self = entry;
+            if (start > now) {
+                entry.open = wheel.schedule(start - now, TimeUnit.MILLISECONDS, () -> open(channelId, start, end));
+            }
+            entry.close = wheel.schedule(end - now, TimeUnit.MILLISECONDS, () -> close(channelId, end, self));
+        }
+
+        Scheduled previous = entry != null ? scheduled.put(channelId, entry) : scheduled.remove(channelId);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void open(Long channelId, long start, long end) {
+        opened.increment();
+        chatBroadcaster.broadcastLocal(channelId, chatFrameEncoder.encode(new ChannelOpenedFrame(start, end)));
+    }
+
+    // Diffuse CHANNEL_CLOSED puis libère l'état du canal (entry : programmation exécutée, null si fermé directement)
+    private void close(Long channelId, long end, Scheduled entry) {
+        if (entry != null && !scheduled.remove(channelId, entry)) {
+            return;
+        }
+        closed.increment();
+        chatBroadcaster.broadcastLocal(channelId, chatFrameEncoder.encode(new ChannelClosedFrame(end)));
+
+        clusterPresence.evict(channelId);
+        presenceAggregator.evict(channelId);
+        sessionRegistry.evictChannel(channelId);
+        channelMembershipIndex.evict(channelId);
+        chatHistoryService.evict(channelId);
+        chatSearchService.evict(channelId);
+        // En dernier : après l'envoi de CHANNEL_CLOSED sur le thread du canal
+        chatBroadcaster.evict(channelId);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @return les canaux programmés, les tâches de la roue, et les canaux ouverts et fermés depuis le démarrage
+     */
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "scheduledChannels", (long) scheduled.size(),
+                "timers", (long) wheel.size(),
+                "opened", opened.sum(),
+                "closed", closed.sum());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.close();
+    }
+}
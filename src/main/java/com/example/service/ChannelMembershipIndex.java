@@ -0,0 +1,140 @@
+package com.example.service;
+
+import com.example.cluster.ClusterBus;
+import com.example.cluster.ClusterMessage;
+import com.example.model.UserHandle;
+import com.example.repository.ChannelRepository;
+import com.example.repository.UserChannelRepository;
+import com.example.repository.UserRepository;
+import com.example.util.MentionParser;
+import com.example.util.LongHashSet;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index en mémoire des membres de chaque canal (propriétaire et utilisateurs ayant accepté une invitation)
+ *
+ * Un canal est chargé au premier accès (trois requêtes qui ne lisent que des identifiants et les noms des membres),
+ * ensuite la vérification d'accès et la résolution des mentions ne font plus aucun aller-retour vers la base.
+ * L'entrée d'un canal est invalidée quand ses membres changent (acceptInvitation, createChannel, deleteChannel)
+ * ou quand un membre change de nom ou d'email, sur cette instance et sur les autres instances (via le bus de cluster).
+ */
+@Component
+public class ChannelMembershipIndex {
+    private final ChannelRepository channelRepository;
+    private final UserChannelRepository userChannelRepository;
+    private final UserRepository userRepository;
+    private final ClusterBus clusterBus;
+
+    private final Map<Long, Members> members = new ConcurrentHashMap<>();
+
+    // Incrémenté à chaque invalidation, sous le verrou de l'entrée du canal : un chargement commencé avant n'est pas mis en cache
+    private final AtomicLong generation = new AtomicLong();
+
+    // Membres d'un canal et leurs identifiants de mention (prenom.nom et email), non modifiés après leur construction
+    private record Members(long ownerId, LongHashSet userIds, Map<String, UserHandle> handles) {
+        boolean contains(long userId) {
+            return ownerId == userId || userIds.contains(userId);
+        }
+    }
+
+    public ChannelMembershipIndex(ChannelRepository channelRepository, UserChannelRepository userChannelRepository,
+                                  UserRepository userRepository, ClusterBus clusterBus) {
+        this.channelRepository = channelRepository;
+        this.userChannelRepository = userChannelRepository;
+        this.userRepository = userRepository;
+        this.clusterBus = clusterBus;
+        clusterBus.subscribe(message -> {
+            if (message instanceof ClusterMessage.Membership membership) {
+                evict(membership.channelId());
+            }
+        });
+    }
+
+    /**
+     * Vérifie qu'un utilisateur est membre (ou propriétaire) d'un canal
+     * @throws IllegalArgumentException si le canal n'existe pas
+     */
+    public boolean isMember(Long channelId, long userId) {
+        return get(channelId).contains(userId);
+    }
+
+    /**
+     * Résout une mention parmi les membres d'un canal
+     * @param channelId Identifiant du canal
+     * @param handle Mention en minuscules, sans le @ (prenom.nom ou email)
+     * @return le membre mentionné, null si aucun membre ne correspond
+     * @throws IllegalArgumentException si le canal n'existe pas
+     */
+    public UserHandle resolveMention(Long channelId, String handle) {
+        return get(channelId).handles().get(handle);
+    }
+
+    private Members get(Long channelId) {
+        Members channel = members.get(channelId);
+        return channel != null ? channel : load(channelId);
+    }
+
+    private Members load(Long channelId) {
+        long loadedGeneration = generation.get();
+        long ownerId = channelRepository.findOwnerIdByChannelId(channelId)
+                .orElseThrow(() -> new IllegalArgumentException("Channel pas trouvé"));
+        List<Long> userIds = userChannelRepository.findUserIdsByChannelId(channelId);
+        LongHashSet set = new LongHashSet(userIds.size());
+        userIds.forEach(set::add);
+
+        List<Long> memberIds = new ArrayList<>(userIds);
+        memberIds.add(ownerId);
+        Map<String, UserHandle> handles = new HashMap<>();
+        for (UserHandle user : userRepository.findHandlesByUserIds(memberIds)) {
+            handles.put(user.email().toLowerCase(Locale.ROOT), user);
+            // Deux membres homonymes : le premier garde la mention, l'autre reste joignable par son email
+            handles.putIfAbsent(MentionParser.handle(user.firstName(), user.lastName()), user);
+        }
+
+        Members channel = new Members(ownerId, set, handles);
+        // Vérifié sous le verrou de l'entrée : une invalidation du canal passe avant (pas de mise en cache) ou après (retire l'entrée)
+        Members cached = members.compute(channelId, (id, current) ->
+                current != null ? current : generation.get() == loadedGeneration ? channel : null);
+        return cached != null ? cached : channel;
+    }
+
+    /**
+     * Invalide les membres d'un canal, maintenant et après la validation de la transaction en cours
+     * @param channelId Identifiant du canal
+     */
+    public void invalidate(Long channelId) {
+        evict(channelId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(channelId);
+                    clusterBus.publish(new ClusterMessage.Membership(clusterBus.nodeId(), channelId));
+                }
+            });
+        } else {
+            clusterBus.publish(new ClusterMessage.Membership(clusterBus.nodeId(), channelId));
+        }
+    }
+
+    /**
+     * Oublie les membres d'un canal sur cette instance seulement (canal terminé, chaque instance ferme ses canaux)
+     * @param channelId Identifiant du canal
+     */
+    public void evict(Long channelId) {
+        members.compute(channelId, (id, current) -> {
+            generation.incrementAndGet();
+            return null;
+        });
+    }
+}
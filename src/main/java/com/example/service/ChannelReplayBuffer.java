@@ -0,0 +1,195 @@
+package com.example.service;
+
+import com.example.model.ReplayFrame;
+import com.example.util.FrameRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dernières trames diffusées sur chaque canal, pour rattraper une reconnexion sans lire l'historique
+ *
+ * Chaque trame STOMP envoyée sur /topic/chat/{channelId} reçoit une séquence propre au canal (header seq)
+ * et est gardée dans un tampon circulaire préalloué (voir FrameRing). Un client qui se reconnecte envoie
+ * la dernière séquence reçue et reçoit les trames manquées depuis la mémoire.
+ *
+ * La mémoire de tous les tampons est bornée (chat.replay.max-memory) : au-delà, les tampons des canaux
+ * inactifs depuis le plus longtemps sont libérés. Leurs séquences continuent, un client qui demande
+ * des trames libérées est prévenu qu'il doit recharger l'historique.
+ *
+ * Les séquences sont propres à cette instance : les trames reçues des autres instances (bus de cluster)
+ * sont numérotées à leur diffusion locale, comme les autres.
+ *
+ * Cette séquence (header STOMP seq) n'est pas celle du journal (champ seq des messages TEXT, FILE, EDIT, DELETE,
+ * voir ChatHistoryService) : elle numérote toutes les trames du topic, présence et lots compris, et ne sert qu'au
+ * rattrapage (/app/chat/{id}/resume). Les clients utilisent le champ seq des messages pour l'ordre d'affichage,
+ * l'historique, les modifications et les suppressions.
+ */
+@Component
+public class ChannelReplayBuffer {
+    private final int framesPerChannel;
+    private final long maxBytes;
+
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder incompleteReplays = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Tampon d'un canal, libéré (frames = null) quand la mémoire manque, la séquence est conservée
+    private static class Ring {
+        FrameRing frames;
+        long lastSeq;
+        long lastAppendNanos;
+    }
+
+    public ChannelReplayBuffer(
+            @Value("${chat.replay.frames-per-channel:256}") int framesPerChannel,
+            @Value("${chat.replay.max-memory:64MB}") DataSize maxMemory
+    ) {
+        if (framesPerChannel <= 0) {
+            throw new IllegalArgumentException("chat.replay.frames-per-channel doit être positif");
+        }
+        this.framesPerChannel = framesPerChannel;
+        this.maxBytes = maxMemory.toBytes();
+    }
+
+    /**
+     * Attribue la séquence suivante du canal à une trame et la garde pour un rattrapage
+     * La trame est envoyée par l'appelant, après le retour : c'est à lui d'envoyer les trames d'un canal
+     * dans l'ordre de leurs séquences (voir ChatBroadcaster)
+     * @param channelId Identifiant du canal
+     * @param payload Trame STOMP diffusée (un message ou un lot)
+     * @return la séquence de la trame
+     */
+    public long append(Long channelId, byte[] payload) {
+        Ring ring = rings.computeIfAbsent(channelId, id -> new Ring());
+        long seq;
+        long added;
+        synchronized (ring) {
+            if (ring.frames == null) {
+                ring.frames = new FrameRing(framesPerChannel, ring.lastSeq + 1);
+                totalBytes.addAndGet(ring.frames.slotBytes());
+            }
+            long before = ring.frames.bytes();
+            seq = ring.frames.append(payload);
+            ring.lastSeq = seq;
+            ring.lastAppendNanos = System.nanoTime();
+            added = ring.frames.bytes() - before;
+        }
+        if (totalBytes.addAndGet(added) > maxBytes) {
+            evictColdest(ring);
+        }
+        return seq;
+    }
+
+    /**
+     * Trames diffusées sur le canal après la séquence afterSeq
+     * @param channelId Identifiant du canal
+     * @param afterSeq Dernière séquence reçue par le client
+     * @return les trames manquées, ou complete = false si elles ne sont plus toutes en mémoire
+     */
+    public ReplayFrame since(Long channelId, long afterSeq) {
+        replays.increment();
+        Ring ring = rings.get(channelId);
+        if (ring == null) {
+            incompleteReplays.increment();
+            return new ReplayFrame(channelId, false, 0, 0, "[]");
+        }
+        List<byte[]> frames;
+        long lastSeq;
+        synchronized (ring) {
+            lastSeq = ring.lastSeq;
+            frames = ring.frames != null ? ring.frames.since(afterSeq) : null;
+        }
+        if (frames == null) {
+            incompleteReplays.increment();
+            return new ReplayFrame(channelId, false, lastSeq + 1, lastSeq, "[]");
+        }
+        return new ReplayFrame(channelId, true, afterSeq + 1, lastSeq, toJsonArray(frames));
+    }
+
+    // Les trames sont déjà du JSON : [trame1,trame2,...]
+    private static String toJsonArray(List<byte[]> frames) {
+        StringBuilder json = new StringBuilder("[");
+        for (byte[] frame : frames) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(new String(frame, StandardCharsets.UTF_8));
+        }
+        return json.append(']').toString();
+    }
+
+    // Libère les tampons des canaux inactifs depuis le plus longtemps jusqu'à repasser sous la limite
+    // (parcours de tous les canaux, mais chaque parcours libère un tampon entier)
+    private void evictColdest(Ring current) {
+        while (totalBytes.get() > maxBytes) {
+            Ring coldest = null;
+            long coldestNanos = 0;
+            for (Ring ring : rings.values()) {
+                if (ring == current) {
+                    continue;
+                }
+                long appendNanos;
+                synchronized (ring) {
+                    if (ring.frames == null) {
+                        continue;
+                    }
+                    appendNanos = ring.lastAppendNanos;
+                }
+                if (coldest == null || appendNanos - coldestNanos < 0) {
+                    coldest = ring;
+                    coldestNanos = appendNanos;
+                }
+            }
+            // Le canal courant n'est libéré qu'en dernier recours
+            Ring victim = coldest != null ? coldest : current;
+            release(victim);
+            evictions.increment();
+            if (victim == current) {
+                return;
+            }
+        }
+    }
+
+    private void release(Ring ring) {
+        synchronized (ring) {
+            if (ring.frames != null) {
+                totalBytes.addAndGet(-ring.frames.clear() - ring.frames.slotBytes());
+                ring.frames = null;
+            }
+        }
+    }
+
+    /**
+     * Oublie un canal (tampon et séquence)
+     * @param channelId Identifiant du canal
+     */
+    public void evict(Long channelId) {
+        Ring ring = rings.remove(channelId);
+        if (ring != null) {
+            release(ring);
+        }
+    }
+
+    /**
+     * @return l'état des tampons : canaux, mémoire utilisée, rattrapages et libérations
+     */
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "channels", (long) rings.size(),
+                "bytes", totalBytes.get(),
+                "maxBytes", maxBytes,
+                "replays", replays.sum(),
+                "incompleteReplays", incompleteReplays.sum(),
+                "evictions", evictions.sum());
+    }
+}
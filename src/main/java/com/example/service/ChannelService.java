@@ -28,18 +28,24 @@ public class ChannelService {
     private final UserRepository userRepository;
     private final UserChannelRepository userChannelRepository;
     private final InvitationRepository invitationRepository;
+    private final ChannelMembershipIndex channelMembershipIndex;
+    private final ChannelLifecycleScheduler channelLifecycleScheduler;
 
     @Autowired
     public ChannelService(
             ChannelRepository channelRepository,
             UserRepository userRepository,
             UserChannelRepository userChannelRepository,
-            InvitationRepository invitationRepository
+            InvitationRepository invitationRepository,
+            ChannelMembershipIndex channelMembershipIndex,
+            ChannelLifecycleScheduler channelLifecycleScheduler
     ) {
         this.channelRepository = channelRepository;
         this.userRepository = userRepository;
         this.userChannelRepository = userChannelRepository;
         this.invitationRepository = invitationRepository;
+        this.channelMembershipIndex = channelMembershipIndex;
+        this.channelLifecycleScheduler = channelLifecycleScheduler;
     }
 
     /**
@@ -89,6 +95,8 @@ public class ChannelService {
         userChannel.setUser(owner);
         userChannel.setChannel(savedChannel);
         userChannelRepository.save(userChannel);
+        channelMembershipIndex.invalidate(savedChannel.getChannelId());
+        channelLifecycleScheduler.reschedule(savedChannel.getChannelId());
 
         return savedChannel;
     }
@@ -141,12 +149,16 @@ public class ChannelService {
         channel.setDate(date);
         channel.setDurationMinutes(durationMinutes);
 
-        // Sauvegarde du channel
-        return channelRepository.save(channel);
+        // Sauvegarde du channel, puis reprogrammation de son ouverture et de sa fermeture
+        Channel savedChannel = channelRepository.save(channel);
+        channelLifecycleScheduler.reschedule(id);
+        return savedChannel;
     }
 
     public void deleteChannel(Long id) {
         channelRepository.deleteById(id);
+        channelMembershipIndex.invalidate(id);
+        channelLifecycleScheduler.reschedule(id);
     }
 
     // Get channel invitations
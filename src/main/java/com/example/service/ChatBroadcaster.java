@@ -0,0 +1,322 @@
+package com.example.service;
+
+import com.example.cluster.ClusterBus;
+import com.example.cluster.ClusterMessage;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diffusion des messages sur /topic/chat/{channelId}
+ *
+ * Par défaut chaque message part dans sa propre trame STOMP. Avec chat.broadcast.batch.enabled=true,
+ * les messages d'un même canal sont regroupés pendant une courte fenêtre (ou jusqu'à N messages)
+ * et envoyés dans une seule trame contenant un tableau JSON :
+ * - un canal inactif envoie son premier message immédiatement (pas de latence ajoutée)
+ * - les messages suivants dans la fenêtre sont mis en attente
+ * - le lot est envoyé dès qu'il atteint N messages, ou à la fin de la fenêtre si le canal redevient inactif
+ *
+ * Les trames sont déjà encodées : le broker transmet les mêmes octets à chaque abonné,
+ * sans conversion Jackson par envoi.
+ *
+ * En mode chat.broker.mode=sharded, la diffusion d'un canal se fait toujours sur le même
+ * thread (voir ShardedBrokerDispatcher), ce qui garantit l'ordre des messages du canal.
+ *
+ * Chaque trame est aussi publiée sur le bus de cluster (voir ClusterBus) : les autres instances
+ * la diffusent à leurs propres abonnés, sans la republier. Les trames destinées à un utilisateur
+ * (mentions) sont relayées de la même façon à ses sessions des autres instances (voir sendToUserInCluster).
+ *
+ * Chaque trame STOMP envoyée porte une séquence propre au canal (header seq) et est gardée
+ * pour le rattrapage des clients qui se reconnectent (voir ChannelReplayBuffer). Cette séquence ne sert
+ * qu'au rattrapage, ce n'est pas celle du journal (champ seq des messages).
+ */
+@Service
+public class ChatBroadcaster {
+    private final SimpMessagingTemplate messagingTemplate;
+    private final boolean batchEnabled;
+    private final long windowMs;
+    private final int maxMessages;
+    private final ShardedBrokerDispatcher dispatcher;
+    private final ClusterBus clusterBus;
+    private final ChannelReplayBuffer replayBuffer;
+
+    private final Map<Long, Batch> batches = new ConcurrentHashMap<>();
+    // Sans shards : verrou d'envoi de chaque canal, les trames partent dans l'ordre de leurs séquences
+    private final Map<Long, Object> sendLocks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-batch-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Compteurs pour comparer le nombre de messages et le nombre de trames envoyées
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder framesOut = new LongAdder();
+    private final LongAdder remoteMessagesIn = new LongAdder();
+
+    // Lot en attente pour un canal
+    private static class Batch {
+        final List<EncodedFrame> pending = new ArrayList<>();
+        int pendingBytes;
+        ScheduledFuture<?> flushTask;
+        long lastFlushNanos;
+    }
+
+    @Autowired
+    public ChatBroadcaster(
+            SimpMessagingTemplate messagingTemplate,
+            ObjectProvider<ShardedBrokerDispatcher> dispatcher,
+            ClusterBus clusterBus,
+            ChannelReplayBuffer replayBuffer,
+            @Value("${chat.broadcast.batch.enabled:false}") boolean batchEnabled,
+            @Value("${chat.broadcast.batch.window-ms:5}") long windowMs,
+            @Value("${chat.broadcast.batch.max-messages:32}") int maxMessages
+    ) {
+        this(messagingTemplate, dispatcher.getIfAvailable(), clusterBus, replayBuffer, batchEnabled, windowMs, maxMessages);
+    }
+
+    /**
+     * @param dispatcher Shards de diffusion, null pour diffuser sur le thread appelant
+     * @param clusterBus Bus vers les autres instances
+     * @param replayBuffer Séquences et dernières trames de chaque canal
+     */
+    public ChatBroadcaster(SimpMessagingTemplate messagingTemplate, ShardedBrokerDispatcher dispatcher, ClusterBus clusterBus,
+                           ChannelReplayBuffer replayBuffer, boolean batchEnabled, long windowMs, int maxMessages) {
+        this.messagingTemplate = messagingTemplate;
+        this.dispatcher = dispatcher;
+        this.clusterBus = clusterBus;
+        this.replayBuffer = replayBuffer;
+        this.batchEnabled = batchEnabled;
+        this.windowMs = windowMs;
+        this.maxMessages = maxMessages;
+        clusterBus.subscribe(this::onClusterMessage);
+    }
+
+    /**
+     * Diffuse un message à tous les clients abonnés au canal
+     * @param channelId Identifiant du canal
+     * @param frame Trame encodée à diffuser
+     */
+    public void broadcast(Long channelId, EncodedFrame frame) {
+        broadcastLocal(channelId, frame);
+        clusterBus.publish(new ClusterMessage.Frame(clusterBus.nodeId(), channelId, frame.payload()));
+    }
+
+    /**
+     * Diffuse un message aux seuls clients connectés à cette instance (pas de publication sur le bus)
+     * @param channelId Identifiant du canal
+     * @param frame Trame encodée à diffuser
+     */
+    public void broadcastLocal(Long channelId, EncodedFrame frame) {
+        messagesIn.increment();
+        onChannelThread(channelId, () -> doBroadcast(channelId, frame));
+    }
+
+    // Trame publiée par une autre instance : diffusion aux abonnés locaux uniquement
+    private void onClusterMessage(ClusterMessage message) {
+        if (message instanceof ClusterMessage.Frame remote) {
+            remoteMessagesIn.increment();
+            EncodedFrame frame = new EncodedFrame(null, remote.payload());
+            onChannelThread(remote.channelId(), () -> doBroadcast(remote.channelId(), frame));
+        } else if (message instanceof ClusterMessage.UserFrame remote) {
+            remoteMessagesIn.increment();
+            sendToUser(remote.username(), null, remote.destination(), new EncodedFrame(null, remote.payload()));
+        }
+    }
+
+    // Exécute la tâche sur le shard du canal, ou directement sans shards
+    private void onChannelThread(Long channelId, Runnable task) {
+        if (dispatcher != null) {
+            dispatcher.execute(channelId, task);
+        } else {
+            task.run();
+        }
+    }
+
+    private void doBroadcast(Long channelId, EncodedFrame frame) {
+        if (!batchEnabled) {
+            send(channelId, frame.payload());
+            return;
+        }
+
+        Batch batch = batches.computeIfAbsent(channelId, id -> new Batch());
+        synchronized (batch) {
+            long now = System.nanoTime();
+            boolean idle = batch.pending.isEmpty() && now - batch.lastFlushNanos > TimeUnit.MILLISECONDS.toNanos(windowMs);
+            if (idle) {
+                // Canal inactif : envoi immédiat, les messages suivants de la fenêtre seront regroupés
+                batch.lastFlushNanos = now;
+                send(channelId, frame.payload());
+                return;
+            }
+
+            batch.pending.add(frame);
+            batch.pendingBytes += frame.payload().length;
+            if (batch.pending.size() >= maxMessages) {
+                flush(channelId, batch);
+            } else if (batch.flushTask == null) {
+                batch.flushTask = flusher.schedule(
+                        () -> onChannelThread(channelId, () -> flushOnIdle(channelId, batch)), windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Fin de la fenêtre : envoi de ce qui reste en attente
+    private void flushOnIdle(Long channelId, Batch batch) {
+        synchronized (batch) {
+            batch.flushTask = null;
+            flush(channelId, batch);
+        }
+    }
+
+    // Envoie le lot en attente (appelé avec le verrou du lot)
+    private void flush(Long channelId, Batch batch) {
+        if (batch.flushTask != null) {
+            batch.flushTask.cancel(false);
+            batch.flushTask = null;
+        }
+        batch.lastFlushNanos = System.nanoTime();
+        if (batch.pending.isEmpty()) {
+            return;
+        }
+        if (batch.pending.size() == 1) {
+            send(channelId, batch.pending.get(0).payload());
+        } else {
+            send(channelId, toJsonArray(batch.pending, batch.pendingBytes));
+        }
+        batch.pending.clear();
+        batch.pendingBytes = 0;
+    }
+
+    // Concatène les JSON des trames dans un tableau : [trame1,trame2,...]
+    private static byte[] toJsonArray(List<EncodedFrame> frames, int totalBytes) {
+        byte[] array = new byte[totalBytes + frames.size() + 1];
+        int position = 0;
+        for (EncodedFrame frame : frames) {
+            array[position] = (byte) (position == 0 ? '[' : ',');
+            position++;
+            System.arraycopy(frame.payload(), 0, array, position, frame.payload().length);
+            position += frame.payload().length;
+        }
+        array[position] = ']';
+        return array;
+    }
+
+    private void send(Long channelId, byte[] payload) {
+        if (dispatcher != null) {
+            // Thread du canal : les envois du canal sont déjà dans l'ordre
+            sendInOrder(channelId, payload);
+            return;
+        }
+        synchronized (sendLocks.computeIfAbsent(channelId, id -> new Object())) {
+            sendInOrder(channelId, payload);
+        }
+    }
+
+    // La séquence est attribuée sous le verrou du tampon de rattrapage, l'envoi se fait après sa libération
+    private void sendInOrder(Long channelId, byte[] payload) {
+        long seq = replayBuffer.append(channelId, payload);
+        framesOut.increment();
+        messagingTemplate.send("/topic/chat/" + channelId, toMessage(payload, null, seq));
+    }
+
+    /**
+     * Envoie une trame à un utilisateur sur /user/queue/..., à une seule de ses sessions si sessionId est donné
+     * @param username Nom de l'utilisateur (Principal de la session)
+     * @param sessionId Session destinataire, null pour toutes les sessions de l'utilisateur
+     * @param destination Destination sans le préfixe /user (ex : /queue/errors)
+     * @param frame Trame encodée à envoyer
+     */
+    public void sendToUser(String username, String sessionId, String destination, EncodedFrame frame) {
+        framesOut.increment();
+        Message<byte[]> message = toMessage(frame.payload(), sessionId, 0);
+        messagingTemplate.send("/user/" + username.replace("/", "%2F") + destination, message);
+    }
+
+    /**
+     * Envoie une trame à toutes les sessions d'un utilisateur, sur cette instance et sur les autres (via le bus)
+     * @param username Nom de l'utilisateur (Principal de la session)
+     * @param destination Destination sans le préfixe /user (ex : /queue/mentions)
+     * @param frame Trame encodée à envoyer
+     */
+    public void sendToUserInCluster(String username, String destination, EncodedFrame frame) {
+        sendToUser(username, null, destination, frame);
+        clusterBus.publish(new ClusterMessage.UserFrame(clusterBus.nodeId(), username, destination, frame.payload()));
+    }
+
+    // Message STOMP dont le contenu est déjà du JSON (pas de conversion par le template)
+    // sessionId : session destinataire (null pour tous), seq : séquence du canal (0 pour aucune)
+    private static Message<byte[]> toMessage(byte[] payload, String sessionId, long seq) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (sessionId != null) {
+            accessor.setSessionId(sessionId);
+        }
+        if (seq > 0) {
+            accessor.setNativeHeader("seq", Long.toString(seq));
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    /**
+     * Oublie un canal terminé : le lot en attente est envoyé, puis le lot et le tampon de rattrapage sont supprimés
+     * Exécuté sur le thread du canal, après les diffusions déjà demandées (dont CHANNEL_CLOSED)
+     * @param channelId Identifiant du canal
+     */
+    public void evict(Long channelId) {
+        onChannelThread(channelId, () -> {
+            Batch batch = batches.remove(channelId);
+            if (batch != null) {
+                synchronized (batch) {
+                    flush(channelId, batch);
+                }
+            }
+            replayBuffer.evict(channelId);
+            sendLocks.remove(channelId);
+        });
+    }
+
+    public long getMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    public long getFramesOut() {
+        return framesOut.sum();
+    }
+
+    public long getRemoteMessagesIn() {
+        return remoteMessagesIn.sum();
+    }
+
+    /**
+     * Envoie tous les lots en attente avant l'arrêt de l'application
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        batches.forEach((channelId, batch) -> {
+            synchronized (batch) {
+                flush(channelId, batch);
+            }
+        });
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.service;
+
+import com.example.model.ChannelSchedule;
+import com.example.repository.ChannelRepository;
+import com.example.repository.ChatLog;
+import com.example.repository.ChatLogRecord;
+import com.example.repository.ChatLogRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export de l'historique complet d'un canal terminé, pour l'archiver
+ *
+ * Les trames du journal sont écrites telles quelles, une par ligne (NDJSON), compressées en gzip directement
+ * dans le flux de la réponse : la mémoire utilisée est constante (deux tampons de BUFFER_SIZE), quelle que soit
+ * la taille du journal, et aucune trame n'est décodée. Le journal est lu sans verrou et sans passer par
+ * le thread d'écriture : l'export ne ralentit pas les envois des autres canaux. Les messages vidés par le compactage
+ * sont omis, les modifications et suppressions pas encore compactées sont exportées comme dans l'historique.
+ *
+ * Les exports tournent sur un pool dédié (chat.export.threads, file de chat.export.queue-size), pas sur l'exécuteur
+ * partagé de Spring MVC : quelques exports volumineux ou clients lents ne bloquent pas les autres tâches asynchrones.
+ * Un export qui dépasse chat.export.timeout est interrompu.
+ */
+@Service
+public class ChatExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatExportService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ChannelRepository channelRepository;
+    private final ChatLogRepository chatLogRepository;
+    private final ChatHistoryService chatHistoryService;
+    private final long timeoutMs;
+
+    // Pool des exports : nombre de threads fixe, file bornée (un export de trop est refusé)
+    private final ThreadPoolExecutor exporters;
+    private final AsyncTaskExecutor exportExecutor;
+
+    public ChatExportService(
+            ChannelRepository channelRepository,
+            ChatLogRepository chatLogRepository,
+            ChatHistoryService chatHistoryService,
+            @Value("${chat.export.threads:2}") int threads,
+            @Value("${chat.export.queue-size:8}") int queueSize,
+            @Value("${chat.export.timeout:1h}") Duration timeout
+    ) {
+        this.channelRepository = channelRepository;
+        this.chatLogRepository = chatLogRepository;
+        this.chatHistoryService = chatHistoryService;
+        this.timeoutMs = timeout.toMillis();
+        AtomicInteger count = new AtomicInteger();
+        this.exporters = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "chat-export-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.exportExecutor = new TaskExecutorAdapter(exporters);
+    }
+
+    /**
+     * @return l'exécuteur des exports (une tâche refusée lève TaskRejectedException)
+     */
+    public AsyncTaskExecutor getExecutor() {
+        return exportExecutor;
+    }
+
+    /**
+     * @return la durée maximale d'un export, en millisecondes
+     */
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Vérifie qu'un canal peut être exporté, avant d'envoyer la réponse
+     * @param channelId Identifiant du canal
+     * @throws IllegalArgumentException si le canal n'existe pas ou n'est pas terminé
+     */
+    public void checkExportable(Long channelId) {
+        ChannelSchedule schedule = channelRepository.findScheduleByChannelId(channelId)
+                .orElseThrow(() -> new IllegalArgumentException("Canal introuvable"));
+        if (schedule.end().isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Le canal n'est pas terminé, il ne peut pas encore être archivé");
+        }
+    }
+
+    /**
+     * Écrit l'historique du canal en NDJSON compressé (gzip) dans out
+     * Le journal, s'il n'était pas ouvert, est refermé à la fin de l'export
+     * @param channelId Identifiant du canal
+     * @param out Flux de la réponse (pas fermé, seulement terminé)
+     * @return le nombre de trames exportées
+     * @throws IOException si l'écriture échoue (client déconnecté) ou si le thread est interrompu : l'export est arrêté
+     */
+    public long export(Long channelId, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        boolean wasOpen = chatLogRepository.findOpenLog(channelId).isPresent();
+        long exported = 0;
+        try {
+            ChatLog log = chatLogRepository.getLog(channelId);
+            long lastSeq = log.lastSeq();
+            GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+            BufferedOutputStream buffered = new BufferedOutputStream(gzip, BUFFER_SIZE);
+            for (long seq = log.firstSeq(); seq <= lastSeq; seq++) {
+                // Export annulé (délai dépassé, arrêt de l'application)
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Export du canal " + channelId + " interrompu");
+                }
+                Optional<ChatLogRecord> record = log.read(seq);
+                if (record.isEmpty() || record.get().payload().length == 0) {
+                    continue;
+                }
+                buffered.write(record.get().payload());
+                buffered.write('\n');
+                exported++;
+            }
+            buffered.flush();
+            gzip.finish();
+        } finally {
+            if (!wasOpen) {
+                // Fermé par le thread d'écriture, après les éventuelles écritures en attente
+                chatHistoryService.evict(channelId);
+            }
+        }
+        logger.info("Historique du canal {} exporté : {} trames en {} ms", channelId, exported, System.currentTimeMillis() - start);
+        return exported;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        exporters.shutdownNow();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.service;
+
+import com.example.model.ChatFrame;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sérialise les trames de chat en JSON avec un ObjectWriter réutilisé (immuable et thread-safe)
+ */
+@Component
+public class ChatFrameEncoder {
+    private final ObjectWriter writer;
+
+    public ChatFrameEncoder(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer();
+    }
+
+    /**
+     * Encode une trame une seule fois, avant sa diffusion
+     * @param frame Trame à encoder
+     * @return la trame et son JSON
+     */
+    public EncodedFrame encode(ChatFrame frame) {
+        try {
+            return new EncodedFrame(frame, writer.writeValueAsBytes(frame));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Impossible de sérialiser la trame " + frame.type(), e);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.service;
+
+import com.example.cluster.ClusterBus;
+import com.example.cluster.ClusterMessage;
+import com.example.model.ChatFrame;
+import com.example.model.ChatHistoryPage;
+import com.example.model.DeleteFrame;
+import com.example.model.EditFrame;
+import com.example.model.TextFrame;
+import com.example.repository.ChatLog;
+import com.example.repository.ChatLogRecord;
+import com.example.repository.ChatLogRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Service pour l'historique des messages de chat
+ * Les messages sont ajoutés au journal du canal par un thread dédié, pour ne jamais
+ * bloquer le thread qui diffuse les messages aux clients
+ *
+ * Chaque message reçoit la séquence qu'il aura dans le journal, avant sa diffusion : les clients
+ * détectent ainsi les messages manquants ou désordonnés, et la complètent depuis l'historique.
+ * Pas de verrou global : les canaux sont répartis sur des verrous (striping), l'attribution de la séquence
+ * et la mise en file de l'écriture se font sous le verrou du canal, dans le même ordre.
+ *
+ * Les modifications et suppressions sont ajoutées au journal comme les autres trames ; le compacteur
+ * les applique ensuite aux messages d'origine (voir ChatLogCompactor). Les messages vidés par le compactage
+ * gardent leur séquence mais ne sont plus renvoyés.
+ *
+ * Plusieurs instances (chat.cluster.bus autre que local) : chaque trame écrite est publiée sur le bus avec sa séquence,
+ * les autres instances l'écrivent dans leur propre journal sous la même séquence et reprennent leur numérotation
+ * après elle. Deux envois sur deux instances différentes, à moins d'un délai du bus l'un de l'autre, peuvent
+ * recevoir la même séquence : chaque journal garde la première trame écrite et ignore l'autre (avertissement).
+ * Pour une séquence strictement unique, les sessions d'un même canal doivent être servies par la même instance.
+ */
+@Service
+public class ChatHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatHistoryService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final int STRIPES = 64;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ChatLogRepository chatLogRepository;
+    private final ChatFrameEncoder chatFrameEncoder;
+    private final ChatSearchService chatSearchService;
+    private final ChatLogCompactor chatLogCompactor;
+    private final ObjectMapper objectMapper;
+    private final ClusterBus clusterBus;
+
+    // Verrous des canaux et dernière séquence attribuée par canal (modifiée sous le verrou du canal)
+    private final Object[] stripes = new Object[STRIPES];
+    private final Map<Long, long[]> lastSeqs = new ConcurrentHashMap<>();
+    // Incrémenté à chaque fermeture de canal et à chaque trame reçue d'une autre instance pour un canal pas encore
+    // en mémoire (sous son verrou) : une lecture de séquence commencée avant est ignorée
+    private final AtomicLong resets = new AtomicLong();
+
+    // Un seul thread d'écriture : l'ordre des messages d'un canal est conservé
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-log-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChatHistoryService(
+            ChatLogRepository chatLogRepository,
+            ChatFrameEncoder chatFrameEncoder,
+            ChatSearchService chatSearchService,
+            ChatLogCompactor chatLogCompactor,
+            ObjectMapper objectMapper,
+            ClusterBus clusterBus,
+            @Value("${chat.log.flush-interval-ms:1000}") long flushIntervalMs
+    ) {
+        this.chatLogRepository = chatLogRepository;
+        this.chatFrameEncoder = chatFrameEncoder;
+        this.chatSearchService = chatSearchService;
+        this.chatLogCompactor = chatLogCompactor;
+        this.objectMapper = objectMapper;
+        this.clusterBus = clusterBus;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        writer.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        clusterBus.subscribe(message -> {
+            if (message instanceof ClusterMessage.Logged logged) {
+                appendRemote(logged);
+            }
+        });
+    }
+
+    /**
+     * Attribue au message la séquence suivante du canal, l'encode et l'ajoute à l'historique de manière asynchrone
+     * Un message texte, une modification ou une suppression est aussi indexé pour la recherche, de manière asynchrone
+     * @param channelId Identifiant du canal
+     * @param timestamp Date du message
+     * @param frame Construction de la trame à partir de sa séquence
+     * @return la trame encodée, à diffuser
+     */
+    public EncodedFrame append(Long channelId, long timestamp, LongFunction<ChatFrame> frame) {
+        Object stripe = stripes[Long.hashCode(channelId) & (STRIPES - 1)];
+        while (true) {
+            long[] lastSeq = lastSeqs.get(channelId);
+            if (lastSeq == null) {
+                seedLastSeq(channelId, stripe);
+                continue;
+            }
+            synchronized (stripe) {
+                // Sinon le canal a été fermé entre-temps : la séquence est relue
+                if (lastSeqs.get(channelId) == lastSeq) {
+                    return append(channelId, timestamp, frame, lastSeq);
+                }
+            }
+        }
+    }
+
+    // Attribution de la séquence et mise en file de l'écriture, sous le verrou du canal
+    private EncodedFrame append(Long channelId, long timestamp, LongFunction<ChatFrame> frame, long[] lastSeq) {
+        long seq = ++lastSeq[0];
+        EncodedFrame encoded = chatFrameEncoder.encode(frame.apply(seq));
+        // Publiée depuis le thread d'écriture, avant l'écriture : les autres instances reçoivent les trames dans l'ordre,
+        // et une trame lisible dans ce journal a déjà été transmise
+        writer.execute(() -> {
+            clusterBus.publish(new ClusterMessage.Logged(clusterBus.nodeId(), channelId, seq, timestamp, encoded.payload()));
+            write(channelId, seq, timestamp, encoded.payload());
+        });
+        if (encoded.frame() instanceof TextFrame text) {
+            chatSearchService.index(channelId, seq, text.content());
+        } else if (encoded.frame() instanceof EditFrame edit) {
+            chatSearchService.replace(channelId, seq, edit.targetSeq(), edit.content());
+            chatLogCompactor.markDirty(channelId);
+        } else if (encoded.frame() instanceof DeleteFrame delete) {
+            chatSearchService.remove(channelId, seq, delete.targetSeq());
+            chatLogCompactor.markDirty(channelId);
+        }
+        return encoded;
+    }
+
+    // Trame écrite par une autre instance : même séquence dans ce journal, la numérotation locale reprend après elle
+    private void appendRemote(ClusterMessage.Logged logged) {
+        Long channelId = logged.channelId();
+        synchronized (stripes[Long.hashCode(channelId) & (STRIPES - 1)]) {
+            long[] lastSeq = lastSeqs.get(channelId);
+            if (lastSeq != null) {
+                lastSeq[0] = Math.max(lastSeq[0], logged.seq());
+            } else {
+                // Séquence en cours de lecture : relue après cette écriture
+                resets.incrementAndGet();
+            }
+            writer.execute(() -> write(channelId, logged.seq(), logged.timestamp(), logged.payload()));
+        }
+        indexRemote(channelId, logged.seq(), logged.payload());
+    }
+
+    // Indexation d'une trame reçue d'une autre instance, comme dans append
+    private void indexRemote(Long channelId, long seq, byte[] payload) {
+        try {
+            JsonNode frame = objectMapper.readTree(payload);
+            switch (frame.path("type").asText()) {
+                case "TEXT" -> chatSearchService.index(channelId, seq, frame.path("content").asText());
+                case "EDIT" -> {
+                    chatSearchService.replace(channelId, seq, frame.path("targetSeq").asLong(), frame.path("content").asText());
+                    chatLogCompactor.markDirty(channelId);
+                }
+                case "DELETE" -> {
+                    chatSearchService.remove(channelId, seq, frame.path("targetSeq").asLong());
+                    chatLogCompactor.markDirty(channelId);
+                }
+                default -> { }
+            }
+        } catch (IOException e) {
+            logger.error("Trame {} illisible reçue pour le canal {}", seq, channelId, e);
+        }
+    }
+
+    // Écriture d'une trame sous sa séquence (thread d'écriture uniquement)
+    // Une trame qui n'a pas pu être écrite est remplacée par une trame vide : les trames suivantes gardent
+    // dans le journal la séquence déjà diffusée aux clients
+    private void write(Long channelId, long seq, long timestamp, byte[] payload) {
+        ChatLog log = null;
+        try {
+            log = chatLogRepository.getLog(channelId);
+            fill(log, seq - 1, timestamp);
+            if (log.lastSeq() >= seq) {
+                logger.warn("Séquence {} déjà écrite dans l'historique du canal {}", seq, channelId);
+                return;
+            }
+            log.append(timestamp, payload);
+        } catch (RuntimeException e) {
+            logger.error("Erreur lors de l'écriture de la séquence {} dans l'historique du canal {}", seq, channelId, e);
+            if (log != null) {
+                try {
+                    fill(log, seq, timestamp);
+                } catch (RuntimeException again) {
+                    // Réessayé avant l'écriture suivante du canal
+                    logger.error("Impossible de réserver la séquence {} dans l'historique du canal {}", seq, channelId, again);
+                }
+            }
+        }
+    }
+
+    // Complète le journal par des trames vides jusqu'à la séquence seq (ignorées par les lecteurs)
+    private static void fill(ChatLog log, long seq, long timestamp) {
+        while (log.lastSeq() < seq) {
+            log.append(timestamp, EMPTY);
+        }
+    }
+
+    // Dernière séquence du journal, lue une seule fois par canal (ensuite la séquence est tenue en mémoire)
+    // La lecture attend le thread d'écriture sans tenir le verrou : les autres canaux du verrou ne l'attendent pas
+    private void seedLastSeq(Long channelId, Object stripe) {
+        long reset = resets.get();
+        long seq = readLastSeq(channelId);
+        synchronized (stripe) {
+            if (resets.get() == reset) {
+                lastSeqs.putIfAbsent(channelId, new long[]{seq});
+            }
+        }
+    }
+
+    private long readLastSeq(Long channelId) {
+        return afterPendingWrites(channelId, () -> chatLogRepository.getLog(channelId).lastSeq());
+    }
+
+    // Lecture sur le thread d'écriture, après les écritures en attente
+    private <T> T afterPendingWrites(Long channelId, Callable<T> read) {
+        try {
+            return writer.submit(read).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Lecture de l'historique du canal " + channelId + " interrompue", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Impossible de lire l'historique du canal " + channelId, e.getCause());
+        }
+    }
+
+    /**
+     * Récupère une page de l'historique par curseur de séquence (pagination keyset) :
+     * les messages sont lus directement par leur séquence grâce à l'index du journal,
+     * le coût d'une page ne dépend donc pas de la taille de l'historique
+     * @param channelId Identifiant du canal
+     * @param before Séquence exclue à partir de laquelle remonter (null pour les derniers messages)
+     * @param limit Nombre maximum de messages
+     * @return la page de messages
+     */
+    public ChatHistoryPage getPage(Long channelId, Long before, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("La limite doit être positive");
+        }
+        ChatLog log = chatLogRepository.getLog(channelId);
+        List<ChatLogRecord> records = log.readBefore(before != null ? before : Long.MAX_VALUE, Math.min(limit, MAX_PAGE_SIZE));
+        List<ChatHistoryPage.Entry> messages = records.stream()
+                .filter(record -> record.payload().length > 0)
+                .map(record -> new ChatHistoryPage.Entry(record.seq(), new String(record.payload(), StandardCharsets.UTF_8)))
+                .toList();
+        Long nextBefore = !records.isEmpty() && records.get(0).seq() > log.firstSeq() ? records.get(0).seq() : null;
+        return new ChatHistoryPage(messages, nextBefore);
+    }
+
+    /**
+     * Lit une trame de l'historique
+     * Une trame dont la séquence est attribuée mais pas encore écrite est lue après les écritures en attente
+     * @param channelId Identifiant du canal
+     * @param seq Séquence de la trame
+     * @return la trame décodée, vide si elle n'existe pas ou si elle a été vidée
+     */
+    public Optional<JsonNode> readFrame(Long channelId, long seq) {
+        Optional<ChatLogRecord> record = chatLogRepository.getLog(channelId).read(seq);
+        if (record.isEmpty() && seq <= assignedSeq(channelId)) {
+            record = afterPendingWrites(channelId, () -> chatLogRepository.getLog(channelId).read(seq));
+        }
+        return record
+                .filter(written -> written.payload().length > 0)
+                .map(written -> {
+                    try {
+                        return objectMapper.readTree(written.payload());
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Trame " + seq + " illisible dans l'historique du canal " + channelId, e);
+                    }
+                });
+    }
+
+    // Dernière séquence attribuée du canal (0 si elle n'est pas encore tenue en mémoire)
+    private long assignedSeq(Long channelId) {
+        synchronized (stripes[Long.hashCode(channelId) & (STRIPES - 1)]) {
+            long[] lastSeq = lastSeqs.get(channelId);
+            return lastSeq != null ? lastSeq[0] : 0;
+        }
+    }
+
+    /**
+     * Ferme le journal d'un canal terminé, après les écritures déjà demandées
+     * @param channelId Identifiant du canal
+     */
+    public void evict(Long channelId) {
+        synchronized (stripes[Long.hashCode(channelId) & (STRIPES - 1)]) {
+            resets.incrementAndGet();
+            lastSeqs.remove(channelId);
+            writer.execute(() -> chatLogRepository.close(channelId));
+        }
+    }
+
+    private void flush() {
+        try {
+            chatLogRepository.flush();
+        } catch (Exception e) {
+            logger.error("Erreur lors de la synchronisation de l'historique", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.service;
+
+import com.example.repository.ChatLog;
+import com.example.repository.ChatLogRecord;
+import com.example.repository.ChatLogRepository;
+import com.example.util.LongHashSet;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compactage en tâche de fond des journaux qui contiennent des modifications ou des suppressions
+ *
+ * Une modification (EDIT) ou une suppression (DELETE) est ajoutée au journal comme un delta qui référence
+ * le message d'origine. Le compacteur relit périodiquement le journal des canaux concernés et réécrit leurs
+ * segments scellés (voir ChatLog.compact) : le message d'origine prend son dernier contenu (editedAt renseigné)
+ * ou est vidé s'il a été supprimé, et les deltas déjà appliqués sont vidés. Chaque message garde sa séquence.
+ * Les deltas du segment actif restent dans le journal jusqu'à ce qu'il soit scellé : le canal attend ce scellement
+ * (ou une nouvelle modification) sans être relu à chaque passage. Un segment dont les nouveaux contenus ne tiennent plus
+ * dans un segment (modifications plus longues que les messages d'origine) est abandonné : il garde ses deltas.
+ * Seuls les journaux ouverts sont compactés ; ceux d'un canal terminé gardent leurs deltas, que les clients appliquent.
+ */
+@Service
+public class ChatLogCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatLogCompactor.class);
+
+    private static final byte[] EMPTY = new byte[0];
+    // Début des trames de modification et de suppression (le type est toujours le premier champ)
+    private static final byte[] EDIT_PREFIX = "{\"type\":\"EDIT\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DELETE_PREFIX = "{\"type\":\"DELETE\"".getBytes(StandardCharsets.US_ASCII);
+
+    private final ChatLogRepository chatLogRepository;
+    private final ChatSearchService chatSearchService;
+    private final ObjectMapper objectMapper;
+
+    // Canaux qui ont reçu une modification ou une suppression depuis leur dernier compactage
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Canaux dont il ne reste que des deltas du segment actif, avec la séquence de départ de ce segment
+    private final Map<Long, Long> waitingForSeal = new ConcurrentHashMap<>();
+    // Segments abandonnés par canal (contenu compacté trop grand pour un segment)
+    private final Map<Long, LongHashSet> oversized = new ConcurrentHashMap<>();
+    private final LongAdder compactedSegments = new LongAdder();
+    private final LongAdder freedBytes = new LongAdder();
+
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Dernier état d'un message modifié ou supprimé
+    private record Overlay(boolean deleted, String content, long editedAt) {
+    }
+
+    public ChatLogCompactor(
+            ChatLogRepository chatLogRepository,
+            ChatSearchService chatSearchService,
+            ObjectMapper objectMapper,
+            @Value("${chat.log.compaction-interval-ms:600000}") long compactionIntervalMs
+    ) {
+        this.chatLogRepository = chatLogRepository;
+        this.chatSearchService = chatSearchService;
+        this.objectMapper = objectMapper;
+        compactor.scheduleWithFixedDelay(this::compactAll, compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marque le journal d'un canal comme à compacter (après une modification ou une suppression)
+     * @param channelId Identifiant du canal
+     */
+    public void markDirty(Long channelId) {
+        dirty.add(channelId);
+    }
+
+    void compactAll() {
+        // Segment actif scellé depuis le dernier passage : ses deltas peuvent maintenant être compactés
+        for (Map.Entry<Long, Long> waiting : waitingForSeal.entrySet()) {
+            Optional<ChatLog> log = chatLogRepository.findOpenLog(waiting.getKey());
+            if (log.isEmpty() || log.get().activeBaseSeq() != waiting.getValue()) {
+                waitingForSeal.remove(waiting.getKey(), waiting.getValue());
+                dirty.add(waiting.getKey());
+            }
+        }
+        for (Long channelId : dirty) {
+            // Retiré avant le compactage : une modification reçue pendant le compactage le marque à nouveau
+            dirty.remove(channelId);
+            waitingForSeal.remove(channelId);
+            Optional<ChatLog> log = chatLogRepository.findOpenLog(channelId);
+            if (log.isEmpty()) {
+                oversized.remove(channelId);
+                continue;
+            }
+            try {
+                long activeBaseSeq = log.get().activeBaseSeq();
+                if (compact(channelId, log.get(), activeBaseSeq)) {
+                    waitingForSeal.put(channelId, activeBaseSeq);
+                }
+            } catch (IOException | UncheckedIOException e) {
+                logger.error("Erreur lors du compactage du journal du canal {}", channelId, e);
+                dirty.add(channelId);
+            }
+        }
+    }
+
+    // Compacte les segments scellés du journal, retourne true s'il reste des deltas dans le segment actif
+    private boolean compact(Long channelId, ChatLog log, long activeBaseSeq) throws IOException {
+        long lastSeq = log.lastSeq();
+
+        // Deltas dans l'ordre des séquences : une suppression est définitive, la dernière modification l'emporte
+        Map<Long, Overlay> overlays = new HashMap<>();
+        LongHashSet applied = new LongHashSet();
+        // Message visé par chaque delta vidé : un delta dont le message n'est pas réécrit est gardé
+        Map<Long, Long> targets = new HashMap<>();
+        boolean pending = false;
+        for (long seq = log.firstSeq(); seq <= lastSeq; seq++) {
+            Optional<ChatLogRecord> record = log.read(seq);
+            if (record.isEmpty()) {
+                continue;
+            }
+            byte[] payload = record.get().payload();
+            boolean edit = startsWith(payload, EDIT_PREFIX);
+            if (!edit && !startsWith(payload, DELETE_PREFIX)) {
+                continue;
+            }
+            JsonNode frame = objectMapper.readTree(payload);
+            long targetSeq = frame.path("targetSeq").asLong();
+            if (seq >= activeBaseSeq) {
+                pending = true;
+            } else {
+                applied.add(seq);
+                targets.put(seq, targetSeq);
+            }
+            Overlay previous = overlays.get(targetSeq);
+            if (targetSeq >= activeBaseSeq || (previous != null && previous.deleted())) {
+                continue;
+            }
+            overlays.put(targetSeq, edit
+                    ? new Overlay(false, frame.path("content").asText(), frame.path("timestamp").asLong())
+                    : new Overlay(true, null, 0));
+        }
+        if (overlays.isEmpty() && applied.isEmpty()) {
+            return pending;
+        }
+
+        // Segments scellés au début du parcours (un segment scellé depuis sera compacté au passage suivant)
+        List<Long> sealed = log.sealedSegments().stream().filter(baseSeq -> baseSeq < activeBaseSeq).toList();
+        LongHashSet skipped = oversized.getOrDefault(channelId, new LongHashSet());
+        long freed = 0;
+        int segments = 0;
+        for (int i = 0; i < sealed.size(); i++) {
+            long baseSeq = sealed.get(i);
+            long end = i + 1 < sealed.size() ? sealed.get(i + 1) : activeBaseSeq;
+            if (skipped.contains(baseSeq)) {
+                keepDeltas(baseSeq, end, targets, applied);
+                continue;
+            }
+            if (!needsRewrite(log, baseSeq, end, overlays, applied)) {
+                continue;
+            }
+            try {
+                freed += log.compact(baseSeq, record -> rewrite(record, overlays, applied));
+                segments++;
+            } catch (IllegalStateException e) {
+                // Le segment d'origine est gardé tel quel, il ne sera plus retenté
+                oversized.computeIfAbsent(channelId, id -> new LongHashSet()).add(baseSeq);
+                keepDeltas(baseSeq, end, targets, applied);
+                logger.warn("Segment {} du journal du canal {} abandonné : {}", baseSeq, channelId, e.getMessage());
+            }
+        }
+        if (segments > 0) {
+            compactedSegments.add(segments);
+            freedBytes.add(freed);
+            // L'index de recherche est reconstruit à partir du journal compacté
+            chatSearchService.evict(channelId);
+            logger.info("Journal du canal {} compacté : {} segments, {} octets libérés", channelId, segments, freed);
+        }
+        return pending;
+    }
+
+    // Les deltas qui visent un message du segment [baseSeq, end) non réécrit ne sont pas vidés
+    // (ils sont toujours dans un segment suivant, compacté après celui-ci)
+    private static void keepDeltas(long baseSeq, long end, Map<Long, Long> targets, LongHashSet applied) {
+        targets.forEach((deltaSeq, targetSeq) -> {
+            if (targetSeq >= baseSeq && targetSeq < end) {
+                applied.remove(deltaSeq);
+            }
+        });
+    }
+
+    // Un segment est réécrit s'il contient un delta pas encore vidé ou un message dont le contenu change
+    private boolean needsRewrite(ChatLog log, long baseSeq, long end, Map<Long, Overlay> overlays, LongHashSet applied) {
+        for (long seq = baseSeq; seq < end; seq++) {
+            if (applied.contains(seq)) {
+                return true;
+            }
+        }
+        for (Long targetSeq : overlays.keySet()) {
+            if (targetSeq >= baseSeq && targetSeq < end) {
+                Optional<ChatLogRecord> record = log.read(targetSeq);
+                if (record.isPresent() && !Arrays.equals(record.get().payload(), rewrite(record.get(), overlays, applied))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Nouveau contenu d'un message : vidé (delta appliqué, message supprimé) ou dernier texte (message modifié)
+    private byte[] rewrite(ChatLogRecord record, Map<Long, Overlay> overlays, LongHashSet applied) {
+        if (applied.contains(record.seq())) {
+            return EMPTY;
+        }
+        Overlay overlay = overlays.get(record.seq());
+        if (overlay == null || record.payload().length == 0) {
+            return record.payload();
+        }
+        if (overlay.deleted()) {
+            return EMPTY;
+        }
+        try {
+            JsonNode frame = objectMapper.readTree(record.payload());
+            if (!(frame instanceof ObjectNode text) || !"TEXT".equals(text.path("type").asText())) {
+                return record.payload();
+            }
+            text.put("content", overlay.content());
+            text.put("editedAt", overlay.editedAt());
+            text.remove("clientMsgId");
+            return objectMapper.writeValueAsBytes(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean startsWith(byte[] payload, byte[] prefix) {
+        return payload.length >= prefix.length && Arrays.equals(payload, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * @return les canaux à compacter, les segments compactés et les octets libérés
+     */
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "dirtyChannels", (long) dirty.size() + waitingForSeal.size(),
+                "compactedSegments", compactedSegments.sum(),
+                "freedBytes", freedBytes.sum());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+    }
+}
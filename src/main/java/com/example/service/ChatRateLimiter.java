@@ -0,0 +1,109 @@
+package com.example.service;
+
+import com.example.util.RateLimiter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limitation du débit des envois de messages et de fichiers, par utilisateur et par canal
+ *
+ * Chaque route a deux seaux à jetons (voir RateLimiter) : un par utilisateur et un par canal.
+ * Un client qui inonde un canal est freiné par son seau utilisateur, un canal trop actif par son seau canal.
+ * Débits configurables dans chat.rate.{send|upload}.{user|channel}.per-second et .burst (0 = pas de limite).
+ */
+@Service
+public class ChatRateLimiter {
+
+    /**
+     * Routes limitées
+     */
+    public enum Route {
+        SEND, UPLOAD
+    }
+
+    private final Map<Route, RateLimiter> userLimiters;
+    private final Map<Route, RateLimiter> channelLimiters;
+    private final Map<Route, LongAdder> rejected = Map.of(Route.SEND, new LongAdder(), Route.UPLOAD, new LongAdder());
+
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-rate-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChatRateLimiter(
+            @Value("${chat.rate.send.user.per-second:5}") double sendUserRate,
+            @Value("${chat.rate.send.user.burst:10}") int sendUserBurst,
+            @Value("${chat.rate.send.channel.per-second:100}") double sendChannelRate,
+            @Value("${chat.rate.send.channel.burst:200}") int sendChannelBurst,
+            @Value("${chat.rate.upload.user.per-second:0.5}") double uploadUserRate,
+            @Value("${chat.rate.upload.user.burst:5}") int uploadUserBurst,
+            @Value("${chat.rate.upload.channel.per-second:5}") double uploadChannelRate,
+            @Value("${chat.rate.upload.channel.burst:20}") int uploadChannelBurst
+    ) {
+        this.userLimiters = limiters(sendUserRate, sendUserBurst, uploadUserRate, uploadUserBurst);
+        this.channelLimiters = limiters(sendChannelRate, sendChannelBurst, uploadChannelRate, uploadChannelBurst);
+
+        // Les seaux pleins (clés inactives) sont oubliés pour ne pas garder tous les utilisateurs en mémoire
+        cleaner.scheduleWithFixedDelay(() -> {
+            userLimiters.values().forEach(RateLimiter::evictIdle);
+            channelLimiters.values().forEach(RateLimiter::evictIdle);
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    private static Map<Route, RateLimiter> limiters(double sendRate, int sendBurst, double uploadRate, int uploadBurst) {
+        Map<Route, RateLimiter> limiters = new EnumMap<>(Route.class);
+        if (sendRate > 0) {
+            limiters.put(Route.SEND, new RateLimiter(sendRate, sendBurst));
+        }
+        if (uploadRate > 0) {
+            limiters.put(Route.UPLOAD, new RateLimiter(uploadRate, uploadBurst));
+        }
+        return limiters;
+    }
+
+    /**
+     * Consomme un jeton de l'utilisateur puis un jeton du canal
+     * Si le canal refuse, le jeton de l'utilisateur lui est rendu : une requête refusée ne consomme rien
+     * @return 0 si la requête est acceptée, sinon le temps à attendre avant de réessayer (en millisecondes, au moins 1)
+     */
+    public long tryAcquire(Route route, long userId, Long channelId) {
+        RateLimiter userLimiter = userLimiters.get(route);
+        long waitNanos = acquire(userLimiter, userId);
+        if (waitNanos == 0) {
+            waitNanos = acquire(channelLimiters.get(route), channelId);
+            if (waitNanos == 0) {
+                return 0;
+            }
+            if (userLimiter != null) {
+                userLimiter.refund(userId);
+            }
+        }
+        rejected.get(route).increment();
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    private static long acquire(RateLimiter limiter, long key) {
+        return limiter != null ? limiter.tryAcquire(key) : 0;
+    }
+
+    /**
+     * @return le nombre de requêtes refusées par route
+     */
+    public Map<String, Long> getRejected() {
+        return Map.of("send", rejected.get(Route.SEND).sum(), "upload", rejected.get(Route.UPLOAD).sum());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.service;
+
+import com.example.model.ChatHistoryPage;
+import com.example.repository.ChatLog;
+import com.example.repository.ChatLogRecord;
+import com.example.repository.ChatLogRepository;
+import com.example.util.InvertedIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recherche plein texte dans l'historique des canaux, avec un index inversé en mémoire par canal (voir InvertedIndex)
+ *
+ * Les messages texte sont indexés par un thread dédié, après leur diffusion : l'indexation n'ajoute rien
+ * à la latence d'envoi. L'index d'un canal est construit au premier message ou à la première recherche,
+ * en relisant son journal, puis tenu à jour message par message. Il est libéré à la fermeture du canal.
+ * Une modification est indexée sous sa propre séquence et retire le message d'origine des résultats,
+ * une suppression retire le message. Les résultats sont lus dans le journal par leur séquence : un message
+ * modifié est renvoyé sous sa séquence d'origine, avec le contenu de sa dernière modification (comme après compactage).
+ * Après un compactage du journal, l'index est libéré puis reconstruit à la recherche suivante.
+ */
+@Service
+public class ChatSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSearchService.class);
+
+    private final ChatLogRepository chatLogRepository;
+    private final ObjectMapper objectMapper;
+
+    // Index par canal, créés et modifiés uniquement par le thread d'indexation
+    private final Map<Long, InvertedIndex> indexes = new ConcurrentHashMap<>();
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-search-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChatSearchService(ChatLogRepository chatLogRepository, ObjectMapper objectMapper) {
+        this.chatLogRepository = chatLogRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Indexe un message texte, de manière asynchrone
+     * Appelé dans l'ordre des séquences du canal (voir ChatHistoryService.append)
+     * @param channelId Identifiant du canal
+     * @param seq Séquence du message
+     * @param content Texte du message
+     */
+    public void index(Long channelId, long seq, String content) {
+        indexer.execute(() -> {
+            try {
+                getOrBuild(channelId).add(seq, content);
+                indexed.increment();
+            } catch (RuntimeException e) {
+                logger.error("Erreur lors de l'indexation du message {} du canal {}", seq, channelId, e);
+            }
+        });
+    }
+
+    /**
+     * Indexe la modification d'un message texte, de manière asynchrone
+     * @param channelId Identifiant du canal
+     * @param seq Séquence de la modification
+     * @param targetSeq Séquence du message modifié
+     * @param content Nouveau texte du message
+     */
+    public void replace(Long channelId, long seq, long targetSeq, String content) {
+        indexer.execute(() -> {
+            try {
+                getOrBuild(channelId).replace(seq, targetSeq, content);
+                indexed.increment();
+            } catch (RuntimeException e) {
+                logger.error("Erreur lors de l'indexation de la modification {} du canal {}", seq, channelId, e);
+            }
+        });
+    }
+
+    /**
+     * Retire un message supprimé des résultats, de manière asynchrone
+     * @param channelId Identifiant du canal
+     * @param seq Séquence de la suppression
+     * @param targetSeq Séquence du message supprimé
+     */
+    public void remove(Long channelId, long seq, long targetSeq) {
+        indexer.execute(() -> {
+            try {
+                InvertedIndex index = getOrBuild(channelId);
+                index.remove(targetSeq);
+                index.advance(seq);
+            } catch (RuntimeException e) {
+                logger.error("Erreur lors de l'indexation de la suppression {} du canal {}", seq, channelId, e);
+            }
+        });
+    }
+
+    /**
+     * Recherche les messages d'un canal qui contiennent tous les mots de la requête
+     * @param channelId Identifiant du canal
+     * @param query Mots recherchés
+     * @param before Séquence exclue à partir de laquelle remonter (null pour les derniers messages)
+     * @param limit Nombre maximum de messages
+     * @return les messages trouvés, du plus ancien au plus récent (nextBefore : page de résultats précédente)
+     * @throws IllegalArgumentException si la requête ne contient aucun mot ou si la limite n'est pas positive
+     */
+    public ChatHistoryPage search(Long channelId, String query, Long before, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("La limite doit être positive");
+        }
+        searches.increment();
+        InvertedIndex index = indexes.get(channelId);
+        if (index == null) {
+            index = build(channelId);
+        }
+
+        // Un résultat de plus que demandé : indique s'il reste une page de résultats plus anciens
+        int pageSize = Math.min(limit, ChatHistoryService.MAX_PAGE_SIZE);
+        long[] seqs = index.search(query, before != null ? before : Long.MAX_VALUE, pageSize + 1);
+        int from = seqs.length > pageSize ? 1 : 0;
+
+        ChatLog log = chatLogRepository.getLog(channelId);
+        List<ChatHistoryPage.Entry> messages = new ArrayList<>(seqs.length - from);
+        for (int i = from; i < seqs.length; i++) {
+            Long replacement = index.replacement(seqs[i]);
+            log.read(seqs[i])
+                    .filter(record -> record.payload().length > 0)
+                    .ifPresent(record -> messages.add(new ChatHistoryPage.Entry(record.seq(),
+                            new String(replacement != null ? edited(log, record, replacement) : record.payload(), StandardCharsets.UTF_8))));
+        }
+        Long nextBefore = from > 0 ? seqs[from] : null;
+        return new ChatHistoryPage(messages, nextBefore);
+    }
+
+    // Message d'origine avec le contenu de sa modification, pas encore appliquée par le compacteur
+    private byte[] edited(ChatLog log, ChatLogRecord record, long editSeq) {
+        Optional<ChatLogRecord> edit = log.read(editSeq);
+        if (edit.isEmpty() || edit.get().payload().length == 0) {
+            return record.payload();
+        }
+        try {
+            JsonNode frame = objectMapper.readTree(record.payload());
+            JsonNode editFrame = objectMapper.readTree(edit.get().payload());
+            if (!(frame instanceof ObjectNode text) || !"TEXT".equals(text.path("type").asText())) {
+                return record.payload();
+            }
+            text.put("content", editFrame.path("content").asText());
+            text.put("editedAt", editFrame.path("timestamp").asLong());
+            text.remove("clientMsgId");
+            return objectMapper.writeValueAsBytes(text);
+        } catch (IOException e) {
+            return record.payload();
+        }
+    }
+
+    // Construction de l'index sur le thread d'indexation (après les messages déjà en attente)
+    private InvertedIndex build(Long channelId) {
+        try {
+            return indexer.submit(() -> getOrBuild(channelId)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Construction de l'index du canal " + channelId + " interrompue", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Impossible de construire l'index du canal " + channelId, e.getCause());
+        }
+    }
+
+    // Index du canal, construit en relisant le journal s'il n'existe pas (thread d'indexation uniquement)
+    private InvertedIndex getOrBuild(Long channelId) {
+        InvertedIndex index = indexes.get(channelId);
+        if (index != null) {
+            return index;
+        }
+        long start = System.currentTimeMillis();
+        index = new InvertedIndex();
+        ChatLog log = chatLogRepository.getLog(channelId);
+        long lastSeq = log.lastSeq();
+        for (long seq = log.firstSeq(); seq <= lastSeq; seq++) {
+            Optional<ChatLogRecord> record = log.read(seq);
+            if (record.isPresent() && record.get().payload().length > 0) {
+                indexRecord(index, seq, record.get().payload());
+            }
+        }
+        index.advance(lastSeq);
+        indexes.put(channelId, index);
+        logger.info("Index du canal {} construit : {} messages, {} mots en {} ms",
+                channelId, lastSeq, index.terms(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    // Indexe une trame du journal : message texte, modification ou suppression (les autres trames sont ignorées)
+    private void indexRecord(InvertedIndex index, long seq, byte[] payload) {
+        JsonNode frame;
+        try {
+            frame = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            return;
+        }
+        switch (frame.path("type").asText()) {
+            case "TEXT" -> index.add(seq, frame.path("content").asText());
+            case "EDIT" -> index.replace(seq, frame.path("targetSeq").asLong(), frame.path("content").asText());
+            case "DELETE" -> index.remove(frame.path("targetSeq").asLong());
+            default -> { }
+        }
+    }
+
+    /**
+     * Libère l'index d'un canal terminé, après les messages déjà en attente
+     * @param channelId Identifiant du canal
+     */
+    public void evict(Long channelId) {
+        indexer.execute(() -> indexes.remove(channelId));
+    }
+
+    /**
+     * @return les canaux indexés, les mots et la mémoire des listes, les messages indexés et les recherches
+     */
+    public Map<String, Long> getStats() {
+        long terms = 0;
+        long bytes = 0;
+        for (InvertedIndex index : indexes.values()) {
+            terms += index.terms();
+            bytes += index.bytes();
+        }
+        return Map.of(
+                "channels", (long) indexes.size(),
+                "terms", terms,
+                "postingBytes", bytes,
+                "indexed", indexed.sum(),
+                "searches", searches.sum());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+}
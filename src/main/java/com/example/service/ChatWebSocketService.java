@@ -1,162 +1,315 @@
 package com.example.service;
 
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import lombok.RequiredArgsConstructor;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.List;
-import java.util.Set;
-import com.example.model.Channel;
-import com.example.service.ChannelService;
+import com.example.cluster.ClusterPresence;
+import com.example.model.AckFrame;
+import com.example.model.DeleteFrame;
+import com.example.model.EditFrame;
+import com.example.model.ErrorFrame;
+import com.example.model.FileFrame;
+import com.example.model.MentionFrame;
+import com.example.model.PresenceSnapshot;
+import com.example.model.RateLimitedFrame;
+import com.example.model.TextFrame;
+import com.example.model.UserHandle;
+import com.example.repository.BlobStore;
+import com.example.util.MentionParser;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.web.multipart.MultipartFile;
-import java.util.Base64;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
- * Service pour la gestion des WebSockets, on utilise le SimpMessagingTemplate pour envoyer les messages aux clients
+ * Service pour la gestion des WebSockets, on utilise le ChatBroadcaster pour envoyer les messages aux clients
  * Gère les messages de chat, les fichiers et les utilisateurs connectés
  */
 @Service
 @RequiredArgsConstructor
 public class ChatWebSocketService {
-    private final SimpMessagingTemplate messagingTemplate;
-    private final ChannelService channelService;
-    
-    // Map pour stocker les utilisateurs connectés par canal (username-based)
-    private final Map<Long, Set<String>> channelSubscriptions = new ConcurrentHashMap<>();
+    // Longueur maximale de l'extrait d'un message dans une notification de mention
+    private static final int MENTION_EXCERPT_LENGTH = 140;
+
+    private final ChatBroadcaster chatBroadcaster;
+    private final ChannelReplayBuffer channelReplayBuffer;
+    private final ChatFrameEncoder chatFrameEncoder;
+    private final ChannelMembershipIndex channelMembershipIndex;
+    private final ChatHistoryService chatHistoryService;
+    private final ChannelLifecycleScheduler channelLifecycleScheduler;
+    private final ClientMessageDeduplicator clientMessageDeduplicator;
+    private final BlobStore blobStore;
+    private final ThumbnailService thumbnailService;
 
-    // Types de fichiers autorisés
-    private static final List<String> ALLOWED_IMAGE_TYPES = List.of("image/jpeg", "image/png", "image/gif");
-    private static final List<String> ALLOWED_DOCUMENT_TYPES = List.of("application/pdf");
-    private static final int MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
+    // Utilisateurs connectés par canal, fusionnés entre les instances
+    private final ClusterPresence clusterPresence;
+
+    // Sessions WebSocket et canaux rejoints par chaque session
+    private final SessionRegistry sessionRegistry;
+
+    // Taille maximale des fichiers
+    @Value("${chat.upload.max-file-size:1GB}")
+    private DataSize maxFileSize;
 
     /**
      * Envoie un message de chat à un canal
-     * On envoie un message de type TEXT, on envoie le sender, le contenu et la date
-     * il sera reçu par tous les clients connectés au canal
+     * On envoie un message de type TEXT, on envoie la séquence, le sender, le contenu et la date
+     * il sera reçu par tous les clients connectés au canal, puis ajouté à l'historique du canal
+     * Un renvoi du même message (même clientMsgId) n'est pas diffusé : la session qui l'a renvoyé reçoit un accusé
+     * avec la séquence d'origine (/user/queue/acks). Les membres mentionnés sont notifiés
+     * @param sessionId Session qui envoie
+     * @param clientMsgId Identifiant choisi par le client pour ce message, null si absent
+     */
+    public void sendTextMessageToChannel(Long channelId, String message, String username, String sessionId, Long userId,
+                                         String clientMsgId) {
+        channelLifecycleScheduler.checkNotEnded(channelId);
+        long originalSeq = clientMessageDeduplicator.reserve(userId, clientMsgId);
+        if (originalSeq != ClientMessageDeduplicator.FIRST) {
+            // Message d'origine encore en cours d'ajout (0) : sa diffusion servira d'accusé
+            if (originalSeq > 0) {
+                chatBroadcaster.sendToUser(username, sessionId, "/queue/acks",
+                        chatFrameEncoder.encode(new AckFrame(channelId, clientMsgId, originalSeq)));
+            }
+            return;
+        }
+        long timestamp = System.currentTimeMillis();
+        EncodedFrame textFrame;
+        try {
+            textFrame = chatHistoryService.append(channelId, timestamp,
+                    seq -> new TextFrame(seq, username, message, timestamp, clientMsgId, null));
+        } catch (RuntimeException e) {
+            clientMessageDeduplicator.release(userId, clientMsgId);
+            throw e;
+        }
+        clientMessageDeduplicator.sent(userId, clientMsgId, ((TextFrame) textFrame.frame()).seq());
+
+        chatBroadcaster.broadcast(channelId, textFrame);
+        notifyMentions(channelId, username, message, timestamp);
+    }
+
+    /**
+     * Modifie un message texte : une trame EDIT qui référence le message est diffusée au canal et ajoutée à l'historique
+     * @param targetSeq Séquence du message modifié
+     * @param content Nouveau contenu
+     * @param username Utilisateur qui modifie (doit être l'auteur du message)
+     */
+    public void editMessage(Long channelId, long targetSeq, String content, String username) {
+        channelLifecycleScheduler.checkNotEnded(channelId);
+        checkAuthor(channelId, targetSeq, username, List.of("TEXT"));
+        long timestamp = System.currentTimeMillis();
+        EncodedFrame editFrame = chatHistoryService.append(channelId, timestamp,
+                seq -> new EditFrame(seq, targetSeq, username, content, timestamp));
+
+        chatBroadcaster.broadcast(channelId, editFrame);
+    }
+
+    /**
+     * Supprime un message texte ou un fichier : une trame DELETE qui référence le message est diffusée au canal
+     * et ajoutée à l'historique (le fichier stocké est gardé)
+     * @param targetSeq Séquence du message supprimé
+     * @param username Utilisateur qui supprime (doit être l'auteur du message)
+     */
+    public void deleteMessage(Long channelId, long targetSeq, String username) {
+        channelLifecycleScheduler.checkNotEnded(channelId);
+        checkAuthor(channelId, targetSeq, username, List.of("TEXT", "FILE"));
+        long timestamp = System.currentTimeMillis();
+        EncodedFrame deleteFrame = chatHistoryService.append(channelId, timestamp,
+                seq -> new DeleteFrame(seq, targetSeq, username, timestamp));
+
+        chatBroadcaster.broadcast(channelId, deleteFrame);
+    }
+
+    // Le message doit exister dans l'historique, être d'un des types acceptés et avoir été envoyé par l'utilisateur
+    private void checkAuthor(Long channelId, long targetSeq, String username, List<String> types) {
+        JsonNode frame = chatHistoryService.readFrame(channelId, targetSeq)
+                .orElseThrow(() -> new IllegalArgumentException("Message " + targetSeq + " introuvable"));
+        if (!types.contains(frame.path("type").asText()) || !username.equals(frame.path("sender").asText())) {
+            throw new IllegalArgumentException("Seul l'auteur d'un message peut le modifier ou le supprimer");
+        }
+    }
+
+    // Notifie chaque membre mentionné (une fois, pas l'auteur) sur /user/queue/mentions, quel que soit le canal ouvert
+    // et quelle que soit l'instance où il est connecté
+    // Les mentions sont résolues dans l'index des membres du canal, sans requête
+    private void notifyMentions(Long channelId, String username, String message, long timestamp) {
+        List<String> mentions = MentionParser.extract(message);
+        if (mentions.isEmpty()) {
+            return;
+        }
+        Set<Long> notified = new HashSet<>();
+        EncodedFrame mentionFrame = null;
+        for (String handle : mentions) {
+            UserHandle user = channelMembershipIndex.resolveMention(channelId, handle);
+            if (user == null || user.email().equals(username) || !notified.add(user.userId())) {
+                continue;
+            }
+            if (mentionFrame == null) {
+                String excerpt = message.length() > MENTION_EXCERPT_LENGTH ? message.substring(0, MENTION_EXCERPT_LENGTH) + "…" : message;
+                mentionFrame = chatFrameEncoder.encode(new MentionFrame(channelId, username, excerpt, timestamp));
+            }
+            chatBroadcaster.sendToUserInCluster(user.email(), "/queue/mentions", mentionFrame);
+        }
+    }
+
+    /**
+     * Prévient une session que sa requête a été refusée par le limiteur de débit (/user/queue/errors)
+     */
+    public void sendRateLimited(String username, String sessionId, Long channelId, String route, long retryAfterMs) {
+        chatBroadcaster.sendToUser(username, sessionId, "/queue/errors",
+                chatFrameEncoder.encode(new RateLimitedFrame(channelId, route, retryAfterMs)));
+    }
+
+    /**
+     * Prévient une session que sa requête a été refusée (/user/queue/errors)
      */
-    public void sendTextMessageToChannel(Long channelId, String message, String username) {
-        Map<String, Object> textMessage = new HashMap<>();
-        textMessage.put("type", "TEXT");
-        textMessage.put("sender", username);
-        textMessage.put("content", message);
-        textMessage.put("timestamp", System.currentTimeMillis());
+    public void sendError(String username, String sessionId, Long channelId, String message) {
+        chatBroadcaster.sendToUser(username, sessionId, "/queue/errors",
+                chatFrameEncoder.encode(new ErrorFrame(channelId, message)));
+    }
 
-        String destination = "/topic/chat/" + channelId;
-        messagingTemplate.convertAndSend(destination, textMessage);
+    /**
+     * Renvoie à une session qui se reconnecte les trames du canal diffusées après afterSeq (/user/queue/replay)
+     * Les trames viennent de la mémoire (voir ChannelReplayBuffer), sans lecture de l'historique
+     * @param username Utilisateur de la session
+     * @param sessionId Session qui se reconnecte
+     * @param channelId Identifiant du canal
+     * @param userId Identifiant de l'utilisateur
+     * @param afterSeq Dernière séquence reçue par le client (header seq, pas la séquence du journal)
+     */
+    public void replay(String username, String sessionId, Long channelId, Long userId, long afterSeq) {
+        channelLifecycleScheduler.checkNotEnded(channelId);
+        checkChannelAccess(channelId, userId);
+        chatBroadcaster.sendToUser(username, sessionId, "/queue/replay",
+                chatFrameEncoder.encode(channelReplayBuffer.since(channelId, afterSeq)));
     }
 
+    /**
+     * Envoie un fichier à un canal
+     * Le fichier est copié dans le BlobStore (sans être chargé en mémoire) et seule
+     * une référence vers le fichier est diffusée aux clients
+     */
     public void sendFileToChannel(Long channelId, MultipartFile file, String username) throws IOException {
+        channelLifecycleScheduler.checkNotEnded(channelId);
+
         // Vérification du type de fichier
         String contentType = file.getContentType();
-        if (!isFileTypeAllowed(contentType)) {
+        if (!FileTypes.isAllowed(contentType)) {
             throw new IllegalArgumentException("Type de fichier non autorisé");
         }
 
         // Vérification de la taille
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new IllegalArgumentException("Fichier trop volumineux (max 10MB)");
+        if (file.getSize() > maxFileSize.toBytes()) {
+            throw new IllegalArgumentException("Fichier trop volumineux (max " + maxFileSize.toMegabytes() + "MB)");
         }
 
-        // Conversion du fichier en base64
-        String base64File = Base64.getEncoder().encodeToString(file.getBytes());
-
-        // Création du message avec le fichier
-        Map<String, Object> fileMessage = new HashMap<>();
-        fileMessage.put("type", "FILE");
-        fileMessage.put("sender", username);
-        fileMessage.put("fileName", file.getOriginalFilename());
-        fileMessage.put("fileType", contentType);
-        fileMessage.put("fileSize", file.getSize());
-        fileMessage.put("content", base64File);
-        fileMessage.put("timestamp", System.currentTimeMillis());
+        // Stockage du fichier, identifié par son contenu
+        String blobId;
+        try (InputStream in = file.getInputStream()) {
+            blobId = blobStore.store(in);
+        }
 
-        // Envoi du message
-        String destination = "/topic/chat/" + channelId;
-        messagingTemplate.convertAndSend(destination, fileMessage);
+        publishFile(channelId, username, file.getOriginalFilename(), contentType, file.getSize(), blobId);
     }
 
     /**
-     * Vérifie si le type de fichier est autorisé
-     * @param contentType Type de fichier
-     * @return true si le type de fichier est autorisé, false sinon
+     * Diffuse la référence d'un fichier stocké et l'ajoute à l'historique du canal
+     * Le fichier est d'abord référencé dans le canal : il ne peut être téléchargé que depuis les canaux où il est publié
      */
-    private boolean isFileTypeAllowed(String contentType) {
-        return ALLOWED_IMAGE_TYPES.contains(contentType) || 
-               ALLOWED_DOCUMENT_TYPES.contains(contentType);
+    public void publishFile(Long channelId, String username, String fileName, String contentType, long fileSize, String blobId) throws IOException {
+        channelLifecycleScheduler.checkNotEnded(channelId);
+        blobStore.addReference(blobId, channelId);
+        long timestamp = System.currentTimeMillis();
+        String url = "/api/chat/" + channelId + "/files/" + blobId;
+        EncodedFrame fileFrame = chatHistoryService.append(channelId, timestamp,
+                seq -> new FileFrame(seq, username, fileName, contentType, fileSize, blobId, url, timestamp));
+
+        chatBroadcaster.broadcast(channelId, fileFrame);
+
+        // Miniature générée en arrière-plan, une trame FILE_PREVIEW suivra
+        if (FileTypes.isImage(contentType)) {
+            thumbnailService.submit(channelId, blobId);
+        }
     }
 
     /**
      * Ajoute un utilisateur à un canal, on vérifie que l'utilisateur a été invité au canal
      * et que l'utilisateur n'est pas déjà connecté à ce canal, on pourra ensuite envoyer un message de type USER_JOINED
-     * à tous les clients connectés au canal
+     * (ou PRESENCE, regroupé) à tous les clients connectés au canal
+     * Un utilisateur déjà connecté au canal par une autre session (autre onglet, autre appareil) n'est pas annoncé à nouveau
+     * @param sessionId Identifiant de la session WebSocket
      * @param channelId Identifiant du canal
      * @param userId Identifiant de l'utilisateur
      */
-    public void addUserToChannel(Long channelId, Long userId) {
-        // Vérification de l'existence du canal
-        Channel channel = channelService.getChannelById(channelId)
-            .orElseThrow(() -> new IllegalArgumentException("Channel pas trouvé"));
-
-        // Vérification des droits d'accès
-        List<Long> userIds = channelService.getChannelUserIds(channelId);
-        if (!userIds.contains(userId) && !channel.getOwner().getUserId().equals(userId)) {
-            throw new IllegalArgumentException("L'utilisateur n'a pas été invité à ce salon");
-        }
+    public void addUserToChannel(String sessionId, Long channelId, Long userId) {
+        // Vérification de l'existence du canal (pas terminé) et des droits d'accès
+        channelLifecycleScheduler.checkNotEnded(channelId);
+        checkChannelAccess(channelId, userId);
 
-        // Ajout de l'utilisateur
-        Set<String> channelUsers = channelSubscriptions.computeIfAbsent(channelId, k -> ConcurrentHashMap.newKeySet());
-        channelUsers.add(userId.toString());
+        // Ajout de l'utilisateur (annoncé aux autres instances), les clients sont prévenus par le PresenceAggregator
+        if (sessionRegistry.join(sessionId, userId, channelId)) {
+            clusterPresence.join(channelId, userId);
+        }
+    }
 
-        // Notification à tous les clients du canal (broadcast sur /topic)
-        messagingTemplate.convertAndSend(
-            "/topic/chat/" + channelId,
-            Map.of(
-                "type", "USER_JOINED",
-                "userId", userId.toString(),
-                "connectedUsers", channelUsers
-            )
-        );
+    /**
+     * Vérifie que le canal n'est pas terminé : les canaux terminés n'acceptent plus de connexion ni d'envoi
+     * @param channelId Identifiant du canal
+     */
+    public void checkNotEnded(Long channelId) {
+        channelLifecycleScheduler.checkNotEnded(channelId);
     }
 
     /**
-     * Supprime un utilisateur d'un canal, on vérifie que l'utilisateur est connecté à ce canal
-     * et on envoie un message de type USER_LEFT à tous les clients connectés au canal
+     * Vérifie que le canal existe et que l'utilisateur y a été invité (ou en est le propriétaire)
      * @param channelId Identifiant du canal
      * @param userId Identifiant de l'utilisateur
      */
-    public void removeUserFromChannel(Long channelId, Long userId) {
-        Set<String> channelUsers = channelSubscriptions.get(channelId);
-        if (channelUsers != null) {
-            channelUsers.remove(userId.toString());
-            if (channelUsers.isEmpty()) {
-                channelSubscriptions.remove(channelId);
-            }
+    public void checkChannelAccess(Long channelId, Long userId) {
+        // Index en mémoire : pas de requête tant que les membres du canal n'ont pas changé
+        if (!channelMembershipIndex.isMember(channelId, userId)) {
+            throw new IllegalArgumentException("L'utilisateur n'a pas été invité à ce salon");
+        }
+    }
+
+    /**
+     * Retire une session d'un canal, l'utilisateur ne quitte le canal (message de type USER_LEFT)
+     * que si c'était sa dernière session sur ce canal
+     * @param sessionId Identifiant de la session WebSocket
+     * @param channelId Identifiant du canal
+     */
+    public void removeUserFromChannel(String sessionId, Long channelId) {
+        Long userId = sessionRegistry.getUserId(sessionId);
+        // Retrait de l'utilisateur (annoncé aux autres instances), les clients sont prévenus par le PresenceAggregator
+        if (userId != null && sessionRegistry.leave(sessionId, channelId)) {
+            clusterPresence.leave(channelId, userId);
         }
+    }
 
-        // Notification à tous les clients du canal (broadcast sur /topic)
-        messagingTemplate.convertAndSend(
-            "/topic/chat/" + channelId,
-            Map.of(
-                "type", "USER_LEFT",
-                "userId", userId.toString(),
-                "connectedUsers", channelUsers != null ? channelUsers : Set.of()
-            )
-        );
+    /**
+     * Ferme une session : elle quitte tous les canaux qu'elle avait rejoints
+     * @param sessionId Identifiant de la session WebSocket
+     */
+    public void disconnectSession(String sessionId) {
+        Long userId = sessionRegistry.getUserId(sessionId);
+        if (userId == null) {
+            return;
+        }
+        for (Long channelId : sessionRegistry.disconnect(sessionId)) {
+            clusterPresence.leave(channelId, userId);
+        }
     }
 
     /**
-     * Récupère les utilisateurs connectés à un canal (plus utilisée)
+     * Récupère la présence complète d'un canal et sa version
+     * Les clients l'utilisent en arrivant sur le canal, puis appliquent les deltas PRESENCE (ou USER_JOINED / USER_LEFT)
      * @param channelId Identifiant du canal
-     * @return la liste des utilisateurs connectés au canal
+     * @return les utilisateurs connectés au canal et la version de la présence
      */
-    public Map<String, String> getChannelUsers(Long channelId) {
-        Set<String> users = channelSubscriptions.getOrDefault(channelId, ConcurrentHashMap.newKeySet());
-        System.out.println("users: " + users);
-        Map<String, String> result = new ConcurrentHashMap<>();
-        users.forEach(userId -> result.put(userId, userId));
-        return result;
-    }
-} 
\ No newline at end of file
+    public PresenceSnapshot getPresence(Long channelId) {
+        return clusterPresence.snapshot(channelId);
+    }
+}
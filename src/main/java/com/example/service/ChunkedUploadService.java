@@ -0,0 +1,281 @@
+package com.example.service;
+
+import com.example.model.UploadStatus;
+import com.example.repository.BlobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service pour l'envoi de fichiers par morceaux : init, envoi de chaque morceau, puis complete
+ *
+ * Les morceaux sont écrits directement à leur position dans un fichier temporaire (NIO), sans
+ * jamais charger le fichier en mémoire. Le type du fichier est vérifié sur les premiers octets
+ * du morceau 0, avant d'écrire la suite. Un envoi interrompu reprend en renvoyant seulement
+ * les morceaux manquants (voir getStatus).
+ *
+ * Un morceau n'est marqué reçu qu'après une écriture complète : un renvoi le marque d'abord manquant,
+ * un renvoi qui échoue le laisse donc manquant. La finalisation et l'écriture d'un morceau s'excluent :
+ * complete est refusé tant qu'un morceau est en cours d'écriture, et plus aucun morceau n'est accepté ensuite.
+ *
+ * Les envois sans activité depuis chat.upload.expiry sont abandonnés par un nettoyage périodique, qui supprime
+ * leur fichier temporaire. Les envois sont tenus en mémoire : ils ne survivent pas à un redémarrage, leurs fichiers
+ * temporaires sont alors supprimés au démarrage (voir BlobStore).
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private final BlobStore blobStore;
+    private final ChatWebSocketService chatWebSocketService;
+    private final int chunkSize;
+    private final long maxFileSize;
+    private final Duration expiry;
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chunked-upload-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Envoi en cours
+    private static class Upload {
+        final String uploadId;
+        final Long channelId;
+        final String username;
+        final String fileName;
+        final String fileType;
+        final long fileSize;
+        final int totalChunks;
+        final Path tmp;
+        // Morceaux reçus, morceaux en cours d'écriture et finalisation (modifiés sous le verrou de l'envoi)
+        final BitSet received = new BitSet();
+        final BitSet writing = new BitSet();
+        boolean completing;
+        volatile long lastActivity = System.currentTimeMillis();
+
+        Upload(String uploadId, Long channelId, String username, String fileName, String fileType, long fileSize,
+               int totalChunks, Path tmp) {
+            this.uploadId = uploadId;
+            this.channelId = channelId;
+            this.username = username;
+            this.fileName = fileName;
+            this.fileType = fileType;
+            this.fileSize = fileSize;
+            this.totalChunks = totalChunks;
+            this.tmp = tmp;
+        }
+    }
+
+    public ChunkedUploadService(
+            BlobStore blobStore,
+            ChatWebSocketService chatWebSocketService,
+            @Value("${chat.upload.chunk-size:4MB}") DataSize chunkSize,
+            @Value("${chat.upload.max-file-size:1GB}") DataSize maxFileSize,
+            @Value("${chat.upload.expiry:24h}") Duration expiry,
+            @Value("${chat.upload.cleanup-interval:1h}") Duration cleanupInterval
+    ) {
+        this.blobStore = blobStore;
+        this.chatWebSocketService = chatWebSocketService;
+        this.chunkSize = (int) chunkSize.toBytes();
+        this.maxFileSize = maxFileSize.toBytes();
+        this.expiry = expiry;
+        cleaner.scheduleWithFixedDelay(() -> removeExpired(System.currentTimeMillis()),
+                cleanupInterval.toMillis(), cleanupInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Démarre un envoi : vérifie que le canal n'est pas terminé, le type et la taille annoncés, et réserve un fichier temporaire
+     * @return l'état de l'envoi (identifiant et taille des morceaux)
+     */
+    public UploadStatus init(Long channelId, String username, String fileName, String fileType, long fileSize) throws IOException {
+        chatWebSocketService.checkNotEnded(channelId);
+        if (!FileTypes.isAllowed(fileType)) {
+            throw new IllegalArgumentException("Type de fichier non autorisé");
+        }
+        if (fileSize <= 0 || fileSize > maxFileSize) {
+            throw new IllegalArgumentException("Taille de fichier invalide (max " + DataSize.ofBytes(maxFileSize).toMegabytes() + "MB)");
+        }
+
+        // Le fichier temporaire est créé à sa taille finale (creux) pour accepter les morceaux dans n'importe quel ordre
+        Path tmp = blobStore.createTempFile();
+        try (FileChannel file = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.allocate(1), fileSize - 1);
+        }
+
+        int totalChunks = (int) ((fileSize + chunkSize - 1) / chunkSize);
+        Upload upload = new Upload(UUID.randomUUID().toString(), channelId, username, fileName, fileType, fileSize,
+                totalChunks, tmp);
+        uploads.put(upload.uploadId, upload);
+        return status(upload);
+    }
+
+    /**
+     * Écrit un morceau à sa position dans le fichier temporaire, en flux direct depuis la requête
+     * Renvoyer un morceau déjà reçu le réécrit (reprise après une coupure en cours de morceau)
+     * @param index Numéro du morceau (à partir de 0)
+     * @param body Contenu du morceau
+     * @throws IllegalStateException si le même morceau est déjà en cours d'écriture ou si l'envoi est en cours de finalisation
+     */
+    public UploadStatus writeChunk(Long channelId, String username, String uploadId, int index, InputStream body) throws IOException {
+        Upload upload = getUpload(channelId, username, uploadId);
+        if (index < 0 || index >= upload.totalChunks) {
+            throw new IllegalArgumentException("Numéro de morceau invalide");
+        }
+        long position = (long) index * chunkSize;
+        long expected = Math.min(chunkSize, upload.fileSize - position);
+
+        synchronized (upload) {
+            if (upload.completing) {
+                throw new IllegalStateException("L'envoi est en cours de finalisation");
+            }
+            if (upload.writing.get(index)) {
+                throw new IllegalStateException("Le morceau " + index + " est déjà en cours d'écriture");
+            }
+            // Le morceau est manquant tant que sa nouvelle écriture n'est pas terminée
+            upload.received.clear(index);
+            upload.writing.set(index);
+        }
+        boolean complete = false;
+        try (FileChannel file = FileChannel.open(upload.tmp, StandardOpenOption.WRITE)) {
+            long written = 0;
+            if (index == 0) {
+                // Vérification du type sur les premiers octets, avant d'écrire le reste
+                byte[] head = body.readNBytes((int) Math.min(FileTypes.SIGNATURE_LENGTH, expected));
+                if (!upload.fileType.equals(FileTypes.detect(head, head.length))) {
+                    abort(upload);
+                    throw new IllegalArgumentException("Le contenu du fichier ne correspond pas au type " + upload.fileType);
+                }
+                written = file.write(ByteBuffer.wrap(head), position);
+            }
+
+            ReadableByteChannel in = Channels.newChannel(body);
+            while (written < expected) {
+                long n = file.transferFrom(in, position + written, expected - written);
+                if (n == 0) {
+                    break;
+                }
+                written += n;
+            }
+            if (written != expected || body.read() != -1) {
+                throw new IllegalArgumentException("Taille du morceau " + index + " invalide (attendu " + expected + " octets)");
+            }
+            complete = true;
+        } finally {
+            synchronized (upload) {
+                upload.writing.clear(index);
+                if (complete) {
+                    upload.received.set(index);
+                }
+            }
+        }
+        upload.lastActivity = System.currentTimeMillis();
+        return status(upload);
+    }
+
+    /**
+     * @return l'état d'un envoi, avec la liste des morceaux déjà reçus
+     */
+    public UploadStatus getStatus(Long channelId, String username, String uploadId) {
+        return status(getUpload(channelId, username, uploadId));
+    }
+
+    /**
+     * Termine un envoi : le fichier est rangé dans le BlobStore puis sa référence est diffusée au canal
+     * @throws IllegalStateException s'il manque des morceaux ou si un morceau est en cours d'écriture
+     */
+    public void complete(Long channelId, String username, String uploadId) throws IOException {
+        Upload upload = getUpload(channelId, username, uploadId);
+        synchronized (upload) {
+            if (!upload.writing.isEmpty()) {
+                throw new IllegalStateException("Des morceaux sont en cours d'écriture");
+            }
+            if (upload.received.cardinality() != upload.totalChunks) {
+                throw new IllegalStateException("Il manque des morceaux à l'envoi");
+            }
+            if (uploads.remove(uploadId) == null) {
+                throw new IllegalArgumentException("Envoi inconnu");
+            }
+            // Plus aucun morceau accepté : le fichier ne change plus pendant le calcul de son empreinte
+            upload.completing = true;
+        }
+        String blobId = blobStore.storeFile(upload.tmp);
+        chatWebSocketService.publishFile(channelId, username, upload.fileName, upload.fileType, upload.fileSize, blobId);
+    }
+
+    private Upload getUpload(Long channelId, String username, String uploadId) {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null || !upload.channelId.equals(channelId) || !upload.username.equals(username)) {
+            throw new IllegalArgumentException("Envoi inconnu");
+        }
+        return upload;
+    }
+
+    private UploadStatus status(Upload upload) {
+        synchronized (upload) {
+            return new UploadStatus(upload.uploadId, upload.fileName, upload.fileSize, chunkSize, upload.totalChunks,
+                    upload.received.stream().boxed().toList());
+        }
+    }
+
+    private void abort(Upload upload) {
+        uploads.remove(upload.uploadId);
+        try {
+            Files.deleteIfExists(upload.tmp);
+        } catch (IOException e) {
+            logger.warn("Impossible de supprimer le fichier temporaire {}", upload.tmp, e);
+        }
+    }
+
+    // Supprime les envois abandonnés (sans activité depuis expiry)
+    void removeExpired(long now) {
+        long limit = now - expiry.toMillis();
+        int removed = 0;
+        for (Upload upload : uploads.values()) {
+            if (upload.lastActivity >= limit) {
+                continue;
+            }
+            // Un envoi en cours d'écriture ou de finalisation n'est pas abandonné, ensuite plus aucun morceau n'est accepté
+            synchronized (upload) {
+                if (!upload.writing.isEmpty() || upload.completing) {
+                    continue;
+                }
+                upload.completing = true;
+            }
+            abort(upload);
+            removed++;
+        }
+        if (removed > 0) {
+            logger.info("{} envois abandonnés supprimés", removed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fenêtre de déduplication des envois : un client qui renvoie un message (après une coupure, sans savoir
+ * s'il était parti) réutilise son identifiant client-msg-id, le second envoi n'est pas diffusé mais acquitté
+ * avec la séquence du message d'origine (il ne sera plus renvoyé).
+ *
+ * Chaque utilisateur garde ses derniers identifiants (chat.dedup.window-size) pendant chat.dedup.ttl,
+ * les fenêtres des utilisateurs inactifs sont supprimées.
+ */
+@Component
+public class ClientMessageDeduplicator {
+    /**
+     * Premier envoi avec cet identifiant (voir reserve)
+     */
+    public static final long FIRST = -1;
+
+    private final int windowSize;
+    private final long ttlMs;
+
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+    private final LongAdder duplicates = new LongAdder();
+
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-dedup-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Identifiant d'un envoi : instant de son arrivée et séquence du message (0 tant qu'il n'est pas dans l'historique)
+    private record Sent(long atMs, long seq) {
+    }
+
+    // Derniers identifiants d'un utilisateur (ordre d'arrivée)
+    private class Window extends LinkedHashMap<String, Sent> {
+        long lastSeenMs;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Sent> eldest) {
+            return size() > windowSize;
+        }
+    }
+
+    public ClientMessageDeduplicator(
+            @Value("${chat.dedup.window-size:128}") int windowSize,
+            @Value("${chat.dedup.ttl-ms:300000}") long ttlMs
+    ) {
+        this.windowSize = windowSize;
+        this.ttlMs = ttlMs;
+        cleaner.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Réserve l'identifiant d'un envoi, avant l'ajout du message à l'historique
+     * Un premier envoi doit ensuite être confirmé (sent) si l'ajout réussit, ou libéré (release) s'il échoue
+     * @param userId Identifiant de l'utilisateur
+     * @param clientMsgId Identifiant choisi par le client (null : pas de déduplication)
+     * @return FIRST si c'est le premier envoi avec cet identifiant, sinon la séquence du message d'origine
+     * (0 si son ajout à l'historique est encore en cours)
+     */
+    public long reserve(long userId, String clientMsgId) {
+        return reserve(userId, clientMsgId, System.currentTimeMillis());
+    }
+
+    long reserve(long userId, String clientMsgId, long now) {
+        if (clientMsgId == null || clientMsgId.isEmpty()) {
+            return FIRST;
+        }
+        long[] original = new long[1];
+        // Fenêtre modifiée uniquement dans compute (atomique par utilisateur, comme la suppression des fenêtres inactives)
+        windows.compute(userId, (id, window) -> {
+            if (window == null) {
+                window = new Window();
+            }
+            window.lastSeenMs = now;
+            Sent sent = window.get(clientMsgId);
+            if (sent == null || now - sent.atMs() >= ttlMs) {
+                original[0] = FIRST;
+                window.put(clientMsgId, new Sent(now, 0));
+            } else {
+                original[0] = sent.seq();
+            }
+            return window;
+        });
+        if (original[0] != FIRST) {
+            duplicates.increment();
+        }
+        return original[0];
+    }
+
+    /**
+     * Confirme un premier envoi, ajouté à l'historique : ses renvois sont acquittés avec sa séquence
+     * @param seq Séquence du message
+     */
+    public void sent(long userId, String clientMsgId, long seq) {
+        if (clientMsgId == null || clientMsgId.isEmpty()) {
+            return;
+        }
+        windows.computeIfPresent(userId, (id, window) -> {
+            window.computeIfPresent(clientMsgId, (msgId, sent) -> new Sent(sent.atMs(), seq));
+            return window;
+        });
+    }
+
+    /**
+     * Libère un premier envoi qui n'a pas été ajouté à l'historique : un renvoi sera traité comme un premier envoi
+     */
+    public void release(long userId, String clientMsgId) {
+        if (clientMsgId == null || clientMsgId.isEmpty()) {
+            return;
+        }
+        windows.computeIfPresent(userId, (id, window) -> {
+            window.remove(clientMsgId);
+            return window;
+        });
+    }
+
+    private void evictIdle() {
+        evictIdle(System.currentTimeMillis());
+    }
+
+    void evictIdle(long now) {
+        for (Long userId : windows.keySet()) {
+            windows.computeIfPresent(userId, (id, window) -> now - window.lastSeenMs >= ttlMs ? null : window);
+        }
+    }
+
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.util.Properties;
@@ -39,6 +40,9 @@ public class EmailService {
     }
 
     // Method to send invitation email with beautiful template
+    // En mode threads virtuels, envoyé en arrière-plan (@Async, voir VirtualThreadsConfig) : la requête HTTP
+    // n'attend pas le serveur SMTP. Sinon l'envoi est synchrone et son échec fait échouer la requête
+    @Async
     public void sendEmailInvitation(String to, String channelName, String inviterName) {
         String subject = "🎉 Invitation à rejoindre un canal de discussion";
         
@@ -0,0 +1,12 @@
+package com.example.service;
+
+import com.example.model.ChatFrame;
+
+/**
+ * Trame de chat et sa représentation JSON, calculée une seule fois
+ * Les mêmes octets sont envoyés à tous les abonnés du canal et écrits dans l'historique
+ * @param frame Trame d'origine
+ * @param payload JSON UTF-8 de la trame
+ */
+public record EncodedFrame(ChatFrame frame, byte[] payload) {
+}
@@ -0,0 +1,65 @@
+package com.example.service;
+
+import java.util.List;
+
+/**
+ * Types de fichiers acceptés dans le chat et détection du type à partir des premiers octets
+ */
+public final class FileTypes {
+
+    public static final List<String> ALLOWED_IMAGE_TYPES = List.of("image/jpeg", "image/png", "image/gif");
+    public static final List<String> ALLOWED_DOCUMENT_TYPES = List.of("application/pdf");
+
+    // Nombre d'octets nécessaires pour reconnaître un type
+    public static final int SIGNATURE_LENGTH = 8;
+
+    private FileTypes() {
+    }
+
+    /**
+     * Vérifie si le type de fichier est autorisé
+     * @param contentType Type de fichier
+     * @return true si le type de fichier est autorisé, false sinon
+     */
+    public static boolean isAllowed(String contentType) {
+        return ALLOWED_IMAGE_TYPES.contains(contentType) || ALLOWED_DOCUMENT_TYPES.contains(contentType);
+    }
+
+    public static boolean isImage(String contentType) {
+        return ALLOWED_IMAGE_TYPES.contains(contentType);
+    }
+
+    /**
+     * Détecte le type d'un fichier à partir de sa signature
+     * @param head Premiers octets du fichier
+     * @param length Nombre d'octets valides dans head
+     * @return le type MIME, ou null si le type n'est pas reconnu
+     */
+    public static String detect(byte[] head, int length) {
+        if (startsWith(head, length, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, '%', 'P', 'D', 'F', '-')) {
+            return "application/pdf";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.service;
+
+import com.example.cluster.ClusterBus;
+import com.example.cluster.ClusterMessage;
+import com.example.util.AhoCorasick;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtre de modération des messages texte : les termes interdits sont masqués avant la diffusion
+ *
+ * Le dictionnaire (chat.moderation.terms-file, un terme par ligne, # pour un commentaire) est compilé
+ * en automate d'Aho-Corasick (voir AhoCorasick) : une seule passe sur le message, sans allocation
+ * quand il ne contient aucun terme. Un rechargement compile le nouvel automate à côté, puis le remplace
+ * d'un seul coup : les envois en cours ne sont jamais bloqués. Le rechargement est propagé aux autres instances.
+ */
+@Component
+public class ModerationFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModerationFilter.class);
+
+    private final String termsFile;
+    private final char mask;
+    private final ClusterBus clusterBus;
+
+    private final AtomicReference<AhoCorasick> automaton = new AtomicReference<>(AhoCorasick.empty());
+    private final LongAdder masked = new LongAdder();
+
+    public ModerationFilter(
+            ClusterBus clusterBus,
+            @Value("${chat.moderation.terms-file:}") String termsFile,
+            @Value("${chat.moderation.mask:*}") char mask
+    ) {
+        this.clusterBus = clusterBus;
+        this.termsFile = termsFile;
+        this.mask = mask;
+        try {
+            load();
+        } catch (IllegalStateException e) {
+            logger.error("Dictionnaire de modération non chargé, messages non filtrés", e);
+        }
+        clusterBus.subscribe(message -> {
+            if (message instanceof ClusterMessage.Moderation) {
+                try {
+                    load();
+                } catch (IllegalStateException e) {
+                    logger.error("Dictionnaire de modération non rechargé, l'ancien est conservé", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Masque les termes interdits d'un message
+     * @param message Message reçu
+     * @return le message à diffuser (la même instance si rien n'est masqué)
+     */
+    public String filter(String message) {
+        String filtered = automaton.get().mask(message, mask);
+        if (filtered != message) {
+            masked.increment();
+        }
+        return filtered;
+    }
+
+    /**
+     * Relit le dictionnaire sur cette instance et sur les autres instances
+     * @return le nombre de termes chargés
+     * @throws IllegalStateException si le fichier ne peut pas être lu (l'ancien dictionnaire est conservé)
+     */
+    public int reload() {
+        int terms = load();
+        clusterBus.publish(new ClusterMessage.Moderation(clusterBus.nodeId()));
+        return terms;
+    }
+
+    // Compile le dictionnaire puis remplace l'automate (pas de fichier configuré : aucun filtre)
+    private int load() {
+        if (termsFile.isBlank()) {
+            return 0;
+        }
+        List<String> terms;
+        try {
+            terms = Files.readAllLines(Path.of(termsFile), StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(term -> !term.isEmpty() && !term.startsWith("#"))
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossible de lire le dictionnaire de modération " + termsFile, e);
+        }
+        AhoCorasick compiled = AhoCorasick.compile(terms);
+        automaton.set(compiled);
+        logger.info("Dictionnaire de modération chargé : {} termes, {} états", compiled.size(), compiled.states());
+        return compiled.size();
+    }
+
+    /**
+     * @return le nombre de termes et d'états de l'automate, et le nombre de messages masqués
+     */
+    public Map<String, Long> getStats() {
+        AhoCorasick current = automaton.get();
+        return Map.of(
+                "terms", (long) current.size(),
+                "states", (long) current.states(),
+                "masked", masked.sum());
+    }
+}
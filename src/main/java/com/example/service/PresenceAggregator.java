@@ -0,0 +1,120 @@
+package com.example.service;
+
+import com.example.cluster.ClusterPresence;
+import com.example.model.PresenceFrame;
+import com.example.model.UserJoinedFrame;
+import com.example.model.UserLeftFrame;
+import com.example.util.LongHashSet;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diffusion des changements de présence aux clients de cette instance
+ *
+ * Quand un canal ouvre, des centaines d'utilisateurs le rejoignent en quelques secondes : au lieu d'une
+ * trame USER_JOINED par arrivée, les changements d'un canal sont regroupés pendant chat.presence.debounce-ms
+ * (à partir du premier changement) et envoyés dans une seule trame PRESENCE { joined, left, fromVersion, version }.
+ * Un utilisateur arrivé puis reparti dans la même fenêtre n'apparaît pas dans la trame.
+ *
+ * Avec chat.presence.debounce-ms=0, chaque changement part immédiatement en USER_JOINED / USER_LEFT.
+ */
+@Service
+public class PresenceAggregator {
+    private final ClusterPresence clusterPresence;
+    private final ChatBroadcaster chatBroadcaster;
+    private final ChatFrameEncoder chatFrameEncoder;
+    private final long debounceMs;
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-presence-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Changements d'un canal en attente d'envoi
+    private static class Pending {
+        final LongHashSet joined = new LongHashSet();
+        final LongHashSet left = new LongHashSet();
+        final long fromVersion;
+        long version;
+
+        Pending(long fromVersion) {
+            this.fromVersion = fromVersion;
+        }
+    }
+
+    public PresenceAggregator(
+            ClusterPresence clusterPresence,
+            ChatBroadcaster chatBroadcaster,
+            ChatFrameEncoder chatFrameEncoder,
+            @Value("${chat.presence.debounce-ms:250}") long debounceMs
+    ) {
+        this.clusterPresence = clusterPresence;
+        this.chatBroadcaster = chatBroadcaster;
+        this.chatFrameEncoder = chatFrameEncoder;
+        this.debounceMs = debounceMs;
+    }
+
+    @PostConstruct
+    public void listenPresence() {
+        clusterPresence.addListener(this::onPresenceChanged);
+    }
+
+    // Appelé avec le verrou du canal, dans l'ordre des versions
+    private void onPresenceChanged(Long channelId, long userId, boolean joined, long version) {
+        if (debounceMs <= 0) {
+            chatBroadcaster.broadcastLocal(channelId, chatFrameEncoder.encode(
+                    joined ? new UserJoinedFrame(userId, version) : new UserLeftFrame(userId, version)));
+            return;
+        }
+
+        pending.compute(channelId, (id, changes) -> {
+            if (changes == null) {
+                changes = new Pending(version - 1);
+                flusher.schedule(() -> flush(channelId), debounceMs, TimeUnit.MILLISECONDS);
+            }
+            // Un départ annule une arrivée de la même fenêtre (et inversement)
+            if (joined) {
+                if (!changes.left.remove(userId)) {
+                    changes.joined.add(userId);
+                }
+            } else if (!changes.joined.remove(userId)) {
+                changes.left.add(userId);
+            }
+            changes.version = version;
+            return changes;
+        });
+    }
+
+    /**
+     * Abandonne les changements en attente d'un canal terminé
+     * @param channelId Identifiant du canal
+     */
+    public void evict(Long channelId) {
+        pending.remove(channelId);
+    }
+
+    private void flush(Long channelId) {
+        Pending changes = pending.remove(channelId);
+        if (changes == null) {
+            return;
+        }
+        // Envoyée même vide : les clients suivent ainsi toutes les versions
+        chatBroadcaster.broadcastLocal(channelId, chatFrameEncoder.encode(new PresenceFrame(
+                changes.joined.toArray(), changes.left.toArray(), changes.fromVersion, changes.version)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+}
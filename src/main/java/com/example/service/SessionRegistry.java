@@ -0,0 +1,200 @@
+package com.example.service;
+
+import com.example.util.LongHashSet;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registre des sessions WebSocket, indexé par session, par utilisateur et par canal
+ *
+ * Une session peut rejoindre plusieurs canaux, et un utilisateur peut avoir plusieurs sessions
+ * (plusieurs onglets ou appareils). La présence d'un utilisateur sur un canal est comptée :
+ * il n'arrive sur le canal qu'avec sa première session et n'en part qu'avec la dernière.
+ *
+ * La déconnexion d'une session ne parcourt que les canaux de cette session.
+ */
+@Component
+public class SessionRegistry {
+
+    // Estimations pour la mesure mémoire (JVM 64 bits, références compressées)
+    private static final int MAP_ENTRY_BYTES = 48;
+    private static final int SESSION_BYTES = 32;
+    private static final int SESSION_ID_BYTES = 80;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    // canal -> utilisateur -> nombre de sessions (modifié uniquement dans compute, atomique par canal)
+    private final Map<Long, Map<Long, Integer>> channels = new ConcurrentHashMap<>();
+
+    // Session WebSocket : utilisateur et canaux rejoints
+    private static class Session {
+        final long userId;
+        final LongHashSet channelIds = new LongHashSet(4);
+        boolean closed;
+
+        Session(long userId) {
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * Enregistre qu'une session rejoint un canal
+     * @return true si c'est la première session de l'utilisateur sur ce canal (l'utilisateur arrive)
+     */
+    public boolean join(String sessionId, long userId, Long channelId) {
+        Session session = sessions.computeIfAbsent(sessionId, id -> {
+            sessionsByUser.computeIfAbsent(userId, user -> ConcurrentHashMap.newKeySet()).add(id);
+            return new Session(userId);
+        });
+        // Le compteur du canal est modifié avec le verrou de la session (ordre cohérent avec disconnect)
+        synchronized (session) {
+            if (session.closed || session.userId != userId || !session.channelIds.add(channelId)) {
+                return false;
+            }
+            boolean[] first = new boolean[1];
+            channels.compute(channelId, (id, users) -> {
+                if (users == null) {
+                    users = new HashMap<>();
+                }
+                first[0] = users.merge(userId, 1, Integer::sum) == 1;
+                return users;
+            });
+            return first[0];
+        }
+    }
+
+    /**
+     * Enregistre qu'une session quitte un canal
+     * @return true si c'était la dernière session de l'utilisateur sur ce canal (l'utilisateur part)
+     */
+    public boolean leave(String sessionId, Long channelId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return false;
+        }
+        synchronized (session) {
+            if (!session.channelIds.remove(channelId)) {
+                return false;
+            }
+            return release(channelId, session.userId);
+        }
+    }
+
+    /**
+     * Supprime une session et tous ses canaux
+     * @return les canaux que l'utilisateur quitte (ceux où c'était sa dernière session)
+     */
+    public List<Long> disconnect(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session == null) {
+            return List.of();
+        }
+        sessionsByUser.computeIfPresent(session.userId, (userId, ids) -> {
+            ids.remove(sessionId);
+            return ids.isEmpty() ? null : ids;
+        });
+
+        List<Long> left = new ArrayList<>();
+        synchronized (session) {
+            session.closed = true;
+            session.channelIds.forEach(channelId -> {
+                if (release(channelId, session.userId)) {
+                    left.add(channelId);
+                }
+            });
+        }
+        return left;
+    }
+
+    /**
+     * Oublie un canal terminé : ses compteurs et sa place dans les canaux de chaque session
+     * @param channelId Identifiant du canal
+     */
+    public void evictChannel(Long channelId) {
+        Map<Long, Integer> users = channels.remove(channelId);
+        if (users == null) {
+            return;
+        }
+        for (Long userId : users.keySet()) {
+            for (String sessionId : getSessions(userId)) {
+                Session session = sessions.get(sessionId);
+                if (session != null) {
+                    synchronized (session) {
+                        session.channelIds.remove(channelId);
+                    }
+                }
+            }
+        }
+    }
+
+    // Décrémente le compteur de l'utilisateur sur le canal, true s'il atteint 0
+    private boolean release(Long channelId, long userId) {
+        boolean[] last = new boolean[1];
+        channels.computeIfPresent(channelId, (id, users) -> {
+            Integer count = users.get(userId);
+            if (count == null) {
+                return users;
+            }
+            if (count > 1) {
+                users.put(userId, count - 1);
+            } else {
+                users.remove(userId);
+                last[0] = true;
+            }
+            return users.isEmpty() ? null : users;
+        });
+        return last[0];
+    }
+
+    /**
+     * @return l'identifiant de l'utilisateur de la session, ou null si la session est inconnue
+     */
+    public Long getUserId(String sessionId) {
+        Session session = sessions.get(sessionId);
+        return session != null ? session.userId : null;
+    }
+
+    /**
+     * @return les sessions ouvertes par un utilisateur
+     */
+    public Set<String> getSessions(long userId) {
+        return sessionsByUser.getOrDefault(userId, Set.of());
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public int getUserCount() {
+        return sessionsByUser.size();
+    }
+
+    public int getChannelCount() {
+        return channels.size();
+    }
+
+    /**
+     * Mémoire estimée du registre (index par session, par utilisateur et par canal)
+     * @return la taille approximative en octets
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                bytes += MAP_ENTRY_BYTES + SESSION_ID_BYTES + SESSION_BYTES + session.channelIds.memoryBytes();
+            }
+        }
+        // Index par utilisateur : une entrée par utilisateur et une par session
+        bytes += (long) MAP_ENTRY_BYTES * (sessionsByUser.size() + sessions.size());
+        for (Map<Long, Integer> users : channels.values()) {
+            bytes += MAP_ENTRY_BYTES * (1L + users.size());
+        }
+        return bytes;
+    }
+}
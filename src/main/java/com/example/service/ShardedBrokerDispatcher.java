@@ -0,0 +1,109 @@
+package com.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mode de diffusion "sharded" (chat.broker.mode=sharded)
+ *
+ * Chaque canal /topic/chat/{id} est attribué à un shard par hachage de son identifiant.
+ * Un shard est un thread unique avec sa propre file : les messages d'un canal sont donc
+ * diffusés dans l'ordre, et les canaux sont répartis sur plusieurs cœurs.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.broker.mode", havingValue = "sharded")
+public class ShardedBrokerDispatcher {
+
+    private final Shard[] shards;
+
+    // Un shard : un thread, une file, et ses compteurs
+    private static class Shard {
+        final ThreadPoolExecutor executor;
+        final LongAdder dispatched = new LongAdder();
+        final LongAdder totalLatencyNanos = new LongAdder();
+        final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        Shard(int index) {
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "chat-shard-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * Statistiques d'un shard
+     * @param shard Numéro du shard
+     * @param queueDepth Nombre de tâches en attente
+     * @param dispatched Nombre de tâches exécutées
+     * @param avgLatencyMicros Délai moyen entre la mise en file et l'exécution
+     * @param maxLatencyMicros Délai maximum entre la mise en file et l'exécution
+     */
+    public record ShardStats(int shard, int queueDepth, long dispatched, long avgLatencyMicros, long maxLatencyMicros) {
+    }
+
+    public ShardedBrokerDispatcher(@Value("${chat.broker.shards:0}") int shardCount) {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Exécute une tâche sur le shard du canal, après les tâches déjà en file pour ce shard
+     * @param channelId Identifiant du canal
+     * @param task Tâche à exécuter
+     */
+    public void execute(Long channelId, Runnable task) {
+        Shard shard = shards[Math.floorMod(Long.hashCode(channelId), shards.length)];
+        long enqueuedAt = System.nanoTime();
+        shard.executor.execute(() -> {
+            long latency = System.nanoTime() - enqueuedAt;
+            shard.dispatched.increment();
+            shard.totalLatencyNanos.add(latency);
+            shard.maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            task.run();
+        });
+    }
+
+    /**
+     * @return les statistiques de chaque shard
+     */
+    public List<ShardStats> getStats() {
+        List<ShardStats> stats = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            long dispatched = shard.dispatched.sum();
+            long avgNanos = dispatched > 0 ? shard.totalLatencyNanos.sum() / dispatched : 0;
+            stats.add(new ShardStats(i, shard.executor.getQueue().size(), dispatched,
+                    TimeUnit.NANOSECONDS.toMicros(avgNanos), TimeUnit.NANOSECONDS.toMicros(shard.maxLatencyNanos.get())));
+        }
+        return stats;
+    }
+
+    /**
+     * Termine les tâches en file avant l'arrêt de l'application
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.service;
+
+import com.example.model.FilePreviewFrame;
+import com.example.repository.BlobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Génération des miniatures des images envoyées dans le chat
+ *
+ * Les images sont décodées par un pool de threads borné, jamais par le thread de la requête d'envoi.
+ * La miniature est enregistrée à côté de l'image d'origine (une seule fois grâce à l'adressage par
+ * contenu), puis une trame FILE_PREVIEW est diffusée sur le canal.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private final BlobStore blobStore;
+    private final ChatBroadcaster chatBroadcaster;
+    private final ChatFrameEncoder chatFrameEncoder;
+    private final int maxSize;
+    private final ThreadPoolExecutor executor;
+
+    public ThumbnailService(
+            BlobStore blobStore,
+            ChatBroadcaster chatBroadcaster,
+            ChatFrameEncoder chatFrameEncoder,
+            @Value("${chat.thumbnail.max-size:320}") int maxSize,
+            @Value("${chat.thumbnail.threads:2}") int threads,
+            @Value("${chat.thumbnail.queue-size:100}") int queueSize
+    ) {
+        this.blobStore = blobStore;
+        this.chatBroadcaster = chatBroadcaster;
+        this.chatFrameEncoder = chatFrameEncoder;
+        this.maxSize = maxSize;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "chat-thumbnail-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Demande la miniature d'une image, sans attendre
+     * Si la file d'attente est pleine, l'image est affichée sans miniature
+     * @param channelId Canal où la trame FILE_PREVIEW sera diffusée
+     * @param blobId Identifiant de l'image
+     */
+    public void submit(Long channelId, String blobId) {
+        try {
+            executor.execute(() -> generate(channelId, blobId));
+        } catch (RejectedExecutionException e) {
+            logger.warn("File des miniatures pleine, pas de miniature pour {}", blobId);
+        }
+    }
+
+    private void generate(Long channelId, String blobId) {
+        try {
+            Path thumbnail = blobStore.thumbnailPath(blobId);
+            BufferedImage image = Files.exists(thumbnail) ? ImageIO.read(thumbnail.toFile()) : createThumbnail(blobId, thumbnail);
+            if (image == null) {
+                return;
+            }
+            String thumbnailUrl = "/api/chat/" + channelId + "/files/" + blobId + "/thumbnail";
+            chatBroadcaster.broadcast(channelId, chatFrameEncoder.encode(
+                    new FilePreviewFrame(blobId, thumbnailUrl, image.getWidth(), image.getHeight())));
+        } catch (Exception e) {
+            logger.error("Erreur lors de la génération de la miniature de {}", blobId, e);
+        }
+    }
+
+    // Décode l'image (sous-échantillonnée si elle est grande), la réduit et l'enregistre
+    private BufferedImage createThumbnail(String blobId, Path thumbnail) throws IOException {
+        Path source = blobStore.find(blobId).orElse(null);
+        if (source == null) {
+            return null;
+        }
+
+        BufferedImage image;
+        String format;
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Sous-échantillonnage au décodage : évite de charger une très grande image en entier
+                int subsampling = Math.max(1, Math.max(width, height) / (maxSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                image = reader.read(0, param);
+                format = "jpeg".equalsIgnoreCase(reader.getFormatName()) ? "jpg" : "png";
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        double scale = Math.min(1.0, (double) maxSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage resized = new BufferedImage(width, height,
+                "jpg".equals(format) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        // Écriture dans un fichier temporaire puis renommage, pour ne jamais servir une miniature incomplète
+        Path tmp = blobStore.createTempFile();
+        ImageIO.write(resized, format, tmp.toFile());
+        Files.move(tmp, thumbnail, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return resized;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -31,6 +31,7 @@ public class UserService {
     private final UserChannelRepository userChannelRepository;
     private final ChannelRepository channelRepository;
     private final InvitationRepository invitationRepository;
+    private final ChannelMembershipIndex channelMembershipIndex;
 
     @Autowired
     public UserService(
@@ -38,13 +39,15 @@ public class UserService {
             PasswordEncoder passwordEncoder,
             UserChannelRepository userChannelRepository,
             ChannelRepository channelRepository,
-            InvitationRepository invitationRepository
+            InvitationRepository invitationRepository,
+            ChannelMembershipIndex channelMembershipIndex
     ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.userChannelRepository = userChannelRepository;
         this.channelRepository = channelRepository;
         this.invitationRepository = invitationRepository;
+        this.channelMembershipIndex = channelMembershipIndex;
     }
 
     public User createUser(String firstName, String lastName, String email, String password, boolean isAdmin) {
@@ -110,8 +113,10 @@ public class UserService {
         user.setAdmin(isAdmin);
         user.setAvatar(avatar);
 
-        // Sauvegarde de l'utilisateur
-        return userRepository.save(user);
+        // Sauvegarde de l'utilisateur, ses mentions changent dans tous ses canaux
+        User savedUser = userRepository.save(user);
+        invalidateMemberships(savedUser);
+        return savedUser;
     }
 
     public User updateUserAvatar(Long id, String avatar) {
@@ -122,9 +127,18 @@ public class UserService {
     }
 
     public void deleteUser(Long id) {
+        userRepository.findById(id).ifPresent(this::invalidateMemberships);
         userRepository.deleteById(id);
     }
 
+    // Invalide l'index des membres des canaux de l'utilisateur (membre ou propriétaire)
+    private void invalidateMemberships(User user) {
+        userChannelRepository.findByUser(user)
+                .forEach(userChannel -> channelMembershipIndex.invalidate(userChannel.getChannel().getChannelId()));
+        channelRepository.findByOwner(user)
+                .forEach(channel -> channelMembershipIndex.invalidate(channel.getChannelId()));
+    }
+
     public boolean existsByEmail(String email) {
         return userRepository.existsByEmail(email);
     }
@@ -205,6 +219,7 @@ public class UserService {
         userChannel.setUser(user);
         userChannel.setChannel(channel);
         userChannelRepository.save(userChannel);
+        channelMembershipIndex.invalidate(channel.getChannelId());
 
         // Masque l'invitation
         invitation.setStatus("accepted");
@@ -0,0 +1,196 @@
+package com.example.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Automate d'Aho-Corasick : recherche de tous les termes d'un dictionnaire en une seule passe sur le texte
+ *
+ * L'automate est compilé une fois en table de transitions complète (les liens d'échec sont résolus à la
+ * compilation) : chaque caractère coûte une lecture dans la table, quel que soit le nombre de termes.
+ * Les caractères sont regroupés en classes (ceux des termes, plus une classe pour tous les autres),
+ * la table a donc une colonne par caractère utilisé et non 65536.
+ *
+ * La recherche ignore la casse et ne retient que les mots entiers (pas de lettre ni de chiffre autour du terme).
+ * L'automate n'est pas modifié après sa construction et peut être partagé entre threads.
+ */
+public final class AhoCorasick {
+    private static final AhoCorasick EMPTY = compile(List.of());
+
+    // Classe de chaque caractère (0 : caractère absent des termes)
+    private final char[] classes;
+    private final int alphabet;
+    // Transitions : état suivant = delta[état * alphabet + classe]
+    private final int[] delta;
+    // Longueur du terme qui se termine exactement dans l'état (0 : aucun)
+    private final int[] termLength;
+    // État suivant de la chaîne d'échec qui termine un terme (0 : aucun)
+    private final int[] outputLink;
+    private final int terms;
+
+    private AhoCorasick(char[] classes, int alphabet, int[] delta, int[] termLength, int[] outputLink, int terms) {
+        this.classes = classes;
+        this.alphabet = alphabet;
+        this.delta = delta;
+        this.termLength = termLength;
+        this.outputLink = outputLink;
+        this.terms = terms;
+    }
+
+    /**
+     * @return un automate sans terme, qui ne trouve rien
+     */
+    public static AhoCorasick empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compile un dictionnaire (les termes vides sont ignorés)
+     * @param dictionary Termes à rechercher
+     * @return l'automate
+     */
+    public static AhoCorasick compile(Collection<String> dictionary) {
+        char[] classes = new char[Character.MAX_VALUE + 1];
+        int alphabet = 1;
+        int maxStates = 1;
+        for (String term : dictionary) {
+            for (int i = 0; i < term.length(); i++) {
+                char c = Character.toLowerCase(term.charAt(i));
+                if (classes[c] == 0) {
+                    if (alphabet == Character.MAX_VALUE) {
+                        throw new IllegalArgumentException("Trop de caractères différents dans le dictionnaire");
+                    }
+                    classes[c] = (char) alphabet++;
+                }
+            }
+            maxStates += term.length();
+        }
+
+        // Trie des termes (-1 : pas de transition)
+        int[] delta = new int[maxStates * alphabet];
+        Arrays.fill(delta, -1);
+        int[] termLength = new int[maxStates];
+        int states = 1;
+        int terms = 0;
+        for (String term : dictionary) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                int index = state * alphabet + classes[Character.toLowerCase(term.charAt(i))];
+                if (delta[index] < 0) {
+                    delta[index] = states++;
+                }
+                state = delta[index];
+            }
+            if (termLength[state] == 0) {
+                terms++;
+            }
+            termLength[state] = term.length();
+        }
+
+        // Parcours en largeur : liens d'échec, transitions manquantes et liens de sortie
+        int[] fail = new int[states];
+        int[] outputLink = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < alphabet; c++) {
+            int next = delta[c];
+            if (next < 0) {
+                delta[c] = 0;
+            } else {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int failState = fail[state];
+            outputLink[state] = termLength[failState] > 0 ? failState : outputLink[failState];
+            for (int c = 0; c < alphabet; c++) {
+                int index = state * alphabet + c;
+                int fallback = delta[failState * alphabet + c];
+                if (delta[index] < 0) {
+                    delta[index] = fallback;
+                } else {
+                    fail[delta[index]] = fallback;
+                    queue.add(delta[index]);
+                }
+            }
+        }
+
+        return new AhoCorasick(classes, alphabet, Arrays.copyOf(delta, states * alphabet),
+                Arrays.copyOf(termLength, states), outputLink, terms);
+    }
+
+    /**
+     * @param text Texte à analyser
+     * @return true si le texte contient au moins un terme du dictionnaire
+     */
+    public boolean matches(CharSequence text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = delta[state * alphabet + classes[Character.toLowerCase(text.charAt(i))]];
+            if (longestMatch(text, state, i) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Masque les termes du dictionnaire trouvés dans le texte
+     * Sans terme trouvé, le texte est retourné tel quel, sans aucune allocation
+     * @param text Texte à analyser
+     * @param replacement Caractère qui remplace chaque caractère d'un terme
+     * @return le texte masqué
+     */
+    public String mask(String text, char replacement) {
+        char[] masked = null;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = delta[state * alphabet + classes[Character.toLowerCase(text.charAt(i))]];
+            int length = longestMatch(text, state, i);
+            if (length > 0) {
+                if (masked == null) {
+                    masked = text.toCharArray();
+                }
+                Arrays.fill(masked, i - length + 1, i + 1, replacement);
+            }
+        }
+        return masked == null ? text : new String(masked);
+    }
+
+    // Longueur du plus long terme entier qui se termine en end (0 : aucun)
+    private int longestMatch(CharSequence text, int state, int end) {
+        int output = termLength[state] > 0 ? state : outputLink[state];
+        if (output == 0 || (end + 1 < text.length() && Character.isLetterOrDigit(text.charAt(end + 1)))) {
+            return 0;
+        }
+        // La chaîne de sortie va du terme le plus long au plus court
+        while (output != 0) {
+            int start = end - termLength[output] + 1;
+            if (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1))) {
+                return termLength[output];
+            }
+            output = outputLink[output];
+        }
+        return 0;
+    }
+
+    /**
+     * @return le nombre de termes du dictionnaire
+     */
+    public int size() {
+        return terms;
+    }
+
+    /**
+     * @return le nombre d'états de l'automate
+     */
+    public int states() {
+        return termLength.length;
+    }
+}
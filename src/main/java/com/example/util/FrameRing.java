@@ -0,0 +1,112 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tampon circulaire de taille fixe des dernières trames d'un canal, indexées par séquence
+ * Le tableau des cases est alloué une fois pour toutes : une trame ajoutée quand le tampon est plein
+ * remplace la plus ancienne. Les séquences sont contiguës, la trame de séquence seq est dans la case seq & mask.
+ * Non synchronisé : l'appelant protège les accès concurrents.
+ */
+public class FrameRing {
+    private final byte[][] slots;
+    private final int mask;
+
+    // Plus ancienne séquence encore présente et prochaine séquence à attribuer
+    private long firstSeq;
+    private long nextSeq;
+    private long bytes;
+
+    /**
+     * @param capacity Nombre de trames conservées (arrondi à la puissance de 2 supérieure)
+     * @param firstSeq Séquence attribuée à la première trame ajoutée
+     */
+    public FrameRing(int capacity, long firstSeq) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacité doit être positive");
+        }
+        this.slots = new byte[sizeFor(capacity)][];
+        this.mask = slots.length - 1;
+        this.firstSeq = firstSeq;
+        this.nextSeq = firstSeq;
+    }
+
+    /**
+     * Ajoute une trame, en écrasant la plus ancienne si le tampon est plein
+     * @return la séquence attribuée à la trame
+     */
+    public long append(byte[] payload) {
+        long seq = nextSeq++;
+        int slot = (int) (seq & mask);
+        if (seq - firstSeq >= slots.length) {
+            bytes -= slots[slot].length;
+            firstSeq++;
+        }
+        slots[slot] = payload;
+        bytes += payload.length;
+        return seq;
+    }
+
+    /**
+     * Trames de séquence strictement supérieure à afterSeq, de la plus ancienne à la plus récente
+     * @return les trames, ou null si une partie d'entre elles n'est plus (ou pas) dans le tampon
+     */
+    public List<byte[]> since(long afterSeq) {
+        if (afterSeq + 1 < firstSeq || afterSeq >= nextSeq) {
+            return null;
+        }
+        List<byte[]> frames = new ArrayList<>((int) (nextSeq - afterSeq - 1));
+        for (long seq = afterSeq + 1; seq < nextSeq; seq++) {
+            frames.add(slots[(int) (seq & mask)]);
+        }
+        return frames;
+    }
+
+    /**
+     * Vide le tampon, les séquences continuent là où elles en étaient
+     * @return le nombre d'octets libérés
+     */
+    public long clear() {
+        for (long seq = firstSeq; seq < nextSeq; seq++) {
+            slots[(int) (seq & mask)] = null;
+        }
+        firstSeq = nextSeq;
+        long freed = bytes;
+        bytes = 0;
+        return freed;
+    }
+
+    /**
+     * @return la dernière séquence attribuée (firstSeq - 1 si aucune trame n'a été ajoutée)
+     */
+    public long lastSeq() {
+        return nextSeq - 1;
+    }
+
+    private static int sizeFor(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return la taille des trames conservées, en octets
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return la mémoire occupée par le tableau des cases (hors trames), en octets
+     */
+    public long slotBytes() {
+        return 16L + 8L * slots.length;
+    }
+}
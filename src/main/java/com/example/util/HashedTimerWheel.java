@@ -0,0 +1,210 @@
+package com.example.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Minuterie à roue hachée : ajout et annulation en O(1), quel que soit le nombre de tâches programmées
+ *
+ * La roue a N cases, chacune couvrant un tick. Une tâche dont l'échéance est dans d tick est rangée dans
+ * la case (tick courant + d) mod N avec d / N tours restants. À chaque tick, un thread dédié parcourt
+ * une seule case : les tâches sans tour restant sont exécutées, les autres perdent un tour.
+ * Chaque case est une liste doublement chaînée, une tâche annulée s'en retire sans parcours.
+ *
+ * La précision est d'un tick : une tâche s'exécute au plus un tick après son échéance.
+ * Les tâches s'exécutent sur le thread de la roue et doivent rester courtes.
+ */
+public class HashedTimerWheel implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimerWheel.class);
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final LongSupplier clock;
+    private final long startNanos;
+    private final Thread worker;
+
+    // Prochain tick à traiter (protégé par le verrou de la roue, comme les listes des cases)
+    private long tick;
+    private int size;
+    private volatile boolean closed;
+
+    /**
+     * Tâche programmée, annulable
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private long remainingRounds;
+        private int bucket = -1;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Annule la tâche si elle n'a pas encore été exécutée
+         * @return true si la tâche a été annulée
+         */
+        public boolean cancel() {
+            synchronized (HashedTimerWheel.this) {
+                if (bucket < 0) {
+                    return false;
+                }
+                unlink(this);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param tick Durée d'un tick
+     * @param unit Unité de tick
+     * @param wheelSize Nombre de cases (arrondi à la puissance de 2 supérieure)
+     * @param threadName Nom du thread de la roue
+     */
+    public HashedTimerWheel(long tick, TimeUnit unit, int wheelSize, String threadName) {
+        this(tick, unit, wheelSize, System::nanoTime, threadName);
+    }
+
+    // Roue sans thread, avancée par advance() (tests)
+    HashedTimerWheel(long tick, TimeUnit unit, int wheelSize, LongSupplier clock) {
+        this(tick, unit, wheelSize, clock, null);
+    }
+
+    private HashedTimerWheel(long tick, TimeUnit unit, int wheelSize, LongSupplier clock, String threadName) {
+        if (tick <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Le tick et la taille de la roue doivent être positifs");
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tick);
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+        if (threadName != null) {
+            worker = new Thread(this::run, threadName);
+            worker.setDaemon(true);
+            worker.start();
+        } else {
+            worker = null;
+        }
+    }
+
+    /**
+     * Programme une tâche
+     * @param delay Délai avant l'exécution (0 ou négatif : au prochain tick)
+     * @param unit Unité du délai
+     * @param task Tâche à exécuter
+     * @return la tâche programmée, pour l'annuler
+     */
+    public Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+        Timeout timeout = new Timeout(task);
+        long deadlineNanos = clock.getAsLong() - startNanos + Math.max(0, unit.toNanos(delay));
+        // Arrondi au tick supérieur : jamais exécutée avant son échéance
+        long deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("La minuterie est arrêtée");
+            }
+            long ticks = Math.max(deadlineTick, tick) - tick;
+            timeout.remainingRounds = ticks / buckets.length;
+            link(timeout, (int) ((tick + ticks) & mask));
+        }
+        return timeout;
+    }
+
+    /**
+     * @return le nombre de tâches programmées
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    // Traite les ticks écoulés et exécute les tâches arrivées à échéance
+    void advance() {
+        long currentTick = (clock.getAsLong() - startNanos) / tickNanos;
+        List<Runnable> expired = new ArrayList<>();
+        synchronized (this) {
+            while (tick <= currentTick) {
+                Timeout timeout = buckets[(int) (tick & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (timeout.remainingRounds <= 0) {
+                        unlink(timeout);
+                        expired.add(timeout.task);
+                    } else {
+                        timeout.remainingRounds--;
+                    }
+                    timeout = next;
+                }
+                tick++;
+            }
+        }
+        for (Runnable task : expired) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // Une tâche en erreur n'empêche pas les suivantes
+                logger.error("Erreur dans une tâche programmée", e);
+            }
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                long nextTickNanos = startNanos + tick * tickNanos;
+                long sleepNanos = nextTickNanos - clock.getAsLong();
+                if (sleepNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                }
+                advance();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void link(Timeout timeout, int bucket) {
+        timeout.bucket = bucket;
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+        size++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Index inversé des messages d'un canal : pour chaque mot, la liste compressée des séquences
+ * des messages qui le contiennent (voir PostingList)
+ *
+ * Les messages sont ajoutés dans l'ordre de leur séquence, par un seul thread. Une recherche ne lit que
+ * les listes des mots demandés : elle part de la plus courte et l'intersecte avec les autres,
+ * son coût ne dépend pas du nombre de messages du canal mais de la fréquence des mots.
+ * Les mots sont les suites de lettres et de chiffres en minuscules, d'au moins MIN_TERM_LENGTH caractères.
+ *
+ * Les listes ne font que grandir : un message supprimé ou remplacé (modification) est seulement marqué
+ * comme retiré et filtré des résultats. Un message modifié est indexé sous la séquence de sa modification,
+ * mais les résultats renvoient la séquence du message d'origine (celle que les clients affichent).
+ */
+public class InvertedIndex {
+
+    public static final int MIN_TERM_LENGTH = 2;
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+    // Messages retirés des résultats, et dernière modification indexée de chaque message modifié
+    private final LongHashSet removed = new LongHashSet();
+    private final Map<Long, Long> replacements = new HashMap<>();
+    // Message d'origine de chaque modification indexée
+    private final Map<Long, Long> targets = new HashMap<>();
+    private long lastSeq;
+
+    /**
+     * Indexe un message
+     * @param seq Séquence du message (un message déjà indexé est ignoré)
+     * @param text Texte du message
+     */
+    public void add(long seq, String text) {
+        lock.writeLock().lock();
+        try {
+            if (seq <= lastSeq) {
+                return;
+            }
+            lastSeq = seq;
+            tokenize(text, term, word -> postings.computeIfAbsent(word, key -> new PostingList()).add(seq));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexe la modification d'un message : le message d'origine (et sa modification précédente) sont retirés
+     * @param seq Séquence de la modification
+     * @param targetSeq Séquence du message modifié
+     * @param text Nouveau texte du message
+     */
+    public void replace(long seq, long targetSeq, String text) {
+        lock.writeLock().lock();
+        try {
+            if (seq <= lastSeq) {
+                return;
+            }
+            remove(targetSeq);
+            replacements.put(targetSeq, seq);
+            targets.put(seq, targetSeq);
+            lastSeq = seq;
+            tokenize(text, term, word -> postings.computeIfAbsent(word, key -> new PostingList()).add(seq));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retire un message des résultats (message supprimé), avec sa dernière modification
+     * @param targetSeq Séquence du message
+     */
+    public void remove(long targetSeq) {
+        lock.writeLock().lock();
+        try {
+            removed.add(targetSeq);
+            Long replacement = replacements.remove(targetSeq);
+            if (replacement != null) {
+                removed.add(replacement);
+                targets.remove(replacement);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marque les séquences jusqu'à seq comme indexées (messages sans texte, ou lus avant la construction)
+     * @param seq Dernière séquence indexée
+     */
+    public void advance(long seq) {
+        lock.writeLock().lock();
+        try {
+            lastSeq = Math.max(lastSeq, seq);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recherche les messages qui contiennent tous les mots de la requête
+     * @param query Requête (mots séparés par des espaces ou de la ponctuation)
+     * @param beforeSeq Séquence exclue à partir de laquelle remonter
+     * @param limit Nombre maximum de séquences
+     * @return les séquences des messages les plus récents (message d'origine pour un message modifié), dans l'ordre croissant
+     * @throws IllegalArgumentException si la requête ne contient aucun mot
+     */
+    public long[] search(String query, long beforeSeq, int limit) {
+        List<String> words = new ArrayList<>();
+        tokenize(query, new StringBuilder(MAX_TERM_LENGTH), word -> {
+            if (!words.contains(word)) {
+                words.add(word);
+            }
+        });
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("La recherche doit contenir au moins un mot de " + MIN_TERM_LENGTH + " caractères");
+        }
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>(words.size());
+            for (String word : words) {
+                PostingList list = postings.get(word);
+                if (list == null) {
+                    return new long[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+
+            // Une modification postérieure à beforeSeq peut viser un message antérieur : toutes les séquences sont lues
+            long[] seqs = lists.get(0).toArray(targets.isEmpty() ? beforeSeq : Long.MAX_VALUE);
+            int size = seqs.length;
+            for (int i = 1; i < lists.size() && size > 0; i++) {
+                size = lists.get(i).retainAll(seqs, size);
+            }
+            if (!removed.isEmpty()) {
+                boolean mapped = false;
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    if (removed.contains(seqs[i])) {
+                        continue;
+                    }
+                    Long targetSeq = targets.get(seqs[i]);
+                    long seq = targetSeq != null ? targetSeq : seqs[i];
+                    if (seq < beforeSeq) {
+                        mapped |= targetSeq != null;
+                        seqs[kept++] = seq;
+                    }
+                }
+                size = kept;
+                if (mapped) {
+                    Arrays.sort(seqs, 0, size);
+                }
+            }
+            return Arrays.copyOfRange(seqs, Math.max(0, size - limit), size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param targetSeq Séquence d'un message
+     * @return la séquence de sa dernière modification indexée, null s'il n'a pas été modifié (ou a été supprimé)
+     */
+    public Long replacement(long targetSeq) {
+        lock.readLock().lock();
+        try {
+            return replacements.get(targetSeq);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return la dernière séquence indexée
+     */
+    public long lastSeq() {
+        lock.readLock().lock();
+        try {
+            return lastSeq;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return le nombre de mots distincts
+     */
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return la mémoire occupée par les listes de séquences, en octets (sans les mots eux-mêmes)
+     */
+    public long bytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PostingList list : postings.values()) {
+                bytes += list.bytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Découpe le texte en mots (lettres et chiffres, en minuscules), en un seul parcours
+    static void tokenize(String text, StringBuilder term, Consumer<String> consumer) {
+        term.setLength(0);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.append(Character.toLowerCase(c));
+                }
+            } else if (term.length() > 0) {
+                if (term.length() >= MIN_TERM_LENGTH) {
+                    consumer.accept(term.toString());
+                }
+                term.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Ensemble de long sans objets intermédiaires (pas de Long ni de Set.Entry)
+ * Adressage ouvert avec sondage linéaire, la valeur 0 sert de case vide et est gérée à part.
+ * Non synchronisé : l'appelant protège les accès concurrents.
+ */
+public class LongHashSet {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private long[] table;
+    private int size;
+    private boolean containsZero;
+
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Nombre d'éléments attendus (le tableau grandit au besoin)
+     */
+    public LongHashSet(int expectedSize) {
+        table = new long[tableSizeFor(expectedSize)];
+    }
+
+    /**
+     * @return true si la valeur a été ajoutée, false si elle était déjà présente
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int index = hash(value) & mask;
+        while (table[index] != 0) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        size++;
+        // Facteur de charge maximum de 1/2 (sans compter le 0)
+        if ((size - (containsZero ? 1 : 0)) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @return true si la valeur était présente
+     */
+    public boolean remove(long value) {
+        if (value == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int mask = table.length - 1;
+        int index = hash(value) & mask;
+        while (table[index] != value) {
+            if (table[index] == 0) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = 0;
+        size--;
+
+        // Recule les valeurs suivantes de la séquence pour ne pas casser le sondage
+        int free = index;
+        index = (index + 1) & mask;
+        while (table[index] != 0) {
+            int home = hash(table[index]) & mask;
+            // La valeur peut occuper la case libre si sa case d'origine n'est pas entre free (exclu) et index (inclus)
+            if (((index - home) & mask) >= ((index - free) & mask)) {
+                table[free] = table[index];
+                table[index] = 0;
+                free = index;
+            }
+            index = (index + 1) & mask;
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        int index = hash(value) & mask;
+        while (table[index] != 0) {
+            if (table[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (long value : table) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * @return les valeurs de l'ensemble, triées
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int position = 0;
+        if (containsZero) {
+            values[position++] = 0;
+        }
+        for (long value : table) {
+            if (value != 0) {
+                values[position++] = value;
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    /**
+     * @return la taille approximative de l'ensemble en mémoire, en octets
+     */
+    public long memoryBytes() {
+        // En-têtes de l'objet et du tableau, puis les cases du tableau
+        return 32L + 8L * table.length;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != 0) {
+                int index = hash(value) & mask;
+                while (table[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    // Mélange des bits (les identifiants sont souvent consécutifs)
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, DEFAULT_CAPACITY - 1)) << 1;
+        return Math.max(capacity, DEFAULT_CAPACITY);
+    }
+}
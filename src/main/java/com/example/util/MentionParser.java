@@ -0,0 +1,77 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Extraction des mentions d'un message (@prenom.nom ou @email), en une seule passe sur le texte
+ *
+ * Une mention commence par @ en début de message ou après un caractère qui ne peut pas faire partie d'une
+ * mention (un @ au milieu d'un mot est une adresse email citée, pas une mention). Elle continue tant que les
+ * caractères sont des lettres, des chiffres ou . _ - + @ ; la ponctuation finale (fin de phrase) est retirée.
+ * Rien n'est alloué pour un message sans mention.
+ */
+public final class MentionParser {
+
+    /**
+     * Nombre maximum de mentions retenues par message (limite les notifications d'un seul envoi)
+     */
+    public static final int MAX_MENTIONS = 20;
+
+    private MentionParser() {
+    }
+
+    /**
+     * @param text Message
+     * @return les mentions distinctes, en minuscules et sans le @, dans l'ordre du message
+     */
+    public static List<String> extract(String text) {
+        List<String> mentions = null;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (text.charAt(i) != '@' || (i > 0 && isHandleChar(text.charAt(i - 1)))) {
+                i++;
+                continue;
+            }
+            int start = i + 1;
+            int end = start;
+            while (end < length && isHandleChar(text.charAt(end))) {
+                end++;
+            }
+            int last = end;
+            while (last > start && !Character.isLetterOrDigit(text.charAt(last - 1))) {
+                last--;
+            }
+            if (last > start) {
+                String handle = text.substring(start, last).toLowerCase(Locale.ROOT);
+                if (mentions == null) {
+                    mentions = new ArrayList<>();
+                }
+                if (!mentions.contains(handle)) {
+                    mentions.add(handle);
+                    if (mentions.size() == MAX_MENTIONS) {
+                        return mentions;
+                    }
+                }
+            }
+            i = end;
+        }
+        return mentions == null ? List.of() : mentions;
+    }
+
+    /**
+     * Identifiant de mention d'un utilisateur : prenom.nom en minuscules, les espaces remplacés par des tirets
+     * @param firstName Prénom
+     * @param lastName Nom
+     * @return l'identifiant, sans le @
+     */
+    public static String handle(String firstName, String lastName) {
+        return (firstName.trim() + "." + lastName.trim()).toLowerCase(Locale.ROOT).replaceAll("\\s+", "-");
+    }
+
+    private static boolean isHandleChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '_' || c == '-' || c == '+' || c == '@';
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Liste de séquences croissantes compressée : chaque séquence est stockée comme l'écart avec la précédente,
+ * encodé en varint (7 bits par octet, le bit de poids fort indique qu'un octet suit)
+ * Des messages proches coûtent un octet par séquence au lieu de huit.
+ *
+ * Non thread-safe : la synchronisation est faite par l'appelant (voir InvertedIndex).
+ */
+public final class PostingList {
+    private byte[] bytes = new byte[8];
+    private int length;
+    private int count;
+    private long last;
+
+    /**
+     * Ajoute une séquence, supérieure à toutes les précédentes
+     * @param seq Séquence
+     * @return false si la séquence est déjà la dernière de la liste (terme répété dans un message)
+     * @throws IllegalArgumentException si la séquence est inférieure à la dernière
+     */
+    public boolean add(long seq) {
+        if (seq == last) {
+            return false;
+        }
+        if (seq < last) {
+            throw new IllegalArgumentException("Séquence " + seq + " inférieure à la dernière (" + last + ")");
+        }
+        if (length + 10 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        long delta = seq - last;
+        while ((delta & ~0x7FL) != 0) {
+            bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        bytes[length++] = (byte) delta;
+        last = seq;
+        count++;
+        return true;
+    }
+
+    /**
+     * Décode les séquences inférieures à beforeSeq
+     * @param beforeSeq Séquence exclue
+     * @return les séquences, dans l'ordre croissant
+     */
+    public long[] toArray(long beforeSeq) {
+        long[] seqs = new long[count];
+        int n = 0;
+        int position = 0;
+        long seq = 0;
+        while (position < length) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            seq += delta;
+            if (seq >= beforeSeq) {
+                break;
+            }
+            seqs[n++] = seq;
+        }
+        return n == count ? seqs : Arrays.copyOf(seqs, n);
+    }
+
+    /**
+     * Garde dans seqs (croissantes) celles qui sont aussi dans la liste : intersection en un seul parcours,
+     * sans décoder la liste dans un tableau
+     * @param seqs Séquences croissantes, modifiées sur place
+     * @param size Nombre de séquences utilisées dans seqs
+     * @return le nombre de séquences gardées (au début de seqs)
+     */
+    public int retainAll(long[] seqs, int size) {
+        int kept = 0;
+        int i = 0;
+        int position = 0;
+        long seq = 0;
+        while (i < size && position < length) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            seq += delta;
+            while (i < size && seqs[i] < seq) {
+                i++;
+            }
+            if (i < size && seqs[i] == seq) {
+                seqs[kept++] = seq;
+                i++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return le nombre de séquences
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return la mémoire occupée par les séquences encodées, en octets
+     */
+    public int bytes() {
+        return bytes.length;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limiteur de débit par clé (seau à jetons, algorithme GCRA), sans verrou
+ *
+ * L'état d'une clé est un seul AtomicLong : l'instant théorique d'arrivée (TAT) de la prochaine requête.
+ * Une requête avance le TAT d'un intervalle (1 / débit) et est acceptée si le TAT ne dépasse pas
+ * maintenant + rafale * intervalle. La mise à jour se fait par compareAndSet, sans verrou.
+ */
+public class RateLimiter {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Map<Long, AtomicLong> states = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond Débit moyen autorisé par clé
+     * @param burst Nombre de requêtes acceptées d'un coup après une période d'inactivité
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Le débit et la rafale doivent être positifs");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = intervalNanos * burst;
+    }
+
+    /**
+     * Consomme un jeton pour la clé
+     * @return 0 si la requête est acceptée, sinon le temps à attendre avant de réessayer (en nanosecondes)
+     */
+    public long tryAcquire(long key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(long key, long now) {
+        AtomicLong state = states.get(key);
+        if (state == null) {
+            state = states.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+        }
+        while (true) {
+            long tat = state.get();
+            long next = Math.max(tat, now) + intervalNanos;
+            long ahead = next - now;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (state.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Rend le jeton consommé par une requête acceptée mais finalement refusée (un autre seau l'a rejetée)
+     */
+    public void refund(long key) {
+        AtomicLong state = states.get(key);
+        if (state != null) {
+            state.addAndGet(-intervalNanos);
+        }
+    }
+
+    /**
+     * Oublie les clés dont le seau est de nouveau plein (à appeler périodiquement)
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        states.values().removeIf(state -> state.get() - now <= 0);
+    }
+
+    public int size() {
+        return states.size();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterPresenceTest {
+
+    private final List<LoopbackClusterBus> buses = new ArrayList<>();
+
+    private ClusterPresence startNode() {
+        LoopbackClusterBus bus = new LoopbackClusterBus();
+        buses.add(bus);
+        ClusterPresence presence = new ClusterPresence(bus);
+        presence.announce();
+        return presence;
+    }
+
+    @AfterEach
+    void tearDown() {
+        buses.forEach(LoopbackClusterBus::close);
+    }
+
+    @Test
+    void testFramePublishedOnceToOtherNodes() {
+        LoopbackClusterBus a = new LoopbackClusterBus();
+        LoopbackClusterBus b = new LoopbackClusterBus();
+        buses.add(a);
+        buses.add(b);
+        List<ClusterMessage> receivedByA = new ArrayList<>();
+        List<ClusterMessage> receivedByB = new ArrayList<>();
+        a.subscribe(receivedByA::add);
+        b.subscribe(receivedByB::add);
+
+        a.publish(new ClusterMessage.Frame(a.nodeId(), 1L, new byte[]{1}));
+
+        assertTrue(receivedByA.isEmpty());
+        assertEquals(1, receivedByB.size());
+    }
+
+    @Test
+    void testPresenceMergedAcrossNodes() {
+        ClusterPresence a = startNode();
+        ClusterPresence b = startNode();
+
+        a.join(1L, 10);
+        b.join(1L, 20);
+        assertArrayEquals(new long[]{10, 20}, a.snapshot(1L).userIds());
+        assertArrayEquals(new long[]{10, 20}, b.snapshot(1L).userIds());
+
+        // Utilisateur connecté sur les deux instances : il reste présent après un départ
+        b.join(1L, 10);
+        a.leave(1L, 10);
+        assertArrayEquals(new long[]{10, 20}, a.snapshot(1L).userIds());
+        assertArrayEquals(new long[]{10, 20}, b.snapshot(1L).userIds());
+    }
+
+    @Test
+    void testDeltasAreVersioned() {
+        ClusterPresence a = startNode();
+        List<String> deltas = new ArrayList<>();
+        a.addListener((channelId, userId, joined, version) -> deltas.add(userId + (joined ? "+" : "-") + version));
+
+        a.join(1L, 10);
+        a.join(1L, 10);
+        a.join(1L, 20);
+        a.leave(1L, 10);
+        a.leave(1L, 30);
+
+        assertEquals(List.of("10+1", "20+2", "10-3"), deltas);
+        assertEquals(3, a.snapshot(1L).version());
+        assertEquals(0, a.snapshot(2L).version());
+    }
+
+    @Test
+    void testNewNodeReceivesSnapshotAndForgetsStoppedNode() {
+        ClusterPresence a = startNode();
+        a.join(1L, 10);
+
+        ClusterPresence b = startNode();
+        List<String> deltas = new ArrayList<>();
+        b.addListener((channelId, userId, joined, version) -> deltas.add(userId + (joined ? "+" : "-") + version));
+        assertArrayEquals(new long[]{10}, b.snapshot(1L).userIds());
+
+        a.shutdown();
+        assertArrayEquals(new long[0], b.snapshot(1L).userIds());
+        assertEquals(List.of("10-2"), deltas);
+    }
+}
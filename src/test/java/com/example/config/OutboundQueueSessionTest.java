@@ -0,0 +1,100 @@
+package com.example.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class OutboundQueueSessionTest {
+
+    private final ExecutorService sender = Executors.newSingleThreadExecutor();
+    private final List<OutboundQueueHandlerDecoratorFactory> factories = new ArrayList<>();
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        sender.shutdownNow();
+        factories.forEach(OutboundQueueHandlerDecoratorFactory::shutdown);
+    }
+
+    private OutboundQueueHandlerDecoratorFactory factory(String policy, int maxMessages) {
+        OutboundQueueHandlerDecoratorFactory factory = new OutboundQueueHandlerDecoratorFactory(
+                policy, maxMessages, DataSize.ofKilobytes(64), Duration.ofSeconds(10), 1, false);
+        factories.add(factory);
+        return factory;
+    }
+
+    private static TextMessage frame(String type) {
+        return new TextMessage("MESSAGE\ndestination:/topic/chat/1\n\n{\"type\":\"" + type + "\"}\0");
+    }
+
+    // Session dont le premier envoi reste bloqué jusqu'à release (client lent)
+    private WebSocketSession slowSession() throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        doAnswer(invocation -> {
+            WebSocketMessage<?> message = invocation.getArgument(0);
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            sent.add((String) message.getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    @Test
+    void testDropPresenceFirstThenOldestText() throws Exception {
+        OutboundQueueHandlerDecoratorFactory factory = factory("drop-presence-first", 2);
+        OutboundQueueSession session = new OutboundQueueSession(slowSession(), factory, sender,
+                OutboundQueueSession.OverflowPolicy.DROP_PRESENCE_FIRST, 2, 64 * 1024, 10_000);
+
+        session.sendMessage(frame("TEXT"));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        session.sendMessage(frame("PRESENCE"));
+        session.sendMessage(frame("FILE"));
+        session.sendMessage(frame("TEXT"));
+        session.sendMessage(frame("USER_JOINED"));
+        session.sendMessage(frame("TEXT"));
+        release.countDown();
+
+        sender.shutdown();
+        assertTrue(sender.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(3, sent.size());
+        assertTrue(sent.get(1).contains("FILE"));
+        assertTrue(sent.get(2).contains("TEXT"));
+        assertEquals(2L, factory.getStats().get("droppedPresence"));
+        assertEquals(1L, factory.getStats().get("droppedText"));
+    }
+
+    @Test
+    void testDisconnectWhenQueueIsFull() throws Exception {
+        OutboundQueueHandlerDecoratorFactory factory = factory("disconnect", 1);
+        OutboundQueueSession session = new OutboundQueueSession(slowSession(), factory, sender,
+                OutboundQueueSession.OverflowPolicy.DISCONNECT, 1, 64 * 1024, 10_000);
+
+        session.sendMessage(frame("TEXT"));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        session.sendMessage(frame("TEXT"));
+        assertThrows(SessionLimitExceededException.class, () -> session.sendMessage(frame("TEXT")));
+        assertEquals(1L, factory.getStats().get("disconnects"));
+        release.countDown();
+    }
+}
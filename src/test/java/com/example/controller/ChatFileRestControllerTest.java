@@ -0,0 +1,138 @@
+package com.example.controller;
+
+import com.example.repository.BlobStore;
+import com.example.service.ChatRateLimiter;
+import com.example.service.ChatWebSocketService;
+import com.example.service.ChunkedUploadService;
+import com.example.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatFileRestControllerTest {
+
+    @TempDir
+    Path dir;
+
+    private BlobStore blobStore;
+    private ChatFileRestController controller;
+    private byte[] content;
+    private String blobId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobStore = new BlobStore(dir.toString());
+        UserService userService = mock(UserService.class);
+        when(userService.getUserId(any())).thenReturn(10L);
+        controller = new ChatFileRestController(blobStore, mock(ChatWebSocketService.class),
+                mock(ChunkedUploadService.class), userService, mock(ChatRateLimiter.class));
+
+        // Fichier PNG de 100 octets (signature puis octets 8..99)
+        content = new byte[100];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        for (int i = signature.length; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        blobId = blobStore.store(new ByteArrayInputStream(content));
+        blobStore.addReference(blobId, 1L);
+    }
+
+    private MockHttpServletResponse download(Long channelId, String range, String ifNoneMatch) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.downloadFile(channelId, blobId, range, ifNoneMatch, new MockHttpServletRequest(), response);
+        return response;
+    }
+
+    @Test
+    void testDownloadWholeFile() throws Exception {
+        MockHttpServletResponse response = download(1L, null, null);
+        assertEquals(200, response.getStatus());
+        assertEquals("image/png", response.getContentType());
+        assertEquals("\"" + blobId + "\"", response.getHeader(HttpHeaders.ETAG));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void testFileNotPublishedInChannelIsNotFound() throws Exception {
+        assertEquals(404, download(2L, null, null).getStatus());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.downloadThumbnail(2L, blobId, null, null, new MockHttpServletRequest(), response);
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    void testRangeRequests() throws Exception {
+        MockHttpServletResponse response = download(1L, "bytes=10-19", null);
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 20), response.getContentAsByteArray());
+
+        response = download(1L, "bytes=90-", null);
+        assertEquals("bytes 90-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 90, 100), response.getContentAsByteArray());
+
+        response = download(1L, "bytes=-5", null);
+        assertEquals("bytes 95-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        response = download(1L, "bytes=50-1000", null);
+        assertEquals("bytes 50-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testUnsatisfiableRanges() throws Exception {
+        for (String range : new String[] {"bytes=100-", "bytes=20-10", "bytes=0-1,5-6", "items=0-1", "bytes=x-1"}) {
+            MockHttpServletResponse response = download(1L, range, null);
+            assertEquals(416, response.getStatus(), range);
+            assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+        }
+    }
+
+    @Test
+    void testIfNoneMatch() throws Exception {
+        MockHttpServletResponse response = download(1L, null, "\"" + blobId + "\"");
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        assertEquals(200, download(1L, null, "\"autre\"").getStatus());
+    }
+
+    @Test
+    void testLargeRangeUsesSendfileWhenSupported() throws Exception {
+        byte[] large = Arrays.copyOf(content, 100 * 1024);
+        String largeId = blobStore.store(new ByteArrayInputStream(large));
+        blobStore.addReference(largeId, 1L);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.downloadFile(1L, largeId, "bytes=1000-", null, request, response);
+
+        // Le contenu est envoyé par le connecteur, pas écrit dans la réponse
+        assertEquals(206, response.getStatus());
+        assertEquals(100 * 1024 - 1000, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(blobStore.find(largeId).orElseThrow().toAbsolutePath().toString(),
+                request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(1000L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(100L * 1024, request.getAttribute("org.apache.tomcat.sendfile.end"));
+
+        // Sans le support du connecteur, le fichier est copié dans la réponse
+        response = new MockHttpServletResponse();
+        controller.downloadFile(1L, largeId, null, null, new MockHttpServletRequest(), response);
+        assertArrayEquals(large, response.getContentAsByteArray());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    @Test
+    void testStoreIsAddressedByContent() throws Exception {
+        BlobStore store = new BlobStore(dir.toString());
+        byte[] content = "contenu du fichier".getBytes(StandardCharsets.UTF_8);
+
+        String blobId = store.store(new ByteArrayInputStream(content));
+        assertEquals(sha256(content), blobId);
+        assertEquals(blobId, store.store(new ByteArrayInputStream(content)));
+
+        Path path = store.find(blobId).orElseThrow();
+        assertArrayEquals(content, Files.readAllBytes(path));
+        try (var files = Files.list(dir.resolve("tmp"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testStoreFileHashesTempFile() throws Exception {
+        BlobStore store = new BlobStore(dir.toString());
+        byte[] content = new byte[200_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path tmp = store.createTempFile();
+        Files.write(tmp, content);
+
+        assertEquals(sha256(content), store.storeFile(tmp));
+        assertFalse(Files.exists(tmp));
+    }
+
+    @Test
+    void testTempFilesAreClearedAtStartup() throws Exception {
+        BlobStore store = new BlobStore(dir.toString());
+        Path tmp = store.createTempFile();
+        Files.write(tmp, new byte[] {1, 2, 3});
+
+        // Envoi interrompu par un arrêt : son fichier temporaire ne sera jamais repris
+        new BlobStore(dir.toString());
+        assertFalse(Files.exists(tmp));
+    }
+
+    @Test
+    void testFindRejectsInvalidIds() throws IOException {
+        BlobStore store = new BlobStore(dir.toString());
+        assertTrue(store.find(null).isEmpty());
+        assertTrue(store.find("../../etc/passwd").isEmpty());
+        assertTrue(store.find("a".repeat(64)).isEmpty());
+        assertTrue(store.findThumbnail("A".repeat(64)).isEmpty());
+    }
+
+    @Test
+    void testReferencesArePerChannel() throws IOException {
+        BlobStore store = new BlobStore(dir.toString());
+        String blobId = store.store(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+
+        assertFalse(store.isReferenced(blobId, 1L));
+        store.addReference(blobId, 1L);
+        store.addReference(blobId, 1L);
+        assertTrue(store.isReferenced(blobId, 1L));
+        assertFalse(store.isReferenced(blobId, 2L));
+        assertFalse(store.isReferenced("../" + blobId, 1L));
+        assertThrows(IllegalArgumentException.class, () -> store.addReference("not-a-hash", 1L));
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testAppendAndRead() throws IOException {
+        try (ChatLog log = ChatLog.open(dir, 1024, 16)) {
+            assertEquals(0, log.lastSeq());
+            assertEquals(1, log.append(10L, bytes("hello")));
+            assertEquals(2, log.append(20L, bytes("world")));
+
+            ChatLogRecord record = log.read(2).orElseThrow();
+            assertEquals(20L, record.timestamp());
+            assertEquals("world", new String(record.payload(), StandardCharsets.UTF_8));
+            assertTrue(log.read(3).isEmpty());
+        }
+    }
+
+    @Test
+    void testRollsSegmentsWhenIndexIsFull() throws IOException {
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            for (int i = 1; i <= 10; i++) {
+                assertEquals(i, log.append(i, bytes("message " + i)));
+            }
+            assertEquals("message 7", new String(log.read(7).orElseThrow().payload(), StandardCharsets.UTF_8));
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(3, files.filter(path -> path.toString().endsWith(".log")).count());
+        }
+    }
+
+    @Test
+    void testRecoversAfterReopen() throws IOException {
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            for (int i = 1; i <= 6; i++) {
+                log.append(i, bytes("message " + i));
+            }
+        }
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            assertEquals(6, log.lastSeq());
+            assertEquals(7, log.append(7L, bytes("message 7")));
+            assertEquals("message 5", new String(log.read(5).orElseThrow().payload(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testReadBeforeReturnsLatestPage() throws IOException {
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            for (int i = 1; i <= 10; i++) {
+                log.append(i, bytes("message " + i));
+            }
+            List<ChatLogRecord> page = log.readBefore(Long.MAX_VALUE, 3);
+            assertEquals(List.of(8L, 9L, 10L), page.stream().map(ChatLogRecord::seq).toList());
+
+            page = log.readBefore(3, 5);
+            assertEquals(List.of(1L, 2L), page.stream().map(ChatLogRecord::seq).toList());
+        }
+    }
+
+    // Journal de 6 messages : segment 1 scellé (1 à 4), segment 5 actif
+    private static void appendSix(ChatLog log) {
+        for (int i = 1; i <= 6; i++) {
+            log.append(i, bytes("message " + i));
+        }
+    }
+
+    private static long countFiles(Path dir, String suffix) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(suffix)).count();
+        }
+    }
+
+    @Test
+    void testCompactSealedSegmentThenReopen() throws IOException {
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            appendSix(log);
+            assertEquals(List.of(1L), log.sealedSegments());
+
+            long freed = log.compact(1, record -> record.seq() == 2 ? new byte[0] : bytes("compacted " + record.seq()));
+            assertTrue(freed > 0);
+            assertEquals("compacted 1", new String(log.read(1).orElseThrow().payload(), StandardCharsets.UTF_8));
+            assertEquals(0, log.read(2).orElseThrow().payload().length);
+        }
+        assertEquals(0, countFiles(dir, ".compact"));
+        assertEquals(0, countFiles(dir, ".compacted"));
+
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            assertEquals(6, log.lastSeq());
+            ChatLogRecord record = log.read(3).orElseThrow();
+            assertEquals(3L, record.timestamp());
+            assertEquals("compacted 3", new String(record.payload(), StandardCharsets.UTF_8));
+            assertEquals(0, log.read(2).orElseThrow().payload().length);
+            assertEquals("message 6", new String(log.read(6).orElseThrow().payload(), StandardCharsets.UTF_8));
+            assertEquals(7, log.append(7L, bytes("message 7")));
+        }
+    }
+
+    @Test
+    void testCompactActiveSegmentIsRejected() throws IOException {
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            appendSix(log);
+            assertThrows(IllegalArgumentException.class, () -> log.compact(5, ChatLogRecord::payload));
+        }
+    }
+
+    @Test
+    void testRecoversInterruptedCompaction() throws IOException {
+        // Version compactée du segment 1, écrite dans un autre dossier
+        Path compactedDir = dir.resolve("compacted");
+        try (ChatLog log = ChatLog.open(compactedDir, 1024, 4)) {
+            for (int i = 1; i <= 5; i++) {
+                log.append(i, i == 2 ? new byte[0] : bytes("compacted " + i));
+            }
+        }
+        Path logDir = dir.resolve("log");
+        try (ChatLog log = ChatLog.open(logDir, 1024, 4)) {
+            appendSix(log);
+        }
+        // Arrêt brutal après la création du marqueur : les fichiers .compact n'ont pas encore remplacé le segment
+        for (Path source : List.of(ChatLogSegment.logPath(compactedDir, 1), ChatLogSegment.indexPath(compactedDir, 1))) {
+            Files.copy(source, ChatLogSegment.compactedPath(logDir.resolve(source.getFileName())));
+        }
+        Files.createFile(logDir.resolve(String.format("%020d.compacted", 1)));
+
+        try (ChatLog log = ChatLog.open(logDir, 1024, 4)) {
+            assertEquals("compacted 1", new String(log.read(1).orElseThrow().payload(), StandardCharsets.UTF_8));
+            assertEquals(0, log.read(2).orElseThrow().payload().length);
+            assertEquals("message 5", new String(log.read(5).orElseThrow().payload(), StandardCharsets.UTF_8));
+            assertEquals(6, log.lastSeq());
+        }
+        assertEquals(0, countFiles(logDir, ".compact"));
+        assertEquals(0, countFiles(logDir, ".compacted"));
+    }
+
+    @Test
+    void testDeletesOrphanCompactFiles() throws IOException {
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            appendSix(log);
+        }
+        // Réécriture interrompue avant le marqueur : le segment d'origine est gardé
+        Files.write(ChatLogSegment.compactedPath(ChatLogSegment.logPath(dir, 1)), bytes("partial"));
+        Files.write(ChatLogSegment.compactedPath(ChatLogSegment.indexPath(dir, 1)), new byte[16]);
+
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            assertEquals("message 2", new String(log.read(2).orElseThrow().payload(), StandardCharsets.UTF_8));
+        }
+        assertEquals(0, countFiles(dir, ".compact"));
+    }
+
+    @Test
+    void testOverflowKeepsOriginalSegment() throws IOException {
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            appendSix(log);
+
+            assertThrows(IllegalStateException.class, () -> log.compact(1, record -> new byte[400]));
+            assertEquals(0, countFiles(dir, ".compact"));
+            assertEquals(0, countFiles(dir, ".compacted"));
+            assertEquals("message 3", new String(log.read(3).orElseThrow().payload(), StandardCharsets.UTF_8));
+
+            // Le segment peut encore être compacté
+            log.compact(1, record -> new byte[0]);
+            assertEquals(0, log.read(3).orElseThrow().payload().length);
+        }
+    }
+
+    @Test
+    void testEmptiedRecordsKeepTheirSequence() throws IOException {
+        try (ChatLog log = ChatLog.open(dir, 1024, 4)) {
+            appendSix(log);
+            log.compact(1, record -> record.seq() % 2 == 0 ? new byte[0] : record.payload());
+
+            // Les messages vidés sont renvoyés sans contenu, l'historique et l'export les omettent
+            List<ChatLogRecord> page = log.readBefore(Long.MAX_VALUE, 10);
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), page.stream().map(ChatLogRecord::seq).toList());
+            assertEquals(List.of(1L, 3L, 5L, 6L), page.stream()
+                    .filter(record -> record.payload().length > 0)
+                    .map(ChatLogRecord::seq)
+                    .toList());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.service;
+
+import com.example.cluster.ClusterPresence;
+import com.example.cluster.LocalClusterBus;
+import com.example.model.ChannelSchedule;
+import com.example.repository.ChannelRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChannelLifecycleSchedulerTest {
+
+    private final ChannelRepository channelRepository = mock(ChannelRepository.class);
+    private final SessionRegistry sessionRegistry = mock(SessionRegistry.class);
+    private final ChannelLifecycleScheduler scheduler = new ChannelLifecycleScheduler(channelRepository,
+            mock(ChatBroadcaster.class), new ChatFrameEncoder(new ObjectMapper()), mock(ClusterPresence.class),
+            mock(PresenceAggregator.class), sessionRegistry, mock(ChannelMembershipIndex.class),
+            mock(ChatHistoryService.class), mock(ChatSearchService.class), new LocalClusterBus(), 100, 64);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testEndedChannelsAreRejected() {
+        LocalDateTime now = LocalDateTime.now();
+        when(channelRepository.findAllSchedules()).thenReturn(List.of(
+                new ChannelSchedule(1L, now.minusMinutes(10), 60),
+                new ChannelSchedule(2L, now.minusHours(2), 60),
+                new ChannelSchedule(3L, now.plusHours(1), 60)));
+
+        // Avant la programmation au démarrage, aucun canal n'est refusé
+        scheduler.checkNotEnded(2L);
+
+        scheduler.scheduleAll();
+        scheduler.checkNotEnded(1L);
+        scheduler.checkNotEnded(3L);
+        assertThrows(IllegalArgumentException.class, () -> scheduler.checkNotEnded(2L));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.checkNotEnded(4L));
+    }
+
+    @Test
+    void testDeletedChannelIsClosedAndRejected() {
+        when(channelRepository.findAllSchedules()).thenReturn(List.of(
+                new ChannelSchedule(1L, LocalDateTime.now().minusMinutes(10), 60)));
+        scheduler.scheduleAll();
+
+        // Canal supprimé : plus d'horaires
+        scheduler.reschedule(1L);
+
+        verify(sessionRegistry).evictChannel(1L);
+        assertThrows(IllegalArgumentException.class, () -> scheduler.checkNotEnded(1L));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.service;
+
+import com.example.cluster.LocalClusterBus;
+import com.example.model.UserHandle;
+import com.example.repository.ChannelRepository;
+import com.example.repository.UserChannelRepository;
+import com.example.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ChannelMembershipIndexTest {
+
+    private final ChannelRepository channelRepository = mock(ChannelRepository.class);
+    private final UserChannelRepository userChannelRepository = mock(UserChannelRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ChannelMembershipIndex index =
+            new ChannelMembershipIndex(channelRepository, userChannelRepository, userRepository, new LocalClusterBus());
+
+    @Test
+    void testMembersAreCachedAfterFirstLoad() {
+        when(channelRepository.findOwnerIdByChannelId(1L)).thenReturn(Optional.of(10L));
+        when(userChannelRepository.findUserIdsByChannelId(1L)).thenReturn(List.of(20L));
+        when(userRepository.findHandlesByUserIds(any())).thenReturn(List.of(
+                new UserHandle(10L, "john.doe@example.com", "John", "Doe"),
+                new UserHandle(20L, "jane.roe@example.com", "Jane", "Roe")));
+
+        assertTrue(index.isMember(1L, 10L));
+        assertTrue(index.isMember(1L, 20L));
+        assertFalse(index.isMember(1L, 30L));
+        assertEquals(20L, index.resolveMention(1L, "jane.roe").userId());
+        verify(channelRepository, times(1)).findOwnerIdByChannelId(1L);
+    }
+
+    @Test
+    void testInvalidateDuringLoadIsNotCached() {
+        when(channelRepository.findOwnerIdByChannelId(1L)).thenReturn(Optional.of(10L));
+        // Le membre 20 accepte son invitation pendant le chargement, après la lecture des membres
+        when(userChannelRepository.findUserIdsByChannelId(1L))
+                .thenAnswer(invocation -> {
+                    index.invalidate(1L);
+                    return List.of();
+                })
+                .thenReturn(List.of(20L));
+        when(userRepository.findHandlesByUserIds(any())).thenReturn(List.of());
+
+        assertFalse(index.isMember(1L, 20L));
+        assertTrue(index.isMember(1L, 20L));
+        verify(userChannelRepository, times(2)).findUserIdsByChannelId(1L);
+    }
+
+    @Test
+    void testEvictAfterLoadReloads() {
+        when(channelRepository.findOwnerIdByChannelId(1L)).thenReturn(Optional.of(10L));
+        when(userChannelRepository.findUserIdsByChannelId(1L)).thenReturn(List.of(), List.of(20L));
+        when(userRepository.findHandlesByUserIds(any())).thenReturn(List.of());
+
+        assertFalse(index.isMember(1L, 20L));
+        index.evict(1L);
+        assertTrue(index.isMember(1L, 20L));
+    }
+
+    @Test
+    void testUnknownChannel() {
+        when(channelRepository.findOwnerIdByChannelId(1L)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> index.isMember(1L, 10L));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.service;
+
+import com.example.cluster.LoopbackClusterBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ChatBroadcasterTest {
+
+    private final List<LoopbackClusterBus> buses = new ArrayList<>();
+
+    // Instance reliée aux autres par le bus en mémoire, sans shards ni lots
+    private ChatBroadcaster startNode(SimpMessagingTemplate template) {
+        LoopbackClusterBus bus = new LoopbackClusterBus();
+        buses.add(bus);
+        return new ChatBroadcaster(template, null, bus, new ChannelReplayBuffer(16, DataSize.ofMegabytes(1)), false, 5, 32);
+    }
+
+    @AfterEach
+    void tearDown() {
+        buses.forEach(LoopbackClusterBus::close);
+    }
+
+    @Test
+    void testUserFrameReachesSessionsOnOtherNodes() {
+        SimpMessagingTemplate templateA = mock(SimpMessagingTemplate.class);
+        SimpMessagingTemplate templateB = mock(SimpMessagingTemplate.class);
+        ChatBroadcaster nodeA = startNode(templateA);
+        startNode(templateB);
+
+        byte[] payload = "{\"type\":\"MENTION\"}".getBytes(StandardCharsets.UTF_8);
+        nodeA.sendToUserInCluster("jane.roe@example.com", "/queue/mentions", new EncodedFrame(null, payload));
+
+        // Envoyée aux sessions locales et à celles de l'autre instance, une seule fois chacune
+        String destination = "/user/jane.roe@example.com/queue/mentions";
+        verify(templateA, times(1)).send(eq(destination), any(Message.class));
+        verify(templateB, times(1)).send(eq(destination), any(Message.class));
+        assertEquals(0, nodeA.getRemoteMessagesIn());
+    }
+}
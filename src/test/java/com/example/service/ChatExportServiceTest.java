@@ -0,0 +1,96 @@
+package com.example.service;
+
+import com.example.model.TextFrame;
+import com.example.repository.ChannelRepository;
+import com.example.repository.ChatLog;
+import com.example.repository.ChatLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ChatExportServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+    private ChatLogRepository repository;
+    private ChatExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        // Segments de 4 messages au plus
+        repository = new ChatLogRepository(dir.toString(), 64 * 1024, 4);
+        exportService = new ChatExportService(mock(ChannelRepository.class), repository, chatHistoryService,
+                2, 8, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportService.shutdown();
+        repository.close();
+    }
+
+    // Ajoute six messages au journal du canal 1 et vide le message 2 (comme le compacteur pour un message supprimé)
+    private List<String> writeLog() throws IOException {
+        ChatLog log = repository.getLog(1L);
+        List<String> payloads = new ArrayList<>();
+        for (long seq = 1; seq <= 6; seq++) {
+            String payload = objectMapper.writeValueAsString(
+                    new TextFrame(seq, "john.doe@example.com", "message " + seq, 1_000L, null, null));
+            assertEquals(seq, log.append(1_000L, payload.getBytes(StandardCharsets.UTF_8)));
+            payloads.add(payload);
+        }
+        log.compact(1, record -> record.seq() == 2 ? new byte[0] : record.payload());
+        payloads.remove(1);
+        return payloads;
+    }
+
+    private List<String> export() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.export(1L, out);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            String ndjson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(ndjson.endsWith("\n"));
+            List<String> lines = List.of(ndjson.split("\n"));
+            assertEquals(exported, lines.size());
+            return lines;
+        }
+    }
+
+    @Test
+    void testExportWritesOneLinePerRecordAndSkipsEmptied() throws IOException {
+        List<String> payloads = writeLog();
+
+        assertEquals(payloads, export());
+        // Journal déjà ouvert : laissé ouvert pour les envois en cours
+        verify(chatHistoryService, never()).evict(1L);
+    }
+
+    @Test
+    void testExportClosesLogOpenedForExport() throws IOException {
+        List<String> payloads = writeLog();
+        repository.close(1L);
+
+        assertEquals(payloads, export());
+        verify(chatHistoryService).evict(1L);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.service;
+
+import com.example.cluster.ClusterBus;
+import com.example.cluster.LocalClusterBus;
+import com.example.cluster.LoopbackClusterBus;
+import com.example.model.ChatHistoryPage;
+import com.example.model.TextFrame;
+import com.example.repository.ChatLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ChatHistoryServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<ChatHistoryService> services = new ArrayList<>();
+    private final List<LoopbackClusterBus> buses = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (ChatHistoryService service : services) {
+            service.shutdown();
+        }
+        buses.forEach(LoopbackClusterBus::close);
+    }
+
+    private ChatHistoryService service(ChatLogRepository repository) {
+        return service(repository, new LocalClusterBus());
+    }
+
+    private ChatHistoryService service(ChatLogRepository repository, ClusterBus clusterBus) {
+        ChatHistoryService service = new ChatHistoryService(repository, new ChatFrameEncoder(objectMapper),
+                mock(ChatSearchService.class), mock(ChatLogCompactor.class), objectMapper, clusterBus, 60_000);
+        services.add(service);
+        return service;
+    }
+
+    // Instance reliée aux autres par le bus en mémoire, avec son propre journal
+    private ChatHistoryService startNode(String name) {
+        LoopbackClusterBus bus = new LoopbackClusterBus();
+        buses.add(bus);
+        return service(new ChatLogRepository(dir.resolve(name).toString(), 64 * 1024, 64), bus);
+    }
+
+    private static long append(ChatHistoryService service, Long channelId, String content) {
+        EncodedFrame frame = service.append(channelId, 1_000L, seq -> new TextFrame(seq, "john.doe@example.com", content, 1_000L, null, null));
+        return ((TextFrame) frame.frame()).seq();
+    }
+
+    @Test
+    void testSequencesPerChannel() throws InterruptedException {
+        ChatHistoryService service = service(new ChatLogRepository(dir.toString(), 64 * 1024, 64));
+
+        assertEquals(1, append(service, 1L, "a"));
+        assertEquals(2, append(service, 1L, "b"));
+        assertEquals(1, append(service, 2L, "c"));
+
+        // Écritures terminées à l'arrêt du thread d'écriture
+        service.shutdown();
+        ChatHistoryPage page = service.getPage(1L, null, 10);
+        assertEquals(List.of(1L, 2L), page.messages().stream().map(ChatHistoryPage.Entry::seq).toList());
+    }
+
+    @Test
+    void testSequenceContinuesAfterRestart() throws InterruptedException {
+        ChatLogRepository repository = new ChatLogRepository(dir.toString(), 64 * 1024, 64);
+        ChatHistoryService first = service(repository);
+        append(first, 1L, "a");
+        append(first, 1L, "b");
+        first.shutdown();
+        repository.close();
+
+        ChatHistoryService second = service(new ChatLogRepository(dir.toString(), 64 * 1024, 64));
+        assertEquals(3, append(second, 1L, "c"));
+    }
+
+    @Test
+    void testSequenceContinuesAfterEvict() {
+        ChatHistoryService service = service(new ChatLogRepository(dir.toString(), 64 * 1024, 64));
+        append(service, 1L, "a");
+        service.evict(1L);
+
+        assertEquals(2, append(service, 1L, "b"));
+    }
+
+    @Test
+    void testConcurrentAppendsGetDistinctSequences() throws Exception {
+        ChatHistoryService service = service(new ChatLogRepository(dir.toString(), 64 * 1024, 1024));
+        ExecutorService senders = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> seqs = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String content = "message " + i;
+                seqs.add(senders.submit(() -> append(service, 1L, content)));
+            }
+            List<Long> assigned = new ArrayList<>();
+            for (Future<Long> seq : seqs) {
+                assigned.add(seq.get());
+            }
+            assertEquals(LongStream.rangeClosed(1, 400).boxed().toList(), assigned.stream().sorted().toList());
+        } finally {
+            senders.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPageSkipsEmptiedMessages() throws Exception {
+        ChatLogRepository repository = new ChatLogRepository(dir.toString(), 64 * 1024, 4);
+        ChatHistoryService service = service(repository);
+        for (int i = 1; i <= 5; i++) {
+            append(service, 1L, "message " + i);
+        }
+        service.shutdown();
+        repository.getLog(1L).compact(1, record -> record.seq() == 2 ? new byte[0] : record.payload());
+
+        ChatHistoryPage page = service.getPage(1L, null, 10);
+        assertEquals(List.of(1L, 3L, 4L, 5L), page.messages().stream().map(ChatHistoryPage.Entry::seq).toList());
+    }
+
+    @Test
+    void testReadFrameWaitsForPendingWrite() {
+        ChatHistoryService service = service(new ChatLogRepository(dir.toString(), 64 * 1024, 64));
+
+        // Lu juste après l'envoi, sans attendre le thread d'écriture (modification ou suppression immédiate)
+        for (int i = 1; i <= 100; i++) {
+            long seq = append(service, 1L, "message " + i);
+            assertEquals("message " + i, service.readFrame(1L, seq).orElseThrow().path("content").asText());
+        }
+        assertTrue(service.readFrame(1L, 101).isEmpty());
+    }
+
+    @Test
+    void testFailedWriteKeepsSequencesAligned() throws InterruptedException {
+        // Segments de 1 Ko : un message plus grand ne peut pas être écrit dans le journal
+        ChatHistoryService service = service(new ChatLogRepository(dir.toString(), 1024, 64));
+
+        assertEquals(1, append(service, 1L, "avant"));
+        assertEquals(2, append(service, 1L, "x".repeat(2048)));
+        assertEquals(3, append(service, 1L, "après"));
+        service.shutdown();
+
+        assertTrue(service.readFrame(1L, 2).isEmpty());
+        assertEquals("après", service.readFrame(1L, 3).orElseThrow().path("content").asText());
+        ChatHistoryPage page = service.getPage(1L, null, 10);
+        assertEquals(List.of(1L, 3L), page.messages().stream().map(ChatHistoryPage.Entry::seq).toList());
+    }
+
+    @Test
+    void testSequencesAreSharedBetweenNodes() throws InterruptedException {
+        ChatHistoryService nodeA = startNode("a");
+        ChatHistoryService nodeB = startNode("b");
+
+        // Chaque envoi attend que le précédent soit écrit et publié par son instance
+        assertEquals(1, append(nodeA, 1L, "depuis A"));
+        nodeA.readFrame(1L, 1);
+        assertEquals(2, append(nodeB, 1L, "depuis B"));
+        nodeB.readFrame(1L, 2);
+        assertEquals(3, append(nodeA, 1L, "encore A"));
+
+        // Les deux journaux contiennent les trois messages sous les mêmes séquences
+        nodeA.shutdown();
+        nodeB.shutdown();
+        for (ChatHistoryService node : List.of(nodeA, nodeB)) {
+            assertEquals(List.of("depuis A", "depuis B", "encore A"), LongStream.rangeClosed(1, 3)
+                    .mapToObj(seq -> node.readFrame(1L, seq).orElseThrow().path("content").asText())
+                    .toList());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.service;
+
+import com.example.model.ChatFrame;
+import com.example.model.EditFrame;
+import com.example.model.TextFrame;
+import com.example.repository.ChatLog;
+import com.example.repository.ChatLogRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ChatLogCompactorTest {
+
+    private static final String SENDER = "john.doe@example.com";
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ChatLogRepository repository;
+    private ChatLogCompactor compactor;
+
+    @AfterEach
+    void tearDown() {
+        compactor.shutdown();
+        repository.close();
+    }
+
+    // Segments de 4 messages au plus
+    private ChatLog log(int segmentBytes) {
+        repository = new ChatLogRepository(dir.toString(), segmentBytes, 4);
+        compactor = new ChatLogCompactor(repository, mock(ChatSearchService.class), objectMapper, 3_600_000);
+        return repository.getLog(1L);
+    }
+
+    private void append(ChatLog log, ChatFrame frame) throws Exception {
+        log.append(1_000L, objectMapper.writeValueAsBytes(frame));
+    }
+
+    private JsonNode read(ChatLog log, long seq) throws Exception {
+        byte[] payload = log.read(seq).orElseThrow().payload();
+        return payload.length == 0 ? null : objectMapper.readTree(payload);
+    }
+
+    @Test
+    void testDeltasOfActiveSegmentWaitForSeal() throws Exception {
+        ChatLog log = log(64 * 1024);
+        append(log, new TextFrame(1, SENDER, "hello", 1_000L, null, null));
+        append(log, new EditFrame(2, 1, SENDER, "hello world", 2_000L));
+        compactor.markDirty(1L);
+
+        // Message et modification dans le segment actif : rien à compacter, le canal attend le scellement
+        compactor.compactAll();
+        assertEquals(0L, compactor.getStats().get("compactedSegments"));
+        assertEquals(1L, compactor.getStats().get("dirtyChannels"));
+        compactor.compactAll();
+        assertEquals(0L, compactor.getStats().get("compactedSegments"));
+
+        for (int seq = 3; seq <= 5; seq++) {
+            append(log, new TextFrame(seq, SENDER, "message " + seq, 1_000L, null, null));
+        }
+        compactor.compactAll();
+        assertEquals(1L, compactor.getStats().get("compactedSegments"));
+        assertEquals(0L, compactor.getStats().get("dirtyChannels"));
+        assertEquals("hello world", read(log, 1).path("content").asText());
+        assertEquals(2_000L, read(log, 1).path("editedAt").asLong());
+        assertNull(read(log, 2));
+    }
+
+    @Test
+    void testOversizedSegmentIsAbandoned() throws Exception {
+        ChatLog log = log(1024);
+        for (int seq = 1; seq <= 4; seq++) {
+            append(log, new TextFrame(seq, SENDER, "message " + seq, 1_000L, null, null));
+        }
+        // Modification trop longue pour que le segment 1 compacté tienne dans un segment
+        append(log, new EditFrame(5, 1, SENDER, "x".repeat(700), 2_000L));
+        compactor.markDirty(1L);
+
+        compactor.compactAll();
+        assertEquals(0L, compactor.getStats().get("compactedSegments"));
+        assertEquals("message 1", read(log, 1).path("content").asText());
+
+        // Segment 5 scellé : la modification est gardée, le segment 1 n'est pas retenté
+        append(log, new TextFrame(6, SENDER, "message 6", 1_000L, null, null));
+        append(log, new TextFrame(7, SENDER, "message 7", 1_000L, null, null));
+        append(log, new TextFrame(8, SENDER, "message 8", 1_000L, null, null));
+        append(log, new TextFrame(9, SENDER, "message 9", 1_000L, null, null));
+        compactor.compactAll();
+        assertEquals(0L, compactor.getStats().get("compactedSegments"));
+        assertEquals(0L, compactor.getStats().get("dirtyChannels"));
+        assertEquals("message 1", read(log, 1).path("content").asText());
+        assertEquals("EDIT", read(log, 5).path("type").asText());
+    }
+}
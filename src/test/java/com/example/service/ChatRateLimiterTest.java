@@ -0,0 +1,37 @@
+package com.example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatRateLimiterTest {
+
+    // 1 envoi/s par utilisateur (rafale 2), 1 envoi/s par canal (rafale 1), uploads non limités
+    private final ChatRateLimiter limiter = new ChatRateLimiter(1, 2, 1, 1, 0, 1, 0, 1);
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+    }
+
+    @Test
+    void testChannelRejectionDoesNotConsumeUserToken() {
+        assertEquals(0, limiter.tryAcquire(ChatRateLimiter.Route.SEND, 10, 1L));
+        // Canal 1 plein : le jeton de l'utilisateur 10 lui est rendu
+        assertTrue(limiter.tryAcquire(ChatRateLimiter.Route.SEND, 10, 1L) > 0);
+        assertTrue(limiter.tryAcquire(ChatRateLimiter.Route.SEND, 10, 1L) > 0);
+
+        // Il lui reste donc un jeton de sa rafale pour un autre canal
+        assertEquals(0, limiter.tryAcquire(ChatRateLimiter.Route.SEND, 10, 2L));
+        assertTrue(limiter.tryAcquire(ChatRateLimiter.Route.SEND, 10, 3L) > 0);
+        assertEquals(3L, limiter.getRejected().get("send"));
+    }
+
+    @Test
+    void testUnlimitedRoute() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, limiter.tryAcquire(ChatRateLimiter.Route.UPLOAD, 10, 1L));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.service;
+
+import com.example.model.UploadStatus;
+import com.example.repository.BlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ChunkedUploadServiceTest {
+
+    private static final int CHUNK_SIZE = 16;
+
+    @TempDir
+    Path dir;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private ChatWebSocketService chatWebSocketService;
+    private ChunkedUploadService service;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        chatWebSocketService = mock(ChatWebSocketService.class);
+        service = new ChunkedUploadService(new BlobStore(dir.toString()), chatWebSocketService,
+                DataSize.ofBytes(CHUNK_SIZE), DataSize.ofKilobytes(1), Duration.ofHours(1), Duration.ofHours(1));
+
+        // Image PNG de deux morceaux
+        content = new byte[2 * CHUNK_SIZE];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        for (int i = signature.length; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdownNow();
+        service.shutdown();
+    }
+
+    private String init() throws IOException {
+        return service.init(1L, "alice", "image.png", "image/png", content.length).uploadId();
+    }
+
+    private UploadStatus write(String uploadId, int index, byte[] body) throws IOException {
+        return service.writeChunk(1L, "alice", uploadId, index, new ByteArrayInputStream(body));
+    }
+
+    private byte[] chunk(int index) {
+        return Arrays.copyOfRange(content, index * CHUNK_SIZE, (index + 1) * CHUNK_SIZE);
+    }
+
+    private String sha256() throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    @Test
+    void testCompletePublishesFile() throws Exception {
+        String uploadId = init();
+        write(uploadId, 1, chunk(1));
+        assertEquals(List.of(0, 1), write(uploadId, 0, chunk(0)).receivedChunks());
+
+        service.complete(1L, "alice", uploadId);
+        verify(chatWebSocketService).publishFile(eq(1L), eq("alice"), eq("image.png"), eq("image/png"),
+                eq((long) content.length), eq(sha256()));
+        assertThrows(IllegalArgumentException.class, () -> service.getStatus(1L, "alice", uploadId));
+    }
+
+    @Test
+    void testFailedResendLeavesChunkMissing() throws Exception {
+        String uploadId = init();
+        write(uploadId, 0, chunk(0));
+        write(uploadId, 1, chunk(1));
+
+        // Renvoi interrompu du morceau 1 : ses octets sur disque sont incomplets
+        byte[] torn = new byte[CHUNK_SIZE / 2];
+        assertThrows(IllegalArgumentException.class, () -> write(uploadId, 1, torn));
+        assertEquals(List.of(0), service.getStatus(1L, "alice", uploadId).receivedChunks());
+        assertThrows(IllegalStateException.class, () -> service.complete(1L, "alice", uploadId));
+        verify(chatWebSocketService, never()).publishFile(any(), any(), any(), any(), anyLong(), anyString());
+
+        write(uploadId, 1, chunk(1));
+        service.complete(1L, "alice", uploadId);
+        verify(chatWebSocketService).publishFile(eq(1L), eq("alice"), eq("image.png"), eq("image/png"),
+                eq((long) content.length), eq(sha256()));
+    }
+
+    @Test
+    void testCompleteIsRefusedDuringChunkWrite() throws Exception {
+        String uploadId = init();
+        write(uploadId, 0, chunk(0));
+        write(uploadId, 1, chunk(1));
+
+        // Renvoi du morceau 1 bloqué après sa première moitié
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        byte[] body = chunk(1);
+        InputStream slow = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                if (position == CHUNK_SIZE / 2) {
+                    reading.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                return position < body.length ? body[position++] & 0xFF : -1;
+            }
+        };
+        Future<UploadStatus> pending = writer.submit(() -> service.writeChunk(1L, "alice", uploadId, 1, slow));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IllegalStateException.class, () -> service.complete(1L, "alice", uploadId));
+        assertThrows(IllegalStateException.class, () -> write(uploadId, 1, chunk(1)));
+
+        release.countDown();
+        assertEquals(List.of(0, 1), pending.get(5, TimeUnit.SECONDS).receivedChunks());
+        service.complete(1L, "alice", uploadId);
+        verify(chatWebSocketService).publishFile(eq(1L), eq("alice"), eq("image.png"), eq("image/png"),
+                eq((long) content.length), eq(sha256()));
+    }
+
+    @Test
+    void testWrongSignatureAbortsUpload() throws Exception {
+        String uploadId = init();
+        byte[] pdf = chunk(0);
+        System.arraycopy(new byte[] {'%', 'P', 'D', 'F', '-'}, 0, pdf, 0, 5);
+
+        assertThrows(IllegalArgumentException.class, () -> write(uploadId, 0, pdf));
+        assertThrows(IllegalArgumentException.class, () -> service.getStatus(1L, "alice", uploadId));
+        assertThrows(IllegalArgumentException.class, () -> write(uploadId, 1, chunk(1)));
+        try (var files = Files.list(dir.resolve("tmp"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testExpiredUploadIsRemoved() throws Exception {
+        String uploadId = init();
+        write(uploadId, 0, chunk(0));
+
+        // Encore actif avant l'expiration
+        service.removeExpired(System.currentTimeMillis());
+        assertEquals(List.of(0), service.getStatus(1L, "alice", uploadId).receivedChunks());
+
+        service.removeExpired(System.currentTimeMillis() + Duration.ofHours(2).toMillis());
+        assertThrows(IllegalArgumentException.class, () -> service.getStatus(1L, "alice", uploadId));
+        try (var files = Files.list(dir.resolve("tmp"))) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static com.example.service.ClientMessageDeduplicator.FIRST;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientMessageDeduplicatorTest {
+
+    private static final long TTL_MS = 60_000;
+
+    // Fenêtre de 2 identifiants par utilisateur
+    private final ClientMessageDeduplicator deduplicator = new ClientMessageDeduplicator(2, TTL_MS);
+
+    @AfterEach
+    void tearDown() {
+        deduplicator.shutdown();
+    }
+
+    @Test
+    void testResendReturnsOriginalSeq() {
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_000));
+        // Message d'origine pas encore dans l'historique
+        assertEquals(0, deduplicator.reserve(10, "a", 1_001));
+
+        deduplicator.sent(10, "a", 42);
+        assertEquals(42, deduplicator.reserve(10, "a", 1_002));
+        assertEquals(2, deduplicator.getDuplicates());
+    }
+
+    @Test
+    void testReleasedSendIsFirstAgain() {
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_000));
+        deduplicator.release(10, "a");
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_001));
+    }
+
+    @Test
+    void testWithoutClientMsgId() {
+        assertEquals(FIRST, deduplicator.reserve(10, null, 1_000));
+        assertEquals(FIRST, deduplicator.reserve(10, null, 1_000));
+        assertEquals(FIRST, deduplicator.reserve(10, "", 1_000));
+    }
+
+    @Test
+    void testExpiresAfterTtl() {
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_000));
+        deduplicator.sent(10, "a", 1);
+        assertEquals(1, deduplicator.reserve(10, "a", 1_000 + TTL_MS - 1));
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_000 + TTL_MS));
+    }
+
+    @Test
+    void testOldestIdLeavesFullWindow() {
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_000));
+        assertEquals(FIRST, deduplicator.reserve(10, "b", 1_001));
+        assertEquals(FIRST, deduplicator.reserve(10, "c", 1_002));
+
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_003));
+        assertEquals(0, deduplicator.reserve(10, "c", 1_004));
+    }
+
+    @Test
+    void testUsersHaveSeparateWindows() {
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_000));
+        deduplicator.sent(10, "a", 1);
+        assertEquals(FIRST, deduplicator.reserve(20, "a", 1_001));
+        deduplicator.sent(20, "a", 2);
+
+        assertEquals(1, deduplicator.reserve(10, "a", 1_002));
+        assertEquals(2, deduplicator.reserve(20, "a", 1_002));
+    }
+
+    @Test
+    void testIdleWindowsAreEvicted() {
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_000));
+        deduplicator.sent(10, "a", 1);
+
+        deduplicator.evictIdle(1_000 + TTL_MS);
+        assertEquals(FIRST, deduplicator.reserve(10, "a", 1_000 + TTL_MS - 1));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    private final SessionRegistry registry = new SessionRegistry();
+
+    @Test
+    void testSessionJoinsSeveralChannels() {
+        assertTrue(registry.join("s1", 10, 1L));
+        assertTrue(registry.join("s1", 10, 2L));
+        assertFalse(registry.join("s1", 10, 2L));
+
+        assertEquals(List.of(1L, 2L), registry.disconnect("s1").stream().sorted().toList());
+        assertEquals(0, registry.getSessionCount());
+        assertEquals(0, registry.getChannelCount());
+        assertEquals(0, registry.getUserCount());
+    }
+
+    @Test
+    void testUserStaysPresentWhileAnotherSessionIsOpen() {
+        assertTrue(registry.join("phone", 10, 1L));
+        assertFalse(registry.join("laptop", 10, 1L));
+        assertEquals(2, registry.getSessions(10).size());
+
+        assertEquals(List.of(), registry.disconnect("phone"));
+        assertTrue(registry.leave("laptop", 1L));
+        assertFalse(registry.leave("laptop", 1L));
+    }
+
+    @Test
+    void testMemoryGrowsWithSessions() {
+        long empty = registry.getMemoryBytes();
+        for (int i = 0; i < 100; i++) {
+            registry.join("session-" + i, i, 1L);
+        }
+        long perSession = (registry.getMemoryBytes() - empty) / 100;
+        assertTrue(perSession > 0 && perSession < 1024, "bytes per session: " + perSession);
+    }
+}
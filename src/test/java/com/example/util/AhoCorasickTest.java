@@ -0,0 +1,50 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickTest {
+
+    @Test
+    void testMasksWholeWordsIgnoringCase() {
+        AhoCorasick automaton = AhoCorasick.compile(List.of("spam", "Eggs"));
+
+        assertEquals("**** and ****!", automaton.mask("SPAM and eggs!", '*'));
+        // Un terme au milieu d'un mot n'est pas masqué
+        assertEquals("spammer, eggshell", automaton.mask("spammer, eggshell", '*'));
+        assertTrue(automaton.matches("buy eggs"));
+        assertFalse(automaton.matches("eggplant"));
+    }
+
+    @Test
+    void testOverlappingTermsThroughFailureLinks() {
+        AhoCorasick automaton = AhoCorasick.compile(List.of("he", "she", "hers", "his"));
+
+        assertEquals("*** said ****", automaton.mask("she said hers", '*'));
+        assertEquals("ushers", automaton.mask("ushers", '*'));
+        // Terme plus court en fin de chaîne d'échec : "he" dans "the he"
+        assertEquals("the **", automaton.mask("the he", '*'));
+        assertEquals(4, automaton.size());
+    }
+
+    @Test
+    void testMultiWordTerm() {
+        AhoCorasick automaton = AhoCorasick.compile(List.of("bad word"));
+
+        assertEquals("a ******** here", automaton.mask("a bad word here", '*'));
+        assertEquals("a bad wording", automaton.mask("a bad wording", '*'));
+    }
+
+    @Test
+    void testNoMatchReturnsSameInstance() {
+        AhoCorasick automaton = AhoCorasick.compile(List.of("spam"));
+        String message = "nothing to see here";
+
+        assertSame(message, automaton.mask(message, '*'));
+        assertSame(message, AhoCorasick.empty().mask(message, '*'));
+        assertEquals(0, AhoCorasick.empty().size());
+    }
+}
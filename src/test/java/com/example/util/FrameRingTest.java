@@ -0,0 +1,61 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameRingTest {
+
+    private static byte[] frame(int i) {
+        return ("{\"n\":" + i + "}").getBytes();
+    }
+
+    @Test
+    void testReplayAfterSeq() {
+        FrameRing ring = new FrameRing(4, 1);
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, ring.append(frame(i)));
+        }
+
+        List<byte[]> frames = ring.since(1);
+        assertEquals(2, frames.size());
+        assertArrayEquals(frame(2), frames.get(0));
+        assertArrayEquals(frame(3), frames.get(1));
+
+        // Client à jour : rien à renvoyer
+        assertTrue(ring.since(3).isEmpty());
+        // Séquence inconnue (instance redémarrée) : rattrapage impossible
+        assertNull(ring.since(10));
+    }
+
+    @Test
+    void testOldestFramesAreOverwritten() {
+        FrameRing ring = new FrameRing(3, 1);
+        assertEquals(4, ring.capacity());
+        for (int i = 1; i <= 10; i++) {
+            ring.append(frame(i));
+        }
+
+        assertEquals(10, ring.lastSeq());
+        assertNull(ring.since(5));
+        List<byte[]> frames = ring.since(6);
+        assertEquals(4, frames.size());
+        assertArrayEquals(frame(7), frames.get(0));
+        assertEquals(frame(7).length + frame(8).length + frame(9).length + frame(10).length, ring.bytes());
+    }
+
+    @Test
+    void testClearKeepsSequence() {
+        FrameRing ring = new FrameRing(4, 1);
+        ring.append(frame(1));
+        ring.append(frame(2));
+
+        assertEquals(frame(1).length + frame(2).length, ring.clear());
+        assertEquals(0, ring.bytes());
+        assertNull(ring.since(1));
+        assertTrue(ring.since(2).isEmpty());
+        assertEquals(3, ring.append(frame(3)));
+    }
+}
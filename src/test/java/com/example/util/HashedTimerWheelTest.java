@@ -0,0 +1,77 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimerWheelTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final HashedTimerWheel wheel = new HashedTimerWheel(1, TimeUnit.SECONDS, 8, now::get);
+
+    private void advanceSeconds(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+        wheel.advance();
+    }
+
+    @Test
+    void testTasksRunAtTheirDeadline() {
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(3, TimeUnit.SECONDS, () -> fired.add("3s"));
+        // Plus d'un tour de roue (8 cases d'une seconde)
+        wheel.schedule(20, TimeUnit.SECONDS, () -> fired.add("20s"));
+        assertEquals(2, wheel.size());
+
+        advanceSeconds(2);
+        assertTrue(fired.isEmpty());
+        advanceSeconds(1);
+        assertEquals(List.of("3s"), fired);
+
+        advanceSeconds(12);
+        assertEquals(List.of("3s"), fired);
+        advanceSeconds(5);
+        assertEquals(List.of("3s", "20s"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancel() {
+        List<String> fired = new ArrayList<>();
+        HashedTimerWheel.Timeout first = wheel.schedule(2, TimeUnit.SECONDS, () -> fired.add("first"));
+        wheel.schedule(2, TimeUnit.SECONDS, () -> fired.add("second"));
+
+        assertTrue(first.cancel());
+        assertFalse(first.cancel());
+        assertEquals(1, wheel.size());
+
+        advanceSeconds(2);
+        assertEquals(List.of("second"), fired);
+    }
+
+    @Test
+    void testPastDeadlineRunsOnNextTick() {
+        List<String> fired = new ArrayList<>();
+        advanceSeconds(10);
+        wheel.schedule(-5, TimeUnit.SECONDS, () -> fired.add("late"));
+
+        advanceSeconds(1);
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void testFailingTaskDoesNotStopOthers() {
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(1, TimeUnit.SECONDS, () -> {
+            throw new IllegalStateException("échec");
+        });
+        wheel.schedule(1, TimeUnit.SECONDS, () -> fired.add("ok"));
+
+        advanceSeconds(1);
+        assertEquals(List.of("ok"), fired);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    @Test
+    void testSearchIntersectsAllWords() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, "Bonjour à tous");
+        index.add(2, "La réunion commence à 10h");
+        index.add(3, "bonjour, la réunion est reportée");
+        index.add(4, "RÉUNION annulée !");
+
+        assertArrayEquals(new long[]{2, 3, 4}, index.search("réunion", Long.MAX_VALUE, 10));
+        assertArrayEquals(new long[]{3}, index.search("Bonjour réunion", Long.MAX_VALUE, 10));
+        assertArrayEquals(new long[0], index.search("bonjour absent", Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void testSearchReturnsMostRecentBeforeSeq() {
+        InvertedIndex index = new InvertedIndex();
+        for (long seq = 1; seq <= 1000; seq++) {
+            index.add(seq, seq % 2 == 0 ? "pair message" : "impair message");
+        }
+
+        assertArrayEquals(new long[]{996, 998, 1000}, index.search("pair", Long.MAX_VALUE, 3));
+        assertArrayEquals(new long[]{496, 498}, index.search("message pair", 500, 2));
+    }
+
+    @Test
+    void testAlreadyIndexedMessagesAreIgnored() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(5, "premier");
+        index.advance(10);
+        index.add(7, "ignoré");
+        index.add(11, "premier encore premier");
+
+        assertEquals(11, index.lastSeq());
+        assertArrayEquals(new long[0], index.search("ignoré", Long.MAX_VALUE, 10));
+        assertArrayEquals(new long[]{5, 11}, index.search("premier", Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void testEditedAndDeletedMessagesAreFiltered() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, "rendez-vous lundi");
+        index.add(2, "rendez-vous mardi");
+        index.replace(3, 1, "rendez-vous mercredi");
+        index.replace(4, 1, "rendez-vous jeudi");
+        index.remove(2);
+
+        assertEquals(4, index.lastSeq());
+        assertArrayEquals(new long[0], index.search("lundi", Long.MAX_VALUE, 10));
+        assertArrayEquals(new long[0], index.search("mercredi", Long.MAX_VALUE, 10));
+        assertArrayEquals(new long[0], index.search("mardi", Long.MAX_VALUE, 10));
+        // Un message modifié est trouvé par son nouveau texte, sous sa séquence d'origine
+        assertArrayEquals(new long[]{1}, index.search("rendez vous", Long.MAX_VALUE, 10));
+        assertArrayEquals(new long[]{1}, index.search("jeudi", Long.MAX_VALUE, 10));
+        assertEquals(4L, index.replacement(1));
+
+        // La suppression du message retire aussi sa dernière modification
+        index.remove(1);
+        assertArrayEquals(new long[0], index.search("jeudi", Long.MAX_VALUE, 10));
+        assertNull(index.replacement(1));
+    }
+
+    @Test
+    void testEditedMessagesKeepTheirOrderAndPage() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, "note un");
+        index.add(2, "note deux");
+        index.add(3, "note trois");
+        index.replace(4, 1, "note un corrigée");
+
+        assertArrayEquals(new long[]{1, 2, 3}, index.search("note", Long.MAX_VALUE, 10));
+        assertArrayEquals(new long[]{2, 3}, index.search("note", Long.MAX_VALUE, 2));
+        // La modification (séquence 4) est postérieure à la page, le message (séquence 1) non
+        assertArrayEquals(new long[]{1}, index.search("note", 2, 10));
+    }
+
+    @Test
+    void testQueryWithoutWordsIsRejected() {
+        InvertedIndex index = new InvertedIndex();
+        assertThrows(IllegalArgumentException.class, () -> index.search("a !", Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void testPostingListLargeGaps() {
+        PostingList list = new PostingList();
+        long[] seqs = {1, 2, 130, 20_000, 5_000_000_000L};
+        for (long seq : seqs) {
+            assertTrue(list.add(seq));
+        }
+        assertFalse(list.add(5_000_000_000L));
+        assertArrayEquals(seqs, list.toArray(Long.MAX_VALUE));
+
+        long[] candidates = {2, 3, 20_000, 5_000_000_000L};
+        assertEquals(3, list.retainAll(candidates, candidates.length));
+        assertEquals(20_000, candidates[1]);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MentionParserTest {
+
+    @Test
+    void testExtractsNameAndEmailHandles() {
+        assertEquals(List.of("jean.dupont", "marie@example.com"),
+                MentionParser.extract("Salut @Jean.Dupont, tu as vu @marie@example.com ?"));
+    }
+
+    @Test
+    void testTrailingPunctuationAndDuplicates() {
+        assertEquals(List.of("jean.dupont"), MentionParser.extract("Merci @jean.dupont. Et encore merci @JEAN.DUPONT!"));
+    }
+
+    @Test
+    void testEmailInTextIsNotAMention() {
+        assertEquals(List.of(), MentionParser.extract("écrivez à support@example.com"));
+        assertEquals(List.of(), MentionParser.extract("un @ tout seul, ou @."));
+    }
+
+    @Test
+    void testMentionCountIsBounded() {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            message.append("@user").append(i).append(' ');
+        }
+        assertEquals(MentionParser.MAX_MENTIONS, MentionParser.extract(message.toString()).size());
+    }
+
+    @Test
+    void testHandleOfNames() {
+        assertEquals("jean-pierre.le-goff", MentionParser.handle("Jean Pierre", " Le  Goff"));
+    }
+}
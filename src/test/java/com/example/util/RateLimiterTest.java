@@ -0,0 +1,61 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testBurstThenSteadyRate() {
+        RateLimiter limiter = new RateLimiter(2, 3);
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire(1, now));
+        }
+        long wait = limiter.tryAcquire(1, now);
+        assertEquals(SECOND / 2, wait);
+
+        // Une autre clé a son propre seau
+        assertEquals(0, limiter.tryAcquire(2, now));
+
+        // Après l'attente indiquée, un jeton est de nouveau disponible
+        assertEquals(0, limiter.tryAcquire(1, now + wait));
+        assertTrue(limiter.tryAcquire(1, now + wait) > 0);
+    }
+
+    @Test
+    void testRejectedRequestsDoNotConsumeTokens() {
+        RateLimiter limiter = new RateLimiter(1, 1);
+        long now = 1_000 * SECOND;
+
+        assertEquals(0, limiter.tryAcquire(1, now));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire(1, now) > 0);
+        }
+        assertEquals(0, limiter.tryAcquire(1, now + SECOND));
+    }
+
+    @Test
+    void testRefundReturnsToken() {
+        RateLimiter limiter = new RateLimiter(1, 2);
+        long now = 1_000 * SECOND;
+
+        assertEquals(0, limiter.tryAcquire(1, now));
+        assertEquals(0, limiter.tryAcquire(1, now));
+        assertTrue(limiter.tryAcquire(1, now) > 0);
+
+        limiter.refund(1);
+        assertEquals(0, limiter.tryAcquire(1, now));
+        assertTrue(limiter.tryAcquire(1, now) > 0);
+
+        // Une clé inconnue n'a rien à rendre
+        limiter.refund(2);
+        assertEquals(1, limiter.size());
+    }
+}